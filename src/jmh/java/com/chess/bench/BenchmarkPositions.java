@@ -0,0 +1,26 @@
+package com.chess.bench;
+
+import com.chess.model.Fen;
+
+/**
+ * Fixed positions shared by the benchmarks
+ */
+final class BenchmarkPositions {
+    private BenchmarkPositions() {
+    }
+    
+    static String fen(String name) {
+        switch (name) {
+            case "start":
+                return Fen.START_POSITION;
+            case "kiwipete":
+                return "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+            case "middlegame":
+                return "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+            case "endgame":
+                return "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+            default:
+                throw new IllegalArgumentException("Unknown benchmark position: " + name);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.chess.bench;
+
+import com.chess.model.ChessBoard;
+import com.chess.model.Move;
+import com.chess.model.PieceColor;
+import com.chess.model.Position;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The ChessBoard object API used by the controller and servlet
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    private ChessBoard board;
+    private Position e2;
+    private Position e4;
+    
+    @Setup
+    public void setup() {
+        board = new ChessBoard();
+        e2 = new Position("e2");
+        e4 = new Position("e4");
+    }
+    
+    @Benchmark
+    public Move makeAndUndoMove() {
+        board.makeMove(new Move(e2, e4));
+        return board.undoMove();
+    }
+    
+    @Benchmark
+    public String[][] getBoardState() {
+        return board.getBoardState();
+    }
+    
+    @Benchmark
+    public Position findKing() {
+        return board.findKing(PieceColor.BLACK);
+    }
+    
+    @Benchmark
+    public boolean isPathClear() {
+        return board.isPathClear(e2, e4);
+    }
+}
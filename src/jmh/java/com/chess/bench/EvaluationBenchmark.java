@@ -0,0 +1,54 @@
+package com.chess.bench;
+
+import com.chess.engine.Evaluator;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.MoveGenerator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Leaf evaluation: reading the incrementally kept piece-square sums against
+ * rescanning every piece, plus the cost the incremental update adds to make/unmake
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluationBenchmark {
+    @Param({"start", "middlegame", "endgame"})
+    public String position;
+    
+    private final Evaluator evaluator = new Evaluator();
+    private Bitboard board;
+    private int move;
+    
+    @Setup
+    public void setup() {
+        board = new Bitboard();
+        Fen.load(board, BenchmarkPositions.fen(position));
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        MoveGenerator.generateLegal(board, moves, 0);
+        move = moves[0];
+    }
+    
+    @Benchmark
+    public int incremental() {
+        return evaluator.evaluate(board);
+    }
+    
+    @Benchmark
+    public int fromScratch() {
+        return evaluator.evaluateFromScratch(board);
+    }
+    
+    @Benchmark
+    public int makeEvaluateUnmake() {
+        board.make(move);
+        int score = evaluator.evaluate(board);
+        board.unmake();
+        return score;
+    }
+}
@@ -0,0 +1,44 @@
+package com.chess.bench;
+
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * FEN parsing into a reused board and writing into a reused builder.
+ * Run with -prof gc to confirm neither allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FenBenchmark {
+    @Param({"start", "kiwipete", "endgame"})
+    public String position;
+    
+    private final Bitboard board = new Bitboard();
+    private final StringBuilder builder = new StringBuilder(128);
+    private String fen;
+    
+    @Setup
+    public void setup() {
+        fen = BenchmarkPositions.fen(position);
+        Fen.load(board, fen);
+    }
+    
+    @Benchmark
+    public long parse() {
+        Fen.load(board, fen);
+        return board.hash();
+    }
+    
+    @Benchmark
+    public int write() {
+        builder.setLength(0);
+        Fen.append(board, builder);
+        return builder.length();
+    }
+}
@@ -0,0 +1,72 @@
+package com.chess.bench;
+
+import com.chess.Perft;
+import com.chess.controller.ChessGame;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.MoveGenerator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Move generation, make/unmake and the getValidMoves request path
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+    @Param({"start", "kiwipete", "endgame"})
+    public String position;
+    
+    private Bitboard board;
+    private int[] moves;
+    private int moveCount;
+    private Perft perft;
+    private ChessGame game;
+    
+    @Setup
+    public void setup() {
+        board = new Bitboard();
+        Fen.load(board, BenchmarkPositions.fen(position));
+        moves = new int[MoveGenerator.MAX_MOVES];
+        moveCount = MoveGenerator.generateLegal(board, moves, 0);
+        perft = new Perft(board);
+        game = new ChessGame();
+    }
+    
+    @Benchmark
+    public int generateLegal() {
+        return MoveGenerator.generateLegal(board, moves, 0);
+    }
+    
+    @Benchmark
+    public int generatePseudoLegal() {
+        return MoveGenerator.generatePseudoLegal(board, moves, 0);
+    }
+    
+    @Benchmark
+    public int makeUnmakeAll() {
+        int captures = 0;
+        for (int i = 0; i < moveCount; i++) {
+            if (board.make(moves[i]) != Bitboard.NO_PIECE) {
+                captures++;
+            }
+            board.unmake();
+        }
+        return captures;
+    }
+    
+    @Benchmark
+    public long perft3() {
+        return perft.perft(3);
+    }
+    
+    @Benchmark
+    public List<String> chessGameGetValidMoves() {
+        return game.getValidMoves("g1");
+    }
+}
@@ -0,0 +1,63 @@
+package com.chess.bench;
+
+import com.chess.engine.Search;
+import com.chess.engine.SearchLimits;
+import com.chess.engine.TranspositionTable;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Fixed-depth search with the staged move picker against generation order.
+ * The nodes counter reports the tree size per search; the time shows what it costs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class MoveOrderingBenchmark {
+    @Param({"start", "kiwipete", "middlegame", "endgame"})
+    public String position;
+    
+    @Param({"true", "false"})
+    public boolean ordering;
+    
+    @Param({"5"})
+    public int depth;
+    
+    private Bitboard board;
+    private TranspositionTable table;
+    
+    /**
+     * Search tree size, summed over the measured searches
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Nodes {
+        public long nodes;
+    }
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        board = new Bitboard();
+        Fen.load(board, BenchmarkPositions.fen(position));
+        table = new TranspositionTable(16);
+    }
+    
+    @Setup(Level.Iteration)
+    public void clearTable() {
+        table.clear();
+    }
+    
+    @Benchmark
+    public int searchToDepth(Nodes counter) {
+        Search search = new Search(table);
+        search.setMoveOrdering(ordering);
+        int move = search.search(board, SearchLimits.depth(depth)).getBestMove();
+        counter.nodes += search.getNodes();
+        return move;
+    }
+}
@@ -0,0 +1,72 @@
+package com.chess.bench;
+
+import com.chess.book.BookBuilder;
+import com.chess.book.OpeningBook;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.MoveGenerator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of one book lookup in a mapped book of random games, for positions in
+ * the book and for positions that miss it
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpeningBookBenchmark {
+    private static final int GAMES = 50000;
+    private static final int PLIES = 16;
+    
+    @Param({"hit", "miss"})
+    public String lookup;
+    
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] weights = new int[MoveGenerator.MAX_MOVES];
+    private OpeningBook book;
+    private long[] keys;
+    private int next;
+    
+    @Setup
+    public void setup() throws IOException {
+        BookBuilder builder = new BookBuilder(PLIES, 1);
+        Random random = new Random(42);
+        Bitboard board = new Bitboard();
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        keys = new long[4096];
+        for (int game = 0; game < GAMES; game++) {
+            Fen.load(board, Fen.START_POSITION);
+            long inBook = board.hash();
+            for (int ply = 0; ply < PLIES; ply++) {
+                int count = MoveGenerator.generateLegal(board, legal, 0);
+                if (count == 0) {
+                    break;
+                }
+                int move = legal[random.nextInt(count)];
+                inBook = board.hash();
+                builder.add(inBook, move, 1 + random.nextInt(2));
+                board.make(move);
+            }
+            keys[game & (keys.length - 1)] = lookup.equals("hit") ? inBook : random.nextLong();
+        }
+        Path file = Files.createTempFile("bench", ".book");
+        file.toFile().deleteOnExit();
+        builder.write(file);
+        book = OpeningBook.open(file);
+    }
+    
+    @Benchmark
+    public int probe() {
+        long key = keys[next];
+        next = (next + 1) & (keys.length - 1);
+        return book.probe(key, moves, weights);
+    }
+}
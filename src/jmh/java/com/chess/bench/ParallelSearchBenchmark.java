@@ -0,0 +1,62 @@
+package com.chess.bench;
+
+import com.chess.engine.Engine;
+import com.chess.engine.SearchLimits;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Lazy SMP time-to-depth: the same fixed-depth searches with 1..N threads.
+ * Each measurement starts from an empty transposition table.
+ * Select other thread counts with -p threads=1,2,4,8,16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelSearchBenchmark {
+    private static final String[] POSITIONS = {"start", "kiwipete", "middlegame", "endgame"};
+    
+    @Param({"1", "2", "4"})
+    public int threads;
+    
+    @Param({"7"})
+    public int depth;
+    
+    private Engine engine;
+    private Bitboard[] boards;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        engine = new Engine(64, threads);
+        boards = new Bitboard[POSITIONS.length];
+        for (int i = 0; i < POSITIONS.length; i++) {
+            boards[i] = new Bitboard();
+            Fen.load(boards[i], BenchmarkPositions.fen(POSITIONS[i]));
+        }
+    }
+    
+    @Setup(Level.Iteration)
+    public void clearTable() {
+        engine.getTable().clear();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+    
+    @Benchmark
+    public long timeToDepth() {
+        SearchLimits limits = new SearchLimits(depth, Long.MAX_VALUE, Long.MAX_VALUE, threads);
+        long nodes = 0;
+        for (Bitboard board : boards) {
+            nodes += engine.search(board, limits).getNodes();
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,58 @@
+package com.chess.bench;
+
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.MoveGenerator;
+import com.chess.model.San;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of writing and reading one SAN move, cycling through every legal move of the position
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SanBenchmark {
+    @Param({"start", "kiwipete"})
+    public String position;
+    
+    private final Bitboard board = new Bitboard();
+    private final int[] scratch = new int[MoveGenerator.MAX_MOVES];
+    private final StringBuilder builder = new StringBuilder(16);
+    private int[] moves;
+    private String[] sans;
+    private int next;
+    
+    @Setup
+    public void setup() {
+        Fen.load(board, BenchmarkPositions.fen(position));
+        moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, moves, 0);
+        moves = Arrays.copyOf(moves, count);
+        sans = new String[count];
+        for (int i = 0; i < count; i++) {
+            sans[i] = San.toSan(board, moves[i]);
+        }
+    }
+    
+    @Benchmark
+    public int write() {
+        int move = moves[next];
+        next = next + 1 == moves.length ? 0 : next + 1;
+        builder.setLength(0);
+        San.append(board, move, builder, scratch);
+        return builder.length();
+    }
+    
+    @Benchmark
+    public int parse() {
+        String san = sans[next];
+        next = next + 1 == sans.length ? 0 : next + 1;
+        return San.parse(board, san, 0, san.length(), scratch);
+    }
+}
@@ -0,0 +1,52 @@
+package com.chess.bench;
+
+import com.chess.controller.ChessGame;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Gson serialization of the responses built by ChessServlet
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    private final Gson gson = new Gson();
+    private ChessGame game;
+    
+    @Setup
+    public void setup() {
+        game = new ChessGame();
+        game.makeMove("e2", "e4");
+        game.makeMove("e7", "e5");
+        game.makeMove("g1", "f3");
+    }
+    
+    @Benchmark
+    public String boardResponse() {
+        JsonObject jsonResponse = new JsonObject();
+        jsonResponse.add("board", gson.toJsonTree(game.getBoardState()));
+        return gson.toJson(jsonResponse);
+    }
+    
+    @Benchmark
+    public String moveResponse() {
+        JsonObject jsonResponse = new JsonObject();
+        jsonResponse.addProperty("success", true);
+        jsonResponse.add("board", gson.toJsonTree(game.getBoardState()));
+        jsonResponse.add("gameInfo", gson.toJsonTree(game.getGameInfo()));
+        return gson.toJson(jsonResponse);
+    }
+    
+    @Benchmark
+    public String historyResponse() {
+        JsonObject jsonResponse = new JsonObject();
+        jsonResponse.add("history", gson.toJsonTree(game.getMoveHistory()));
+        return gson.toJson(jsonResponse);
+    }
+}
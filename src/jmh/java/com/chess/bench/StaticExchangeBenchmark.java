@@ -0,0 +1,43 @@
+package com.chess.bench;
+
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.MoveGenerator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of one static exchange evaluation, cycling through every capture of the position
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StaticExchangeBenchmark {
+    @Param({"kiwipete", "middlegame"})
+    public String position;
+    
+    private Bitboard board;
+    private int[] captures;
+    private int[] seeGain;
+    private int count;
+    private int next;
+    
+    @Setup
+    public void setup() {
+        board = new Bitboard();
+        Fen.load(board, BenchmarkPositions.fen(position));
+        captures = new int[MoveGenerator.MAX_MOVES];
+        seeGain = new int[Bitboard.SEE_BUFFER];
+        count = MoveGenerator.generateTactical(board, captures, 0);
+    }
+    
+    @Benchmark
+    public int see() {
+        int move = captures[next];
+        next = next + 1 == count ? 0 : next + 1;
+        return board.see(move, seeGain);
+    }
+}
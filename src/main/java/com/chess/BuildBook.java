@@ -0,0 +1,85 @@
+package com.chess;
+
+import com.chess.book.BookBuilder;
+import com.chess.book.OpeningBook;
+import com.chess.pgn.PgnReader;
+import com.chess.pgn.PgnStats;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds an opening book from a PGN file or every .pgn file below a directory.
+ *
+ * Usage: BuildBook &lt;book.bin&gt; &lt;pgn file or directory&gt; [--plies n] [--min-games n] [--threads n]
+ */
+public class BuildBook {
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            usage();
+        }
+        int plies = BookBuilder.DEFAULT_MAX_PLIES;
+        int minGames = BookBuilder.DEFAULT_MIN_GAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                System.err.println("Missing value for " + args[i]);
+                usage();
+            }
+            int value;
+            try {
+                value = Integer.parseInt(args[i + 1]);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid value for " + args[i] + ": " + args[i + 1]);
+                usage();
+                return;
+            }
+            switch (args[i]) {
+                case "--plies":
+                    plies = value;
+                    break;
+                case "--min-games":
+                    minGames = value;
+                    break;
+                case "--threads":
+                    threads = value;
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    usage();
+            }
+        }
+        
+        Path book = Paths.get(args[0]);
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(Paths.get(args[1]))) {
+            files = paths.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().toLowerCase().endsWith(".pgn"))
+                    .sorted().collect(Collectors.toList());
+        }
+        
+        BookBuilder builder = new BookBuilder(plies, minGames);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        PgnStats stats;
+        try {
+            stats = new PgnReader(files, pool, PgnReader.DEFAULT_BATCH_GAMES).read(builder::add);
+        } finally {
+            pool.shutdown();
+        }
+        int entries = builder.write(book);
+        System.out.println(stats);
+        System.out.println(entries + " book entries, " + Files.size(book) + " bytes written to " + book);
+        System.out.println("Book opens with " + OpeningBook.open(book).size() + " entries");
+    }
+    
+    private static void usage() {
+        System.err.println("Usage: BuildBook <book.bin> <pgn file or directory> [--plies n] [--min-games n] [--threads n]");
+        System.exit(1);
+    }
+}
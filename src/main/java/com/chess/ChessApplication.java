@@ -1,8 +1,12 @@
 package com.chess;
 
+import java.util.concurrent.Executors;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.boot.web.servlet.ServletComponentScan;
+import org.springframework.context.annotation.Bean;
 
 /**
  * Spring Boot application for Chess Player
@@ -16,4 +20,14 @@ public class ChessApplication {
         System.out.println("Starting Chess Player Application...");
         SpringApplication.run(ChessApplication.class, args);
     }
+    
+    /**
+     * Handle each request on a virtual thread of its own, so requests waiting
+     * on engine searches or spilled games do not tie up platform threads
+     */
+    @Bean
+    @ConditionalOnProperty(name = "chess.server.virtual-threads", havingValue = "true", matchIfMissing = true)
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutor() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
 }
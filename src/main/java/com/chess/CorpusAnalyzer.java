@@ -0,0 +1,214 @@
+package com.chess;
+
+import com.chess.engine.Engine;
+import com.chess.engine.Search;
+import com.chess.engine.SearchLimits;
+import com.chess.model.Bitboard;
+import com.chess.model.MoveGenerator;
+import com.chess.pgn.CorpusStats;
+import com.chess.pgn.PgnGame;
+import com.chess.pgn.PgnReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Batch audit of a directory of PGN, FEN and EPD files. Every game is replayed
+ * and checked for legality and a result that matches its final position, every
+ * position is validated, and with a search depth each position is evaluated to
+ * count blunders. The work runs on a fork/join pool fed by the streaming PGN
+ * reader, so it spreads over all cores while memory stays bounded.
+ *
+ * Usage: CorpusAnalyzer &lt;directory&gt; [--threads n] [--depth d] [--blunder cp] [--hash mb]
+ */
+public class CorpusAnalyzer {
+    public static final int DEFAULT_BLUNDER_CENTIPAWNS = 300;
+    
+    /** Mate scores are capped so a missed mate counts as one blunder, not a huge loss */
+    private static final int SCORE_CAP = 2000;
+    
+    private final ForkJoinPool pool;
+    private final Engine engine;
+    private final int depth;
+    private final int blunderCentipawns;
+    private final ThreadLocal<WorkerState> states;
+    
+    /**
+     * Create an analyzer; a depth of 0 skips engine evaluation and blunder counting
+     */
+    public CorpusAnalyzer(int threads, int depth, int blunderCentipawns, int hashMegabytes) {
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+        this.depth = depth;
+        this.blunderCentipawns = blunderCentipawns;
+        this.engine = depth > 0 ? new Engine(hashMegabytes, 1) : null;
+        this.states = ThreadLocal.withInitial(() -> new WorkerState(engine));
+    }
+    
+    /**
+     * Analyze every .pgn, .fen and .epd file below a directory
+     */
+    public CorpusStats analyze(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths.filter(Files::isRegularFile).filter(CorpusAnalyzer::isCorpusFile)
+                    .sorted().collect(Collectors.toList());
+        }
+        CorpusStats stats = new CorpusStats();
+        stats.setThroughput(new PgnReader(files, pool, PgnReader.DEFAULT_BATCH_GAMES)
+                .read(game -> analyze(game, stats)));
+        return stats;
+    }
+    
+    public void shutdown() {
+        pool.shutdown();
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+    
+    private void analyze(PgnGame game, CorpusStats stats) {
+        if (!game.isValid()) {
+            stats.addInvalid(game.isPosition(), game.getFile().getFileName() + "@" + game.getOffset(), game.getError());
+            return;
+        }
+        WorkerState state = states.get();
+        Bitboard board = game.getBoard();
+        if (game.isPosition()) {
+            stats.addPosition();
+            if (engine != null) {
+                state.search.search(board, SearchLimits.depth(depth));
+                stats.addEvaluated(1);
+            }
+            return;
+        }
+        
+        stats.addGame(game.getResult(), game.getMoveCount(), resultMatchesBoard(board, game.getResult(), state.moves));
+        if (engine != null) {
+            countBlunders(game, board, state, stats);
+        }
+    }
+    
+    /**
+     * A game ending in mate must be won by the mating side and one ending in stalemate drawn
+     */
+    private static boolean resultMatchesBoard(Bitboard board, String result, int[] moves) {
+        if (MoveGenerator.generateLegal(board, moves, 0) > 0) {
+            return true;
+        }
+        if (!MoveGenerator.isInCheck(board)) {
+            return result.equals("1/2-1/2");
+        }
+        return result.equals(board.sideToMove() == Bitboard.WHITE ? "0-1" : "1-0");
+    }
+    
+    /**
+     * Evaluate every position of the game once. A move is a blunder when the
+     * mover's evaluation drops by the threshold between the positions before and after it.
+     */
+    private void countBlunders(PgnGame game, Bitboard board, WorkerState state, CorpusStats stats) {
+        int plies = game.getMoveCount();
+        for (int i = 0; i < plies; i++) {
+            board.unmake();
+        }
+        SearchLimits limits = SearchLimits.depth(depth);
+        int before = evaluate(state, board, limits);
+        for (int i = 0; i < plies; i++) {
+            boolean white = board.sideToMove() == Bitboard.WHITE;
+            board.make(game.getMove(i));
+            int after = -evaluate(state, board, limits);
+            if (before - after >= blunderCentipawns) {
+                stats.addBlunder(white);
+            }
+            before = -after;
+        }
+        stats.addEvaluated(plies + 1);
+    }
+    
+    /**
+     * Score for the side to move, scoring mate and stalemate directly since the
+     * search has no move to return there
+     */
+    private static int evaluate(WorkerState state, Bitboard board, SearchLimits limits) {
+        if (MoveGenerator.generateLegal(board, state.moves, 0) == 0) {
+            return MoveGenerator.isInCheck(board) ? -SCORE_CAP : 0;
+        }
+        int score = state.search.search(board, limits).getScore();
+        return Math.max(-SCORE_CAP, Math.min(SCORE_CAP, score));
+    }
+    
+    private static boolean isCorpusFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".pgn") || name.endsWith(".fen") || name.endsWith(".epd");
+    }
+    
+    /**
+     * Buffers each pool thread reuses from game to game
+     */
+    private static final class WorkerState {
+        final int[] moves = new int[MoveGenerator.MAX_MOVES];
+        final Search search;
+        
+        WorkerState(Engine engine) {
+            search = engine == null ? null : engine.createSearch();
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            usage();
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = 0;
+        int blunder = DEFAULT_BLUNDER_CENTIPAWNS;
+        int hash = Engine.DEFAULT_HASH_MB;
+        for (int i = 1; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                System.err.println("Missing value for " + args[i]);
+                usage();
+            }
+            int value;
+            try {
+                value = Integer.parseInt(args[i + 1]);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid value for " + args[i] + ": " + args[i + 1]);
+                usage();
+                return;
+            }
+            switch (args[i]) {
+                case "--threads":
+                    threads = value;
+                    break;
+                case "--depth":
+                    depth = value;
+                    break;
+                case "--blunder":
+                    blunder = value;
+                    break;
+                case "--hash":
+                    hash = value;
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    usage();
+            }
+        }
+        
+        CorpusAnalyzer analyzer = new CorpusAnalyzer(threads, depth, blunder, hash);
+        try {
+            System.out.print(analyzer.analyze(Paths.get(args[0])).report());
+            System.out.println();
+        } finally {
+            analyzer.shutdown();
+        }
+    }
+    
+    private static void usage() {
+        System.err.println("Usage: CorpusAnalyzer <directory> [--threads n] [--depth d] [--blunder cp] [--hash mb]");
+        System.exit(1);
+    }
+}
@@ -0,0 +1,62 @@
+package com.chess;
+
+import com.chess.tablebase.TablebaseGenerator;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generates endgame tablebases into a directory, with every table they depend on.
+ *
+ * Usage: GenerateTablebases &lt;directory&gt; [signature ...] [--threads n]
+ * Without signatures all three-piece endgames are generated.
+ */
+public class GenerateTablebases {
+    private static final List<String> THREE_PIECES = Arrays.asList("KQK", "KRK", "KBK", "KNK", "KPK");
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            usage();
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> signatures = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                if (i + 1 == args.length) {
+                    System.err.println("Missing value for --threads");
+                    usage();
+                }
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid value for --threads: " + args[i]);
+                    usage();
+                }
+            } else if (args[i].startsWith("--")) {
+                System.err.println("Unknown option " + args[i]);
+                usage();
+            } else {
+                signatures.add(args[i].toUpperCase());
+            }
+        }
+        if (signatures.isEmpty()) {
+            signatures = THREE_PIECES;
+        }
+        
+        TablebaseGenerator generator = new TablebaseGenerator(Paths.get(args[0]), threads, System.out::println);
+        try {
+            for (String signature : signatures) {
+                generator.generate(signature);
+            }
+        } finally {
+            generator.shutdown();
+        }
+    }
+    
+    private static void usage() {
+        System.err.println("Usage: GenerateTablebases <directory> [signature ...] [--threads n]");
+        System.exit(1);
+    }
+}
@@ -0,0 +1,139 @@
+package com.chess;
+
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+import java.util.Arrays;
+
+/**
+ * Perft driver: counts the leaf nodes of the legal move tree to a fixed depth.
+ * Comparing the counts against published values verifies move generation,
+ * and the nodes/second figure tracks its speed.
+ *
+ * Usage: Perft &lt;depth&gt; [fen]   prints divide output for one position
+ *        Perft --suite [depth]     runs the reference positions
+ */
+public class Perft {
+    private static final int MAX_DEPTH = 32;
+    
+    /**
+     * Standard reference positions with their node counts for depths 1, 2, 3, ...
+     */
+    public static final Object[][] REFERENCE_POSITIONS = {
+        {"Initial position", Fen.START_POSITION,
+            new long[] {20, 400, 8902, 197281, 4865609, 119060324}},
+        {"Kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            new long[] {48, 2039, 97862, 4085603, 193690690}},
+        {"Position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            new long[] {14, 191, 2812, 43238, 674624, 11030083}},
+        {"Position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            new long[] {6, 264, 9467, 422333, 15833292}},
+        {"Position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            new long[] {44, 1486, 62379, 2103487, 89941194}},
+        {"Position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            new long[] {46, 2079, 89890, 3894594, 164075551}}
+    };
+    
+    private final Bitboard board;
+    private final int[][] moves = new int[MAX_DEPTH][MoveGenerator.MAX_MOVES];
+    
+    public Perft(Bitboard board) {
+        this.board = board;
+    }
+    
+    /**
+     * Count leaf nodes to the given depth without allocating
+     */
+    public long perft(int depth) {
+        return perft(depth, 0);
+    }
+    
+    private long perft(int depth, int ply) {
+        int[] list = moves[ply];
+        int count = MoveGenerator.generateLegal(board, list, 0);
+        if (depth <= 1) {
+            return depth == 1 ? count : 1;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            board.make(list[i]);
+            nodes += perft(depth - 1, ply + 1);
+            board.unmake();
+        }
+        return nodes;
+    }
+    
+    /**
+     * Print the node count below each root move, then the total and speed
+     */
+    public long divide(int depth) {
+        long start = System.nanoTime();
+        int[] list = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, list, 0);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            board.make(list[i]);
+            long nodes = perft(depth - 1, 1);
+            board.unmake();
+            System.out.println(Move.toCoordinate(list[i]) + ": " + nodes);
+            total += nodes;
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println();
+        System.out.println("Moves: " + count);
+        System.out.println("Nodes: " + total);
+        printSpeed(total, elapsed);
+        return total;
+    }
+    
+    private static void printSpeed(long nodes, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("Time: %.3f s, %.0f nodes/s%n", seconds, nodes / Math.max(seconds, 1e-9));
+    }
+    
+    /**
+     * Run every reference position up to the given depth, returning false on any mismatch
+     */
+    public static boolean runSuite(int maxDepth) {
+        boolean passed = true;
+        long totalNodes = 0;
+        long start = System.nanoTime();
+        for (Object[] reference : REFERENCE_POSITIONS) {
+            long[] expected = (long[]) reference[2];
+            Bitboard board = new Bitboard();
+            Fen.load(board, (String) reference[1]);
+            Perft perft = new Perft(board);
+            for (int depth = 1; depth <= Math.min(maxDepth, expected.length); depth++) {
+                long nodes = perft.perft(depth);
+                totalNodes += nodes;
+                boolean ok = nodes == expected[depth - 1];
+                passed &= ok;
+                System.out.println(reference[0] + " depth " + depth + ": " + nodes
+                        + (ok ? " PASS" : " FAIL (expected " + expected[depth - 1] + ")"));
+            }
+        }
+        printSpeed(totalNodes, System.nanoTime() - start);
+        return passed;
+    }
+    
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: Perft <depth> [fen] | Perft --suite [depth]");
+            return;
+        }
+        if (args[0].equals("--suite")) {
+            int depth = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+            System.exit(runSuite(depth) ? 0 : 1);
+        }
+        
+        int depth = Integer.parseInt(args[0]);
+        String fen = Fen.START_POSITION;
+        if (args.length > 1) {
+            fen = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
+        }
+        Bitboard board = new Bitboard();
+        Fen.load(board, fen);
+        new Perft(board).divide(Math.max(1, Math.min(depth, MAX_DEPTH)));
+    }
+}
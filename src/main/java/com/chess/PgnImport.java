@@ -0,0 +1,34 @@
+package com.chess;
+
+import com.chess.pgn.PgnReader;
+import com.chess.pgn.PgnStats;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk PGN import: replays every game of an archive with the board rules and
+ * reports throughput and the games that could not be replayed.
+ *
+ * Usage: PgnImport &lt;file.pgn&gt; [threads]
+ */
+public class PgnImport {
+    private static final int MAX_REPORTED_ERRORS = 20;
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage: PgnImport <file.pgn> [threads]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        
+        AtomicInteger reported = new AtomicInteger();
+        PgnStats stats = new PgnReader(file, threads, PgnReader.DEFAULT_BATCH_GAMES).read(game -> {
+            if (!game.isValid() && reported.incrementAndGet() <= MAX_REPORTED_ERRORS) {
+                System.out.println("Game at byte " + game.getOffset() + ": " + game.getError());
+            }
+        });
+        System.out.println(stats);
+    }
+}
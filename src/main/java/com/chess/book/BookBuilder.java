@@ -0,0 +1,221 @@
+package com.chess.book;
+
+import com.chess.model.Bitboard;
+import com.chess.pgn.PgnGame;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects (position, move) statistics from replayed games and writes them as
+ * an OpeningBook file.
+ *
+ * Each move of the first plies of a game scores 2 for the mover on a win, 1 on
+ * a draw or unknown result and 0 on a loss; an entry's weight is the sum over
+ * all games. Games are added from the PGN reader's worker threads into a table
+ * per thread, so adding needs no locking; the tables are merged when the book
+ * is written.
+ */
+public final class BookBuilder {
+    public static final int DEFAULT_MAX_PLIES = 24;
+    public static final int DEFAULT_MIN_GAMES = 2;
+    
+    private final int maxPlies;
+    private final int minGames;
+    private final Queue<EntryTable> tables = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<EntryTable> localTables = ThreadLocal.withInitial(() -> {
+        EntryTable table = new EntryTable();
+        tables.add(table);
+        return table;
+    });
+    
+    /**
+     * Create a builder keeping moves from the first maxPlies plies of each game
+     * that were played in at least minGames games
+     */
+    public BookBuilder(int maxPlies, int minGames) {
+        this.maxPlies = maxPlies;
+        this.minGames = Math.max(1, minGames);
+    }
+    
+    /**
+     * Add the opening moves of a replayed game; invalid games and positions are
+     * ignored. The game's board is played back to its start and forward again.
+     */
+    public void add(PgnGame game) {
+        if (!game.isValid() || game.isPosition()) {
+            return;
+        }
+        Bitboard board = game.getBoard();
+        int plies = game.getMoveCount();
+        for (int i = 0; i < plies; i++) {
+            board.unmake();
+        }
+        String result = game.getResult();
+        int whitePoints = result.equals("1-0") ? 2 : result.equals("0-1") ? 0 : 1;
+        for (int i = 0; i < plies; i++) {
+            int move = game.getMove(i);
+            if (i < maxPlies) {
+                int points = board.sideToMove() == Bitboard.WHITE ? whitePoints : 2 - whitePoints;
+                add(board.hash(), move, points);
+            }
+            board.make(move);
+        }
+    }
+    
+    /**
+     * Count one game in which the move was played from the position with this key
+     */
+    public void add(long key, int move, int points) {
+        localTables.get().add(key, move, 1, points);
+    }
+    
+    /**
+     * Merge the collected moves, drop those played too rarely or never scoring,
+     * and write the sorted book. Returns the number of entries written.
+     */
+    public int write(Path file) throws IOException {
+        EntryTable merged = new EntryTable();
+        for (EntryTable table : tables) {
+            table.addTo(merged);
+        }
+        
+        int count = 0;
+        long[] keys = new long[merged.size];
+        int[] moves = new int[merged.size];
+        int[] weights = new int[merged.size];
+        for (int i = 0; i < merged.moves.length; i++) {
+            long value = merged.values[i];
+            int weight = (int) Math.min(Integer.MAX_VALUE, value & 0xFFFFFFFFL);
+            if (merged.moves[i] != 0 && (value >>> 32) >= minGames && weight > 0) {
+                keys[count] = merged.keys[i];
+                moves[count] = merged.moves[i];
+                weights[count] = weight;
+                count++;
+            }
+        }
+        sort(keys, moves, weights, 0, count - 1);
+        
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.putLong(OpeningBook.MAGIC).putLong(OpeningBook.startKey());
+            for (int i = 0; i < count; i++) {
+                if (buffer.remaining() < OpeningBook.ENTRY_BYTES) {
+                    drain(channel, buffer);
+                }
+                buffer.putLong(keys[i]).putInt(moves[i]).putInt(weights[i]);
+            }
+            drain(channel, buffer);
+        }
+        return count;
+    }
+    
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * Quicksort of the entry arrays by key, heaviest move first within a key
+     */
+    private static void sort(long[] keys, int[] moves, int[] weights, int low, int high) {
+        while (low < high) {
+            if (high - low < 16) {
+                for (int i = low + 1; i <= high; i++) {
+                    for (int j = i; j > low && before(keys, weights, j, j - 1); j--) {
+                        swap(keys, moves, weights, j, j - 1);
+                    }
+                }
+                return;
+            }
+            swap(keys, moves, weights, (low + high) >>> 1, high);
+            int store = low;
+            for (int i = low; i < high; i++) {
+                if (before(keys, weights, i, high)) {
+                    swap(keys, moves, weights, i, store++);
+                }
+            }
+            swap(keys, moves, weights, store, high);
+            // Recurse into the smaller side so the stack stays logarithmic
+            if (store - low < high - store) {
+                sort(keys, moves, weights, low, store - 1);
+                low = store + 1;
+            } else {
+                sort(keys, moves, weights, store + 1, high);
+                high = store - 1;
+            }
+        }
+    }
+    
+    private static boolean before(long[] keys, int[] weights, int a, int b) {
+        return keys[a] < keys[b] || keys[a] == keys[b] && weights[a] > weights[b];
+    }
+    
+    private static void swap(long[] keys, int[] moves, int[] weights, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int move = moves[a];
+        moves[a] = moves[b];
+        moves[b] = move;
+        int weight = weights[a];
+        weights[a] = weights[b];
+        weights[b] = weight;
+    }
+    
+    /**
+     * Open-addressing map from (key, move) to games played in the high half and
+     * points scored in the low half of a long. A move of 0 marks an empty slot.
+     */
+    private static final class EntryTable {
+        long[] keys = new long[1024];
+        int[] moves = new int[1024];
+        long[] values = new long[1024];
+        int size;
+        
+        void add(long key, int move, long games, long points) {
+            if (size * 2 >= moves.length) {
+                grow();
+            }
+            int mask = moves.length - 1;
+            long hash = key ^ move * 0x9E3779B97F4A7C15L;
+            int slot = (int) (hash ^ hash >>> 32) & mask;
+            while (moves[slot] != 0 && (keys[slot] != key || moves[slot] != move)) {
+                slot = (slot + 1) & mask;
+            }
+            if (moves[slot] == 0) {
+                keys[slot] = key;
+                moves[slot] = move;
+                size++;
+            }
+            values[slot] += games << 32 | points;
+        }
+        
+        void addTo(EntryTable other) {
+            for (int i = 0; i < moves.length; i++) {
+                if (moves[i] != 0) {
+                    other.add(keys[i], moves[i], values[i] >>> 32, values[i] & 0xFFFFFFFFL);
+                }
+            }
+        }
+        
+        private void grow() {
+            EntryTable larger = new EntryTable();
+            larger.keys = new long[keys.length * 2];
+            larger.moves = new int[moves.length * 2];
+            larger.values = new long[values.length * 2];
+            addTo(larger);
+            keys = larger.keys;
+            moves = larger.moves;
+            values = larger.values;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.chess.book;
+
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Read-only opening book mapped into memory.
+ *
+ * The file is a 16-byte header (magic, Zobrist key of the start position)
+ * followed by 16-byte entries of (Zobrist key, move, weight), sorted by key and
+ * then by falling weight. A lookup is a binary search over the mapping with
+ * absolute reads, so nothing is copied onto the heap whatever the book size,
+ * the operating system pages in only the parts that are used, and any number
+ * of threads can probe at once.
+ */
+public final class OpeningBook {
+    /** "CHESSBK1" */
+    static final long MAGIC = 0x4348455353424B31L;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 16;
+    
+    /** Entries per mapping, keeping each one under the 2 GB limit of a buffer */
+    private static final int SEGMENT_SHIFT = 26;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+    
+    private final MappedByteBuffer[] segments;
+    private final int size;
+    
+    private OpeningBook(MappedByteBuffer[] segments, int size) {
+        this.segments = segments;
+        this.size = size;
+    }
+    
+    /**
+     * Map a book file written by BookBuilder
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long bytes = channel.size();
+            if (bytes < HEADER_BYTES || (bytes - HEADER_BYTES) % ENTRY_BYTES != 0) {
+                throw new IOException("Invalid opening book (size " + bytes + "): " + file);
+            }
+            long entries = (bytes - HEADER_BYTES) / ENTRY_BYTES;
+            if (entries > Integer.MAX_VALUE) {
+                throw new IOException("Opening book too large: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getLong(0) != MAGIC) {
+                throw new IOException("Invalid opening book (magic): " + file);
+            }
+            if (header.getLong(8) != startKey()) {
+                throw new IOException("Opening book was built with different Zobrist keys: " + file);
+            }
+            
+            int size = (int) entries;
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((entries + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                long count = Math.min(entries - first, 1L << SEGMENT_SHIFT);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + first * ENTRY_BYTES, count * ENTRY_BYTES);
+                segments[i].order(ByteOrder.BIG_ENDIAN);
+            }
+            return new OpeningBook(segments, size);
+        }
+    }
+    
+    /**
+     * Zobrist key of the start position, stored in the header so a book built
+     * with other keys is rejected instead of returning moves for wrong positions
+     */
+    static long startKey() {
+        Bitboard board = new Bitboard();
+        Fen.load(board, Fen.START_POSITION);
+        return board.hash();
+    }
+    
+    /**
+     * Number of (position, move) entries
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Copy the moves and weights stored for a position into the arrays, heaviest
+     * first, returning how many were found. The moves are not checked for legality.
+     */
+    public int probe(long key, int[] moves, int[] weights) {
+        int found = 0;
+        for (int i = firstIndex(key); i < size && keyAt(i) == key && found < moves.length; i++) {
+            moves[found] = moveAt(i);
+            weights[found] = weightAt(i);
+            found++;
+        }
+        return found;
+    }
+    
+    /**
+     * Choose a legal book move for the position with probability proportional to
+     * its weight, or Move.NONE when the position is not in the book. The legal
+     * buffer is scratch space of at least MoveGenerator.MAX_MOVES ints, so
+     * nothing is allocated.
+     */
+    public int pick(Bitboard board, Random random, int[] legal) {
+        int legalCount = MoveGenerator.generateLegal(board, legal, 0);
+        long key = board.hash();
+        int first = firstIndex(key);
+        long total = 0;
+        for (int i = first; i < size && keyAt(i) == key; i++) {
+            if (contains(legal, legalCount, moveAt(i))) {
+                total += weightAt(i);
+            }
+        }
+        if (total == 0) {
+            return Move.NONE;
+        }
+        long roll = (long) (random.nextDouble() * total);
+        for (int i = first; i < size && keyAt(i) == key; i++) {
+            int move = moveAt(i);
+            if (contains(legal, legalCount, move)) {
+                roll -= weightAt(i);
+                if (roll < 0) {
+                    return move;
+                }
+            }
+        }
+        return Move.NONE;
+    }
+    
+    /**
+     * Index of the first entry whose key is not below the given one
+     */
+    private int firstIndex(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keyAt(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    private long keyAt(int index) {
+        return segments[index >>> SEGMENT_SHIFT].getLong((index & SEGMENT_MASK) * ENTRY_BYTES);
+    }
+    
+    private int moveAt(int index) {
+        return segments[index >>> SEGMENT_SHIFT].getInt((index & SEGMENT_MASK) * ENTRY_BYTES + 8);
+    }
+    
+    private int weightAt(int index) {
+        return segments[index >>> SEGMENT_SHIFT].getInt((index & SEGMENT_MASK) * ENTRY_BYTES + 12);
+    }
+    
+    private static boolean contains(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
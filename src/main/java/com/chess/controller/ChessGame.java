@@ -1,15 +1,34 @@
 package com.chess.controller;
 
+import com.chess.book.OpeningBook;
+import com.chess.engine.Engine;
+import com.chess.engine.Search;
+import com.chess.engine.SearchLimits;
+import com.chess.engine.SearchResult;
 import com.chess.model.*;
+import com.chess.tablebase.Tablebases;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
  * Chess game controller implementing game logic and state management
  */
 public class ChessGame {
+    /** Rough heap of a live game: the board's undo stacks dominate */
+    private static final int LIVE_BYTES = 20_000;
+    /** Rough heap of one history entry: Move, Positions, SAN string and captured piece */
+    private static final int MOVE_BYTES = 160;
+    private static final byte COMPACT_FORMAT = 1;
+    
     private ChessBoard board;
+    /** Starting position when it is not the standard one */
+    private String startFen;
     private GameState gameState;
     private Map<String, Object> gameInfo;
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+    private Tablebases tablebases;
     
     public enum GameState {
         ACTIVE, WHITE_WIN, BLACK_WIN, DRAW, STALEMATE
@@ -22,21 +41,48 @@ public class ChessGame {
         initializeGameInfo();
     }
     
+    /**
+     * Start a game from the position described by a FEN string.
+     * Throws IllegalArgumentException if the FEN is malformed or the position impossible.
+     */
+    public ChessGame(String fen) {
+        this.board = new ChessBoard(fen);
+        this.startFen = board.toFen();
+        this.gameState = GameState.ACTIVE;
+        this.gameInfo = new HashMap<>();
+        initializeGameInfo();
+        checkGameState();
+    }
+    
     private void initializeGameInfo() {
         gameInfo.put("currentPlayer", board.getCurrentPlayer().toString());
         gameInfo.put("gameState", gameState.toString());
         gameInfo.put("moveCount", 0);
         gameInfo.put("lastMove", null);
+        gameInfo.put("inCheck", false);
     }
     
     /**
      * Attempt to make a move
      */
     public boolean makeMove(String fromPos, String toPos) {
+        return makeMove(fromPos, toPos, null);
+    }
+    
+    /**
+     * Attempt to make a move, promoting a pawn to the given piece symbol (Q, R, B or N)
+     */
+    public boolean makeMove(String fromPos, String toPos, String promotion) {
+        if (gameState != GameState.ACTIVE) {
+            return false;
+        }
         try {
             Position from = new Position(fromPos);
             Position to = new Position(toPos);
             Move move = new Move(from, to);
+            if (promotion != null && !promotion.isEmpty()) {
+                move.setPromotionPiece(parsePromotion(promotion));
+            }
             
             if (board.makeMove(move)) {
                 updateGameInfo(move);
@@ -49,12 +95,53 @@ public class ChessGame {
         return false;
     }
     
+    /**
+     * Attempt a move given in standard algebraic notation, such as Nf3, exd5 or O-O
+     */
+    public boolean makeMove(String san) {
+        if (gameState != GameState.ACTIVE || san == null) {
+            return false;
+        }
+        if (!board.makeMove(san.trim())) {
+            return false;
+        }
+        List<Move> history = board.getMoveHistory();
+        updateGameInfo(history.get(history.size() - 1));
+        checkGameState();
+        return true;
+    }
+    
+    private static PieceType parsePromotion(String symbol) {
+        for (PieceType type : new PieceType[] {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT}) {
+            if (type.getSymbol().equalsIgnoreCase(symbol)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Invalid promotion piece");
+    }
+    
+    /**
+     * Take back the last move
+     */
+    public boolean undoMove() {
+        if (board.undoMove() == null) {
+            return false;
+        }
+        List<Move> history = board.getMoveHistory();
+        gameState = GameState.ACTIVE;
+        gameInfo.put("currentPlayer", board.getCurrentPlayer().toString());
+        gameInfo.put("lastMove", history.isEmpty() ? null : history.get(history.size() - 1).getSan());
+        gameInfo.put("moveCount", history.size());
+        checkGameState();
+        return true;
+    }
+    
     /**
      * Update game information after a move
      */
     private void updateGameInfo(Move move) {
         gameInfo.put("currentPlayer", board.getCurrentPlayer().toString());
-        gameInfo.put("lastMove", move.toString());
+        gameInfo.put("lastMove", move.getSan());
         gameInfo.put("moveCount", (Integer) gameInfo.get("moveCount") + 1);
     }
     
@@ -62,11 +149,54 @@ public class ChessGame {
      * Check current game state (win/draw conditions)
      */
     private void checkGameState() {
-        // Simplified game state checking
-        // In a full implementation, would check for checkmate, stalemate, etc.
+        boolean inCheck = board.isInCheck();
+        if (board.generateMoves(moveBuffer) == 0) {
+            if (inCheck) {
+                gameState = board.getCurrentPlayer() == PieceColor.WHITE
+                        ? GameState.BLACK_WIN : GameState.WHITE_WIN;
+            } else {
+                gameState = GameState.STALEMATE;
+            }
+        }
+        checkTablebase();
+        gameInfo.put("inCheck", inCheck);
         gameInfo.put("gameState", gameState.toString());
     }
     
+    /**
+     * Report the tablebase verdict for endgames the tables cover, and draw the
+     * game when its material cannot win at all, as in KBK or KNK
+     */
+    private void checkTablebase() {
+        gameInfo.remove("tablebase");
+        if (tablebases == null || gameState != GameState.ACTIVE) {
+            return;
+        }
+        Bitboard position = board.getBitboard();
+        int score = tablebases.probe(position);
+        if (score == Tablebases.UNKNOWN) {
+            return;
+        }
+        if (score == 0) {
+            gameInfo.put("tablebase", "Draw");
+            if (tablebases.longestMate(position) == 0) {
+                gameState = GameState.DRAW;
+            }
+        } else {
+            PieceColor winner = score > 0 ? board.getCurrentPlayer() : board.getCurrentPlayer().opposite();
+            int plies = Search.MATE - Math.abs(score);
+            gameInfo.put("tablebase", winner + " mates in " + (plies + 1) / 2);
+        }
+    }
+    
+    /**
+     * Use endgame tablebases for the game's verdict, or none when null
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+        checkGameState();
+    }
+    
     /**
      * Get current board state
      */
@@ -87,18 +217,15 @@ public class ChessGame {
     public List<String> getValidMoves(String position) {
         List<String> validMoves = new ArrayList<>();
         try {
-            Position pos = new Position(position);
-            ChessPiece piece = board.getPieceAt(pos);
+            int from = new Position(position).getSquare();
+            int count = board.generateMoves(moveBuffer);
             
-            if (piece != null && piece.getColor() == board.getCurrentPlayer()) {
-                // Check all possible moves on the board
-                for (int row = 0; row < 8; row++) {
-                    for (int col = 0; col < 8; col++) {
-                        Position target = new Position(row, col);
-                        if (piece.isValidMove(target, board)) {
-                            validMoves.add(target.toAlgebraic());
-                        }
-                    }
+            for (int i = 0; i < count; i++) {
+                int move = moveBuffer[i];
+                // List each promotion square once rather than once per promotion piece
+                if (Move.fromOf(move) == from
+                        && (!Move.isPromotion(move) || Move.promotionOf(move) == Bitboard.QUEEN)) {
+                    validMoves.add(Position.fromSquare(Move.toOf(move)).toAlgebraic());
                 }
             }
         } catch (IllegalArgumentException e) {
@@ -107,13 +234,99 @@ public class ChessGame {
         return validMoves;
     }
     
+    /**
+     * Get the target squares where the piece at a position would capture
+     * but lose material in the exchange that follows
+     */
+    public List<String> getLosingCaptures(String position) {
+        List<String> losingCaptures = new ArrayList<>();
+        try {
+            int from = new Position(position).getSquare();
+            int count = board.generateMoves(moveBuffer);
+            
+            for (int i = 0; i < count; i++) {
+                int move = moveBuffer[i];
+                if (Move.fromOf(move) == from && Move.isCapture(move) && !Move.isPromotion(move)
+                        && board.see(move) < 0) {
+                    losingCaptures.add(Position.fromSquare(Move.toOf(move)).toAlgebraic());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Invalid position
+        }
+        return losingCaptures;
+    }
+    
+    /**
+     * Get the current position in Forsyth-Edwards Notation
+     */
+    public String getFen() {
+        return board.toFen();
+    }
+    
+    /**
+     * Standard algebraic notation for a line of moves from the current position, such as a principal variation
+     */
+    public List<String> toSan(int[] line) {
+        return San.toSan(board.getBitboard(), line);
+    }
+    
+    /**
+     * Copy of the current position with its history, which can be searched
+     * while the game goes on
+     */
+    public Bitboard copyPosition() {
+        return new Bitboard(board.getBitboard());
+    }
+    
+    /**
+     * Search the current position for the best move without changing the game
+     */
+    public SearchResult findBestMove(Engine engine, SearchLimits limits) {
+        return engine.search(board.getBitboard(), limits);
+    }
+    
+    /**
+     * Legal book moves for the current position, heaviest first, each with its
+     * coordinate and SAN form, weight and share of the total weight
+     */
+    public List<Map<String, Object>> getBookMoves(OpeningBook book) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] weights = new int[MoveGenerator.MAX_MOVES];
+        int found = book.probe(board.getBitboard().hash(), moves, weights);
+        int count = board.generateMoves(moveBuffer);
+        
+        List<Map<String, Object>> bookMoves = new ArrayList<>();
+        long total = 0;
+        for (int i = 0; i < found; i++) {
+            for (int j = 0; j < count; j++) {
+                if (moveBuffer[j] == moves[i]) {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("move", Move.toCoordinate(moves[i]));
+                    entry.put("san", San.toSan(board.getBitboard(), moves[i]));
+                    entry.put("weight", weights[i]);
+                    bookMoves.add(entry);
+                    total += weights[i];
+                    break;
+                }
+            }
+        }
+        for (Map<String, Object> entry : bookMoves) {
+            entry.put("share", (Integer) entry.get("weight") / (double) total);
+        }
+        return bookMoves;
+    }
+    
     /**
      * Reset the game
      */
     public void resetGame() {
         this.board = new ChessBoard();
+        this.startFen = null;
         this.gameState = GameState.ACTIVE;
         initializeGameInfo();
+        // Replaces the verdict of the position the game was reset from
+        checkGameState();
     }
     
     /**
@@ -122,4 +335,57 @@ public class ChessGame {
     public List<Move> getMoveHistory() {
         return board.getMoveHistory();
     }
+    
+    /**
+     * Encode the game as its starting position and two bytes per move, a few
+     * hundred bytes against tens of KB for the live object graph
+     */
+    public byte[] toCompact() {
+        byte[] fen = startFen == null ? new byte[0] : startFen.getBytes(StandardCharsets.US_ASCII);
+        List<Move> history = board.getMoveHistory();
+        ByteBuffer buffer = ByteBuffer.allocate(5 + fen.length + 2 * history.size());
+        buffer.put(COMPACT_FORMAT).putShort((short) fen.length).put(fen).putShort((short) history.size());
+        for (Move move : history) {
+            // From, to and flags take 16 bits
+            buffer.putShort((short) move.getCode());
+        }
+        return buffer.array();
+    }
+    
+    /**
+     * Rebuild a game from toCompact by replaying its moves.
+     * Throws IllegalArgumentException if the data is not a valid encoded game.
+     */
+    public static ChessGame fromCompact(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            if (buffer.get() != COMPACT_FORMAT) {
+                throw new IllegalArgumentException("Unknown compact game format");
+            }
+            byte[] fen = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(fen);
+            ChessGame game = fen.length == 0 ? new ChessGame() : new ChessGame(new String(fen, StandardCharsets.US_ASCII));
+            int plies = buffer.getShort() & 0xFFFF;
+            for (int i = 0; i < plies; i++) {
+                if (!game.board.makeMove(buffer.getShort() & 0xFFFF)) {
+                    throw new IllegalArgumentException("Illegal move in compact game at ply " + (i + 1));
+                }
+            }
+            List<Move> history = game.board.getMoveHistory();
+            game.gameInfo.put("currentPlayer", game.board.getCurrentPlayer().toString());
+            game.gameInfo.put("lastMove", history.isEmpty() ? null : history.get(history.size() - 1).getSan());
+            game.gameInfo.put("moveCount", history.size());
+            game.checkGameState();
+            return game;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated compact game");
+        }
+    }
+    
+    /**
+     * Approximate heap held by the live game
+     */
+    public long estimatedBytes() {
+        return LIVE_BYTES + (long) MOVE_BYTES * (Integer) gameInfo.get("moveCount");
+    }
 }
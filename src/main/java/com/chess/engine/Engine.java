@@ -0,0 +1,194 @@
+package com.chess.engine;
+
+import com.chess.book.OpeningBook;
+import com.chess.model.Bitboard;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+import com.chess.tablebase.Tablebases;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Node-wide engine: owns the transposition table shared by every game, so
+ * positions analysed for one player are already known when another reaches them.
+ *
+ * Searches run Lazy SMP: the calling thread is the master and helper threads
+ * search the same position at staggered depths, communicating only through the
+ * shared table. Helpers are drawn from a node-wide budget, so a request asking
+ * for more threads than are free runs with fewer.
+ *
+ * With an opening book set, positions found in it are answered with a book move
+ * instead of a search; with tablebases set, so are the endgames they cover, and
+ * searches score such endgames below the root from the tables.
+ */
+public class Engine {
+    public static final int DEFAULT_HASH_MB = 64;
+    
+    private final TranspositionTable table;
+    private final Evaluator evaluator;
+    private final int maxThreads;
+    private final Semaphore helperPermits;
+    private final ExecutorService helperPool;
+    private volatile OpeningBook book;
+    private volatile Tablebases tablebases;
+    
+    public Engine(int hashMegabytes) {
+        this(hashMegabytes, Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Create an engine whose searches use at most maxThreads threads each,
+     * with at most maxThreads - 1 helper threads busy across all searches
+     */
+    public Engine(int hashMegabytes, int maxThreads) {
+        this(hashMegabytes, maxThreads, new Semaphore(Math.max(1, maxThreads) - 1));
+    }
+    
+    /**
+     * Create an engine whose helper threads take their permits from a budget
+     * shared with other work, such as SearchPool.getThreadBudget, so searches
+     * and their helpers together never use more threads than it holds
+     */
+    public Engine(int hashMegabytes, int maxThreads, Semaphore helperPermits) {
+        this.table = new TranspositionTable(hashMegabytes);
+        this.evaluator = new Evaluator(new PawnTable(PawnTable.DEFAULT_ENTRIES));
+        this.maxThreads = Math.max(1, maxThreads);
+        this.helperPermits = helperPermits;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.helperPool = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "engine-helper-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Search a position within the given limits. Safe to call from many request threads at once.
+     */
+    public SearchResult search(Bitboard position, SearchLimits limits) {
+        OpeningBook openingBook = book;
+        Tablebases endgames = tablebases;
+        // Scratch space shared by the book and tablebase probes
+        int[] moves = openingBook != null || endgames != null ? new int[MoveGenerator.MAX_MOVES] : null;
+        if (openingBook != null) {
+            long start = System.nanoTime();
+            int move = openingBook.pick(position, ThreadLocalRandom.current(), moves);
+            if (move != Move.NONE) {
+                return SearchResult.bookMove(move, (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        if (endgames != null) {
+            long start = System.nanoTime();
+            Bitboard board = new Bitboard(position);
+            int move = endgames.bestMove(board, moves);
+            if (move != Move.NONE) {
+                return SearchResult.tablebaseMove(move, endgames.probe(board), (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        int wanted = Math.min(limits.getThreads(), maxThreads) - 1;
+        int helpers = 0;
+        while (helpers < wanted && helperPermits.tryAcquire()) {
+            helpers++;
+        }
+        try {
+            // One generation per engine search, however many threads it uses
+            table.newSearch();
+            Search master = createSearch();
+            if (helpers == 0) {
+                return master.search(position, limits);
+            }
+            return searchParallel(master, position, limits, helpers);
+        } finally {
+            helperPermits.release(helpers);
+        }
+    }
+    
+    private SearchResult searchParallel(Search master, Bitboard position, SearchLimits limits, int helpers) {
+        // Helpers keep deepening until the master stops them; the hard limit is a safety net
+        SearchLimits helperLimits = new SearchLimits(SearchLimits.MAX_DEPTH, Long.MAX_VALUE, limits.getHardMillis());
+        Search[] searches = new Search[helpers];
+        Future<?>[] futures = new Future<?>[helpers];
+        for (int i = 0; i < helpers; i++) {
+            Search helper = createSearch();
+            int firstDepth = 1 + ((i + 1) & 1);
+            searches[i] = helper;
+            futures[i] = helperPool.submit(() -> helper.iterate(position, helperLimits, firstDepth));
+        }
+        
+        SearchResult result = master.iterate(position, limits, 1);
+        long nodes = result.getNodes();
+        for (int i = 0; i < helpers; i++) {
+            searches[i].stop();
+        }
+        for (int i = 0; i < helpers; i++) {
+            try {
+                futures[i].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Helper search failed", e.getCause());
+            }
+            nodes += searches[i].getNodes();
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(),
+                nodes, result.getMillis(), result.getPv());
+    }
+    
+    /**
+     * Single-threaded search sharing this engine's tables, for callers that run
+     * many short searches on threads of their own and want to reuse its buffers.
+     * Its searches do not start table generations, so they leave other searches' entries current.
+     */
+    public Search createSearch() {
+        Search search = new Search(evaluator, table);
+        search.shareTable();
+        search.setTablebases(tablebases);
+        return search;
+    }
+    
+    /**
+     * Answer book positions from this book, or search every position when null
+     */
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+    
+    public OpeningBook getBook() {
+        return book;
+    }
+    
+    /**
+     * Answer and score endgames from these tablebases, or search them when null
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+    
+    public Tablebases getTablebases() {
+        return tablebases;
+    }
+    
+    public TranspositionTable getTable() {
+        return table;
+    }
+    
+    public PawnTable getPawnTable() {
+        return evaluator.getPawnTable();
+    }
+    
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+    
+    /**
+     * Stop the helper threads when the application shuts down
+     */
+    public void shutdown() {
+        helperPool.shutdownNow();
+    }
+}
@@ -0,0 +1,68 @@
+package com.chess.engine;
+
+import com.chess.model.Bitboard;
+import com.chess.model.PieceSquareTables;
+
+/**
+ * Static position evaluation in centipawns from the side to move's point of view.
+ * Material and piece-square terms are kept up to date by the board on every move,
+ * so evaluating a leaf only adds the cached pawn structure and blends the midgame
+ * and endgame sums by game phase. An Evaluator holds no per-search state and may be
+ * shared by several threads.
+ */
+public class Evaluator {
+    /** Material values indexed by bitboard piece type, used for move ordering */
+    public static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+    
+    private final PawnTable pawnTable;
+    
+    public Evaluator() {
+        this(new PawnTable(PawnTable.DEFAULT_ENTRIES));
+    }
+    
+    public Evaluator(PawnTable pawnTable) {
+        this.pawnTable = pawnTable;
+    }
+    
+    /**
+     * Evaluate a position for the side to move
+     */
+    public int evaluate(Bitboard board) {
+        long pawns = pawnTable.probe(board);
+        return taper(board.midgameScore() + PawnStructure.midgame(pawns),
+                board.endgameScore() + PawnStructure.endgame(pawns), board.phase(), board.sideToMove());
+    }
+    
+    /**
+     * Evaluate by summing every piece again; gives the same result as evaluate()
+     */
+    public int evaluateFromScratch(Bitboard board) {
+        int midgame = 0;
+        int endgame = 0;
+        int phase = 0;
+        for (int piece = 0; piece < 12; piece++) {
+            long bits = board.pieces(piece);
+            while (bits != 0) {
+                int square = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                midgame += PieceSquareTables.midgame(piece, square);
+                endgame += PieceSquareTables.endgame(piece, square);
+                phase += PieceSquareTables.phase(piece);
+            }
+        }
+        long pawns = PawnStructure.evaluate(board);
+        midgame += PawnStructure.midgame(pawns);
+        endgame += PawnStructure.endgame(pawns);
+        return taper(midgame, endgame, phase, board.sideToMove());
+    }
+    
+    public PawnTable getPawnTable() {
+        return pawnTable;
+    }
+    
+    private static int taper(int midgame, int endgame, int phase, int sideToMove) {
+        int weight = Math.min(phase, PieceSquareTables.MAX_PHASE);
+        int score = (midgame * weight + endgame * (PieceSquareTables.MAX_PHASE - weight)) / PieceSquareTables.MAX_PHASE;
+        return sideToMove == Bitboard.WHITE ? score : -score;
+    }
+}
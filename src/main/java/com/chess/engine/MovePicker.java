@@ -0,0 +1,238 @@
+package com.chess.engine;
+
+import com.chess.model.Bitboard;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+
+/**
+ * Staged move ordering for one node of the search.
+ * Moves come out in the order hash move, winning and equal captures (most valuable
+ * victim, least valuable attacker), killer moves, quiet moves by history score and
+ * finally captures that static exchange evaluation shows to lose material. Each
+ * group is generated only when the previous ones are used up, so a cutoff on the
+ * hash move or a capture never generates quiet moves.
+ *
+ * Pickers are preallocated per ply and reused; they are not thread-safe.
+ */
+final class MovePicker {
+    private static final int STAGE_HASH = 0;
+    private static final int STAGE_GENERATE_CAPTURES = 1;
+    private static final int STAGE_GOOD_CAPTURES = 2;
+    private static final int STAGE_FIRST_KILLER = 3;
+    private static final int STAGE_SECOND_KILLER = 4;
+    private static final int STAGE_GENERATE_QUIETS = 5;
+    private static final int STAGE_QUIETS = 6;
+    private static final int STAGE_BAD_CAPTURES = 7;
+    private static final int STAGE_UNORDERED = 8;
+    private static final int STAGE_DONE = 9;
+    
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+    private final int[] badCaptures = new int[MoveGenerator.MAX_MOVES];
+    private final int[] seeGain = new int[Bitboard.SEE_BUFFER];
+    private final int[] pieceMoves = new int[32];
+    
+    private Bitboard board;
+    private int[][] history;
+    private int hashMove;
+    private int firstKiller;
+    private int secondKiller;
+    private boolean capturesOnly;
+    private int stage;
+    private int index;
+    private int count;
+    private int badCount;
+    private int badIndex;
+    
+    /**
+     * Prepare to pick moves for a node of the main search
+     */
+    void init(Bitboard board, int hashMove, int firstKiller, int secondKiller, int[][] history) {
+        this.board = board;
+        this.history = history;
+        this.hashMove = isLegal(hashMove) ? hashMove : Move.NONE;
+        this.firstKiller = firstKiller;
+        this.secondKiller = secondKiller;
+        this.capturesOnly = false;
+        this.stage = STAGE_HASH;
+        this.badCount = 0;
+        this.badIndex = 0;
+    }
+    
+    /**
+     * Prepare to pick only winning and equal captures and promotions, for quiescence search
+     */
+    void initQuiescence(Bitboard board) {
+        init(board, Move.NONE, Move.NONE, Move.NONE, null);
+        this.capturesOnly = true;
+        this.stage = STAGE_GENERATE_CAPTURES;
+    }
+    
+    /**
+     * Prepare to return every legal move in generation order, as a baseline for measuring ordering
+     */
+    void initUnordered(Bitboard board) {
+        this.board = board;
+        this.count = MoveGenerator.generateLegal(board, moves, 0);
+        this.index = 0;
+        this.stage = STAGE_UNORDERED;
+    }
+    
+    /**
+     * Next move to search, or Move.NONE when there are no more
+     */
+    int next() {
+        switch (stage) {
+            case STAGE_HASH:
+                stage = STAGE_GENERATE_CAPTURES;
+                if (hashMove != Move.NONE) {
+                    return hashMove;
+                }
+                // fall through
+            case STAGE_GENERATE_CAPTURES:
+                count = MoveGenerator.generateTactical(board, moves, 0);
+                index = 0;
+                for (int i = 0; i < count; i++) {
+                    scores[i] = captureScore(moves[i]);
+                }
+                stage = STAGE_GOOD_CAPTURES;
+                // fall through
+            case STAGE_GOOD_CAPTURES:
+                while (index < count) {
+                    int move = pickBest();
+                    if (move == hashMove) {
+                        continue;
+                    }
+                    if (isLosingCapture(move)) {
+                        // Quiescence prunes losing captures; the main search tries them last
+                        if (!capturesOnly) {
+                            badCaptures[badCount++] = move;
+                        }
+                        continue;
+                    }
+                    return move;
+                }
+                if (capturesOnly) {
+                    stage = STAGE_DONE;
+                    return Move.NONE;
+                }
+                stage = STAGE_FIRST_KILLER;
+                // fall through
+            case STAGE_FIRST_KILLER:
+                stage = STAGE_SECOND_KILLER;
+                if (firstKiller != hashMove && isQuietAndLegal(firstKiller)) {
+                    return firstKiller;
+                }
+                // fall through
+            case STAGE_SECOND_KILLER:
+                stage = STAGE_GENERATE_QUIETS;
+                if (secondKiller != hashMove && secondKiller != firstKiller && isQuietAndLegal(secondKiller)) {
+                    return secondKiller;
+                }
+                // fall through
+            case STAGE_GENERATE_QUIETS:
+                count = MoveGenerator.generateQuiet(board, moves, 0);
+                index = 0;
+                for (int i = 0; i < count; i++) {
+                    int move = moves[i];
+                    scores[i] = history[board.pieceAt(Move.fromOf(move))][Move.toOf(move)];
+                }
+                stage = STAGE_QUIETS;
+                // fall through
+            case STAGE_QUIETS:
+                while (index < count) {
+                    int move = pickBest();
+                    if (move != hashMove && move != firstKiller && move != secondKiller) {
+                        return move;
+                    }
+                }
+                stage = STAGE_BAD_CAPTURES;
+                // fall through
+            case STAGE_BAD_CAPTURES:
+                if (badIndex < badCount) {
+                    return badCaptures[badIndex++];
+                }
+                stage = STAGE_DONE;
+                return Move.NONE;
+            case STAGE_UNORDERED:
+                if (index < count) {
+                    return moves[index++];
+                }
+                stage = STAGE_DONE;
+                return Move.NONE;
+            default:
+                return Move.NONE;
+        }
+    }
+    
+    /**
+     * Selection step: swap the best scored remaining move to the front and return it.
+     * Cheaper than a full sort because most nodes cut off after a few moves.
+     */
+    private int pickBest() {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        scores[best] = scores[index];
+        index++;
+        return move;
+    }
+    
+    /**
+     * MVV-LVA: victim value dominates, the cheaper attacker breaks ties. Promotions add the new piece.
+     */
+    private int captureScore(int move) {
+        int victim = victimType(move);
+        int attacker = Bitboard.typeOf(board.pieceAt(Move.fromOf(move)));
+        int score = victim == Bitboard.NO_PIECE ? 0 : Evaluator.PIECE_VALUES[victim] * 8 - attacker;
+        if (Move.isPromotion(move)) {
+            score += Evaluator.PIECE_VALUES[Move.promotionOf(move)];
+        }
+        return score;
+    }
+    
+    /**
+     * A capture loses material when the exchange it starts ends below zero
+     */
+    private boolean isLosingCapture(int move) {
+        return !Move.isPromotion(move) && board.see(move, seeGain) < 0;
+    }
+    
+    private int victimType(int move) {
+        if (Move.flagsOf(move) == Move.EN_PASSANT) {
+            return Bitboard.PAWN;
+        }
+        int victim = board.pieceAt(Move.toOf(move));
+        return victim == Bitboard.NO_PIECE ? Bitboard.NO_PIECE : Bitboard.typeOf(victim);
+    }
+    
+    private boolean isQuietAndLegal(int move) {
+        return move != Move.NONE && !Move.isCapture(move) && !Move.isPromotion(move) && isLegal(move);
+    }
+    
+    /**
+     * Check a remembered move against the legal moves of its piece in this position
+     */
+    private boolean isLegal(int move) {
+        if (move == Move.NONE) {
+            return false;
+        }
+        int from = Move.fromOf(move);
+        int piece = board.pieceAt(from);
+        if (piece == Bitboard.NO_PIECE || Bitboard.colorOf(piece) != board.sideToMove()) {
+            return false;
+        }
+        int n = MoveGenerator.generateFrom(board, from, pieceMoves, 0);
+        for (int i = 0; i < n; i++) {
+            if (pieceMoves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
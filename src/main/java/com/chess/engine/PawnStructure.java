@@ -0,0 +1,116 @@
+package com.chess.engine;
+
+import com.chess.model.Bitboard;
+
+/**
+ * Pawn-structure terms: passed, doubled, isolated and backward pawns.
+ * Scores depend on the pawns alone, so they are cached by pawn key in a PawnTable.
+ * Results are packed midgame (low 32 bits) and endgame (high 32 bits) scores from white's point of view.
+ */
+public final class PawnStructure {
+    private static final int DOUBLED_MG = -10;
+    private static final int DOUBLED_EG = -20;
+    private static final int ISOLATED_MG = -5;
+    private static final int ISOLATED_EG = -15;
+    private static final int BACKWARD_MG = -8;
+    private static final int BACKWARD_EG = -10;
+    /** Passed pawn bonus by rank counted from the pawn's own side */
+    private static final int[] PASSED_MG = {0, 0, 5, 10, 20, 35, 60, 0};
+    private static final int[] PASSED_EG = {0, 10, 15, 25, 45, 75, 120, 0};
+    
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    /** Squares ahead of a pawn on its own and adjacent files, for each color */
+    private static final long[][] PASSED_MASK = new long[2][64];
+    /** Squares on adjacent files level with or behind a pawn, where supporting pawns stand */
+    private static final long[][] SUPPORT_MASK = new long[2][64];
+    
+    static {
+        for (int file = 0; file < 8; file++) {
+            FILES[file] = FILE_A << file;
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? FILES[file - 1] : 0L) | (file < 7 ? FILES[file + 1] : 0L);
+        }
+        for (int square = 0; square < 64; square++) {
+            int file = square & 7;
+            int rank = square >>> 3;
+            long span = FILES[file] | ADJACENT_FILES[file];
+            long above = rank == 7 ? 0L : -1L << ((rank + 1) * 8);
+            long below = rank == 0 ? 0L : -1L >>> ((8 - rank) * 8);
+            long rankBits = 0xFFL << (rank * 8);
+            PASSED_MASK[Bitboard.WHITE][square] = span & above;
+            PASSED_MASK[Bitboard.BLACK][square] = span & below;
+            SUPPORT_MASK[Bitboard.WHITE][square] = ADJACENT_FILES[file] & (below | rankBits);
+            SUPPORT_MASK[Bitboard.BLACK][square] = ADJACENT_FILES[file] & (above | rankBits);
+        }
+    }
+    
+    private PawnStructure() {
+    }
+    
+    /**
+     * Evaluate the pawn structure of a position, returning packed midgame and endgame scores
+     */
+    public static long evaluate(Bitboard board) {
+        long white = board.pieces(Bitboard.WHITE, Bitboard.PAWN);
+        long black = board.pieces(Bitboard.BLACK, Bitboard.PAWN);
+        long whiteScore = evaluate(Bitboard.WHITE, white, black);
+        long blackScore = evaluate(Bitboard.BLACK, black, white);
+        return pack(midgame(whiteScore) - midgame(blackScore), endgame(whiteScore) - endgame(blackScore));
+    }
+    
+    private static long evaluate(int color, long own, long enemy) {
+        int midgame = 0;
+        int endgame = 0;
+        long enemyAttacks = color == Bitboard.WHITE
+                ? ((enemy >>> 9) & ~FILES[7]) | ((enemy >>> 7) & ~FILES[0])
+                : ((enemy << 7) & ~FILES[7]) | ((enemy << 9) & ~FILES[0]);
+        
+        for (int file = 0; file < 8; file++) {
+            int count = Long.bitCount(own & FILES[file]);
+            if (count > 1) {
+                midgame += DOUBLED_MG * (count - 1);
+                endgame += DOUBLED_EG * (count - 1);
+            }
+        }
+        
+        long pawns = own;
+        while (pawns != 0) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            int file = square & 7;
+            int relativeRank = color == Bitboard.WHITE ? square >>> 3 : 7 - (square >>> 3);
+            
+            if ((PASSED_MASK[color][square] & enemy) == 0 && (PASSED_MASK[color][square] & FILES[file] & own) == 0) {
+                midgame += PASSED_MG[relativeRank];
+                endgame += PASSED_EG[relativeRank];
+            }
+            if ((ADJACENT_FILES[file] & own) == 0) {
+                midgame += ISOLATED_MG;
+                endgame += ISOLATED_EG;
+            } else if ((SUPPORT_MASK[color][square] & own) == 0) {
+                // No pawn can defend it and advancing runs into an enemy pawn's attack
+                int stop = color == Bitboard.WHITE ? square + 8 : square - 8;
+                if ((enemyAttacks & (1L << stop)) != 0) {
+                    midgame += BACKWARD_MG;
+                    endgame += BACKWARD_EG;
+                }
+            }
+        }
+        return pack(midgame, endgame);
+    }
+    
+    static long pack(int midgame, int endgame) {
+        return ((long) endgame << 32) | (midgame & 0xFFFFFFFFL);
+    }
+    
+    public static int midgame(long packed) {
+        return (int) packed;
+    }
+    
+    public static int endgame(long packed) {
+        return (int) (packed >> 32);
+    }
+}
@@ -0,0 +1,65 @@
+package com.chess.engine;
+
+import com.chess.model.Bitboard;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size cache of pawn-structure scores keyed by the board's pawn hash.
+ * Uses the same lock-free (key ^ data, data) pairs as the transposition table,
+ * so one table can serve every search thread.
+ */
+public class PawnTable {
+    public static final int DEFAULT_ENTRIES = 1 << 16;
+    
+    private final long[] table;
+    private final int mask;
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    
+    /**
+     * Create a table with the given number of entries, rounded down to a power of two
+     */
+    public PawnTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        table = new long[size * 2];
+        mask = size - 1;
+    }
+    
+    /**
+     * Packed pawn-structure score of a position, computed and stored on a miss
+     */
+    public long probe(Bitboard board) {
+        long key = board.pawnHash();
+        int index = ((int) key & mask) * 2;
+        long data = table[index + 1];
+        probes.increment();
+        if ((table[index] ^ data) == key) {
+            hits.increment();
+            return data;
+        }
+        data = PawnStructure.evaluate(board);
+        table[index] = key ^ data;
+        table[index + 1] = data;
+        return data;
+    }
+    
+    public long getProbes() {
+        return probes.sum();
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    /**
+     * Fraction of probes answered from the table, 0 before the first probe
+     */
+    public double getHitRate() {
+        long total = probes.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+    
+    public int capacity() {
+        return table.length / 2;
+    }
+}
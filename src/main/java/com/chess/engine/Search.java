@@ -0,0 +1,352 @@
+package com.chess.engine;
+
+import com.chess.model.Bitboard;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+import com.chess.tablebase.Tablebases;
+import java.util.Arrays;
+
+/**
+ * Negamax alpha-beta search with iterative deepening, principal variation
+ * tracking, a transposition table, staged move ordering (hash move, captures,
+ * killers, history), quiescence search and soft/hard time limits.
+ * A Search instance keeps reusable buffers and is not thread-safe, but several
+ * instances may share one transposition table. With endgame tablebases set,
+ * positions below the root that they cover are scored exactly without searching.
+ */
+public class Search {
+    public static final int MATE = 32000;
+    public static final int INFINITY = 32001;
+    
+    private static final int MAX_PLY = 128;
+    private static final int TIME_CHECK_INTERVAL = 1023;
+    private static final int DEFAULT_HASH_MB = 16;
+    private static final int HISTORY_LIMIT = 1 << 20;
+    
+    private final Evaluator evaluator;
+    private final TranspositionTable table;
+    private final int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[12][64];
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private int[] previousPv = new int[0];
+    
+    private Bitboard board;
+    private long nodes;
+    private long startNanos;
+    private long hardDeadline;
+    private volatile boolean stopped;
+    private boolean moveOrdering = true;
+    /** False for an engine's searches, which share its table; the engine advances the generation */
+    private boolean agesTable = true;
+    private Tablebases tablebases;
+    
+    public Search() {
+        this(new TranspositionTable(DEFAULT_HASH_MB));
+    }
+    
+    public Search(TranspositionTable table) {
+        this(new Evaluator(), table);
+    }
+    
+    public Search(Evaluator evaluator, TranspositionTable table) {
+        this.evaluator = evaluator;
+        this.table = table;
+        for (int i = 0; i < MAX_PLY; i++) {
+            pickers[i] = new MovePicker();
+        }
+    }
+    
+    /**
+     * Search a position within the given limits. The position is copied, not modified.
+     */
+    public SearchResult search(Bitboard position, SearchLimits limits) {
+        stopped = false;
+        if (agesTable) {
+            table.newSearch();
+        }
+        return iterate(position, limits, 1);
+    }
+    
+    /**
+     * Leave the table's generation alone, for searches sharing a table whose
+     * owner starts the generations; otherwise concurrent searches would make
+     * each other's entries look stale
+     */
+    void shareTable() {
+        agesTable = false;
+    }
+    
+    /**
+     * Run iterative deepening from the given depth in the table's current generation.
+     * Parallel helpers start at staggered depths so they fill the table ahead of the master.
+     */
+    SearchResult iterate(Bitboard position, SearchLimits limits, int firstDepth) {
+        board = new Bitboard(position);
+        nodes = 0;
+        previousPv = new int[0];
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+        for (int[] row : history) {
+            Arrays.fill(row, 0);
+        }
+        startNanos = System.nanoTime();
+        hardDeadline = deadline(limits.getHardMillis());
+        long softDeadline = deadline(limits.getSoftMillis());
+        
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completedDepth = 0;
+        int rootCount = MoveGenerator.generateLegal(board, rootMoves, 0);
+        if (rootCount > 0) {
+            bestMove = rootMoves[0];
+        }
+        
+        for (int depth = firstDepth; depth <= limits.getDepth() && rootCount > 0; depth++) {
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+            if (stopped) {
+                break;
+            }
+            bestScore = score;
+            completedDepth = depth;
+            previousPv = new int[pvLength[0]];
+            System.arraycopy(pvTable[0], 0, previousPv, 0, pvLength[0]);
+            if (previousPv.length > 0) {
+                bestMove = previousPv[0];
+            }
+            // A forced mate found within the horizon will not change with more depth
+            if (Math.abs(score) >= MATE - depth || System.nanoTime() >= softDeadline) {
+                break;
+            }
+        }
+        
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, millis, previousPv.clone());
+    }
+    
+    /**
+     * Ask a running search to finish as soon as possible
+     */
+    public void stop() {
+        stopped = true;
+    }
+    
+    public long getNodes() {
+        return nodes;
+    }
+    
+    public TranspositionTable getTable() {
+        return table;
+    }
+    
+    /**
+     * Turn move ordering in the main search off or on. Without it moves are searched
+     * in generation order, which is only useful as a baseline for measuring the ordering.
+     */
+    public void setMoveOrdering(boolean moveOrdering) {
+        this.moveOrdering = moveOrdering;
+    }
+    
+    /**
+     * Score positions the tablebases cover from them, or search everything when null
+     */
+    public void setTablebases(Tablebases tablebases) {
+        this.tablebases = tablebases;
+    }
+    
+    private long deadline(long millis) {
+        if (millis == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return startNanos + millis * 1_000_000;
+    }
+    
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if (ply > 0 && (board.halfmoveClock() >= 100 || board.isRepetition())) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(board);
+        }
+        
+        boolean inCheck = MoveGenerator.isInCheck(board);
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+        if ((++nodes & TIME_CHECK_INTERVAL) == 0) {
+            checkTime();
+        }
+        
+        long key = board.hash();
+        long entry = table.probe(key);
+        int hashMove = TranspositionTable.move(entry);
+        if (entry != 0 && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.score(entry, ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.BOUND_EXACT
+                    || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                    || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+        
+        if (tablebases != null && ply > 0 && Long.bitCount(board.occupied()) <= tablebases.getMaxPieces()) {
+            int score = tablebases.probe(board);
+            if (score != Tablebases.UNKNOWN) {
+                // Tablebase mates count from this node; the search counts them from the root
+                return score > 0 ? score - ply : score < 0 ? score + ply : 0;
+            }
+        }
+        
+        MovePicker picker = pickers[ply];
+        if (moveOrdering) {
+            if (hashMove == Move.NONE && ply < previousPv.length) {
+                hashMove = previousPv[ply];
+            }
+            picker.init(board, hashMove, killers[ply][0], killers[ply][1], history);
+        } else {
+            picker.initUnordered(board);
+        }
+        
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        int played = 0;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            played++;
+            board.make(move);
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            board.unmake();
+            if (stopped) {
+                return 0;
+            }
+            
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                            rememberQuietCutoff(move, depth, ply);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (played == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        
+        int bound = best >= beta ? TranspositionTable.BOUND_LOWER
+                : best > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, bound == TranspositionTable.BOUND_UPPER ? Move.NONE : bestMove, best, depth, bound, ply);
+        return best;
+    }
+    
+    /**
+     * Resolve captures and promotions until the position is quiet.
+     * Captures that appear to lose material are not searched.
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        if ((++nodes & TIME_CHECK_INTERVAL) == 0) {
+            checkTime();
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluator.evaluate(board);
+        }
+        
+        boolean inCheck = MoveGenerator.isInCheck(board);
+        int best = -INFINITY;
+        MovePicker picker = pickers[ply];
+        if (inCheck) {
+            // Every evasion is searched, so a mate at the horizon is not missed
+            picker.init(board, Move.NONE, Move.NONE, Move.NONE, history);
+        } else {
+            best = evaluator.evaluate(board);
+            if (best >= beta) {
+                return best;
+            }
+            if (best > alpha) {
+                alpha = best;
+            }
+            picker.initQuiescence(board);
+        }
+        
+        int played = 0;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            played++;
+            board.make(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            board.unmake();
+            if (stopped) {
+                return 0;
+            }
+            
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (inCheck && played == 0) {
+            return -MATE + ply;
+        }
+        return best;
+    }
+    
+    /**
+     * A quiet move refuted the opponent's play: keep it as a killer for this ply
+     * and raise its history score for every node
+     */
+    private void rememberQuietCutoff(int move, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] scores = history[board.pieceAt(Move.fromOf(move))];
+        scores[Move.toOf(move)] += depth * depth;
+        if (scores[Move.toOf(move)] > HISTORY_LIMIT) {
+            // Halve everything so recent cutoffs keep their weight
+            for (int[] row : history) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+        }
+    }
+    
+    private void updatePv(int ply, int move) {
+        pvTable[ply][ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1, length - (ply + 1));
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+    
+    /**
+     * Stop at the hard deadline, or when the thread is interrupted because
+     * whoever waits for the result has gone away
+     */
+    private void checkTime() {
+        if (System.nanoTime() >= hardDeadline || Thread.currentThread().isInterrupted()) {
+            stopped = true;
+        }
+    }
+}
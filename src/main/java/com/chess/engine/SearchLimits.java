@@ -0,0 +1,64 @@
+package com.chess.engine;
+
+/**
+ * Depth and time limits for a search.
+ * The soft limit stops iterative deepening from starting another iteration;
+ * the hard limit aborts the search in progress.
+ * Threads is the number of searchers requested; the engine may grant fewer.
+ */
+public class SearchLimits {
+    public static final int MAX_DEPTH = 64;
+    
+    private final int depth;
+    private final long softMillis;
+    private final long hardMillis;
+    private final int threads;
+    
+    public SearchLimits(int depth, long softMillis, long hardMillis) {
+        this(depth, softMillis, hardMillis, 1);
+    }
+    
+    public SearchLimits(int depth, long softMillis, long hardMillis, int threads) {
+        this.depth = Math.max(1, Math.min(depth, MAX_DEPTH));
+        this.softMillis = softMillis;
+        this.hardMillis = hardMillis;
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Search for at most the given time, not starting an iteration past half of it
+     */
+    public static SearchLimits moveTime(long millis) {
+        return new SearchLimits(MAX_DEPTH, millis / 2, millis);
+    }
+    
+    /**
+     * Search to a fixed depth without a time limit
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public long getSoftMillis() {
+        return softMillis;
+    }
+    
+    public long getHardMillis() {
+        return hardMillis;
+    }
+    
+    public int getThreads() {
+        return threads;
+    }
+    
+    /**
+     * The same limits searched with the given number of threads
+     */
+    public SearchLimits withThreads(int threads) {
+        return new SearchLimits(depth, softMillis, hardMillis, threads);
+    }
+}
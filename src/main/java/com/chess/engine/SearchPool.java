@@ -0,0 +1,120 @@
+package com.chess.engine;
+
+import com.chess.model.Bitboard;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed pool of platform threads for engine searches requested over HTTP, with
+ * a bounded queue in front of it. Request threads hand their search over and
+ * wait, which costs nothing on a virtual thread, so CPU-bound work never occupies
+ * the threads serving cheap requests. When every thread is busy and the queue
+ * is full, searches are refused at once instead of piling up.
+ *
+ * The pool also keeps a budget of one permit per thread. Each search holds one
+ * while it runs, and an engine built on getThreadBudget takes its Lazy SMP
+ * helpers' permits from the same budget, so searches and helpers together never
+ * outnumber the pool's threads. A search finding the budget lent to helpers
+ * waits for them, which ends with the search they help.
+ */
+public class SearchPool {
+    private final ThreadPoolExecutor executor;
+    private final int queueLimit;
+    private final LongAdder rejected = new LongAdder();
+    private final Semaphore threadBudget;
+    
+    /**
+     * Create a pool of threads searching at once, normally one per core, with
+     * room for queueLimit searches waiting for a thread
+     */
+    public SearchPool(int threads, int queueLimit) {
+        this.queueLimit = Math.max(1, queueLimit);
+        this.threadBudget = new Semaphore(Math.max(1, threads));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.queueLimit), runnable -> {
+                    Thread thread = new Thread(runnable, "engine-search-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    /**
+     * Search a position on the pool and wait for the result. Throws
+     * RejectedExecutionException without waiting when the pool and its queue are full.
+     * Interrupting the waiting thread cancels the search.
+     */
+    public SearchResult search(Engine engine, Bitboard position, SearchLimits limits) throws InterruptedException {
+        Future<SearchResult> future;
+        try {
+            future = executor.submit(() -> {
+                threadBudget.acquire();
+                try {
+                    return engine.search(position, limits);
+                } finally {
+                    threadBudget.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // Nobody is left to read the result; free the thread, or the queue slot if not started
+            future.cancel(true);
+            executor.remove((Runnable) future);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed", e.getCause());
+        }
+    }
+    
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+    
+    /**
+     * Permits for the threads searching at once, to share with an engine's helpers
+     */
+    public Semaphore getThreadBudget() {
+        return threadBudget;
+    }
+    
+    public int getQueueLimit() {
+        return queueLimit;
+    }
+    
+    /**
+     * Searches running now
+     */
+    public int getActive() {
+        return executor.getActiveCount();
+    }
+    
+    /**
+     * Searches waiting for a thread
+     */
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+    
+    /**
+     * Searches refused because the pool and its queue were full
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,118 @@
+package com.chess.engine;
+
+import com.chess.model.Move;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a search: best move, score, principal variation and statistics
+ */
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long millis;
+    private final int[] pv;
+    private final boolean book;
+    private final boolean tablebase;
+    
+    public SearchResult(int bestMove, int score, int depth, long nodes, long millis, int[] pv) {
+        this(bestMove, score, depth, nodes, millis, pv, false, false);
+    }
+    
+    private SearchResult(int bestMove, int score, int depth, long nodes, long millis, int[] pv,
+            boolean book, boolean tablebase) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.millis = millis;
+        this.pv = pv;
+        this.book = book;
+        this.tablebase = tablebase;
+    }
+    
+    /**
+     * Result for a move taken from the opening book without searching
+     */
+    public static SearchResult bookMove(int move, long millis) {
+        return new SearchResult(move, 0, 0, 0, millis, new int[] {move}, true, false);
+    }
+    
+    /**
+     * Result for a move chosen from the endgame tablebases, with their exact score
+     */
+    public static SearchResult tablebaseMove(int move, int score, long millis) {
+        return new SearchResult(move, score, 0, 0, millis, new int[] {move}, false, true);
+    }
+    
+    /**
+     * Best move in int encoding, or Move.NONE when the position has no legal move
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+    
+    /**
+     * Score in centipawns for the side to move
+     */
+    public int getScore() {
+        return score;
+    }
+    
+    /**
+     * Deepest completed iteration
+     */
+    public int getDepth() {
+        return depth;
+    }
+    
+    public long getNodes() {
+        return nodes;
+    }
+    
+    public long getMillis() {
+        return millis;
+    }
+    
+    public long getNodesPerSecond() {
+        return nodes * 1000 / Math.max(1, millis);
+    }
+    
+    public int[] getPv() {
+        return pv.clone();
+    }
+    
+    /**
+     * Principal variation in coordinate notation
+     */
+    public List<String> getPvMoves() {
+        List<String> moves = new ArrayList<>(pv.length);
+        for (int move : pv) {
+            moves.add(Move.toCoordinate(move));
+        }
+        return moves;
+    }
+    
+    /**
+     * Check whether the move came from the opening book, in which case score and depth are 0
+     */
+    public boolean isBook() {
+        return book;
+    }
+    
+    /**
+     * Check whether the move and score came from the endgame tablebases
+     */
+    public boolean isTablebase() {
+        return tablebase;
+    }
+    
+    /**
+     * Check whether the score is a forced mate for either side
+     */
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - SearchLimits.MAX_DEPTH * 2;
+    }
+}
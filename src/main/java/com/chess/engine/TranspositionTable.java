@@ -0,0 +1,180 @@
+package com.chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Transposition table shared by every search on the node.
+ * Entries live in a preallocated long[] as pairs of (key ^ data, data), grouped
+ * in adjacent buckets of four, 64 bytes each. Java gives no alignment for array
+ * data, so a bucket may span two cache lines. Threads read and write without
+ * locks: a torn or interleaved write leaves a pair whose XOR no longer
+ * reproduces the key, so the probe simply misses.
+ *
+ * Data layout: move bits 0-15, score bits 16-31, depth bits 32-39,
+ * bound bits 40-41, age bits 42-49.
+ */
+public class TranspositionTable {
+    public static final int BOUND_NONE = 0;
+    public static final int BOUND_UPPER = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+    
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_LONGS = BUCKET_ENTRIES * 2;
+    private static final int BYTES_PER_ENTRY = 16;
+    private static final int AGE_MASK = 0xFF;
+    /** Scores this close to mate are stored relative to the node, not the root */
+    private static final int MATE_BOUND = Search.MATE - 1024;
+    
+    private final long[] table;
+    private final int bucketMask;
+    private volatile int age;
+    
+    /**
+     * Allocate a table of at most the given size in megabytes, rounded down to a power of two
+     */
+    public TranspositionTable(int megabytes) {
+        long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+        long buckets = Long.highestOneBit(bytes / (BYTES_PER_ENTRY * BUCKET_ENTRIES));
+        buckets = Math.min(buckets, Integer.MAX_VALUE / BUCKET_LONGS + 1L);
+        table = new long[(int) (buckets * BUCKET_LONGS)];
+        bucketMask = (int) buckets - 1;
+    }
+    
+    /**
+     * Start a new search generation so entries from older searches are replaced first
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+    
+    /**
+     * Forget every stored position
+     */
+    public void clear() {
+        Arrays.fill(table, 0L);
+    }
+    
+    /**
+     * Look up a position, returning its packed data or 0 when it is not stored
+     */
+    public long probe(long key) {
+        int base = bucket(key);
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key && bound(data) != BOUND_NONE) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+    
+    /**
+     * Store a search result. An entry for the same position is overwritten unless it
+     * holds a deeper result from this search; otherwise the shallowest, oldest entry
+     * of the bucket is replaced.
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        int base = bucket(key);
+        int currentAge = age;
+        int replace = base;
+        int worst = Integer.MAX_VALUE;
+        for (int i = base; i < base + BUCKET_LONGS; i += 2) {
+            long data = table[i + 1];
+            if ((table[i] ^ data) == key) {
+                if (bound != BOUND_EXACT && depth < depth(data) && age(data) == currentAge) {
+                    return;
+                }
+                if (move == 0) {
+                    move = move(data);
+                }
+                replace = i;
+                break;
+            }
+            int value = depth(data) - 8 * ((currentAge - age(data)) & AGE_MASK);
+            if (bound(data) == BOUND_NONE) {
+                value = Integer.MIN_VALUE;
+            }
+            if (value < worst) {
+                worst = value;
+                replace = i;
+            }
+        }
+        
+        long data = (move & 0xFFFFL)
+                | ((toStored(score, ply) & 0xFFFFL) << 16)
+                | ((long) Math.max(0, Math.min(depth, 255)) << 32)
+                | ((long) bound << 40)
+                | ((long) currentAge << 42);
+        table[replace] = key ^ data;
+        table[replace + 1] = data;
+    }
+    
+    /**
+     * Approximate fill rate of the current search in permille, sampled from the first buckets
+     */
+    public int hashfull() {
+        int sampled = Math.min(1000, table.length / 2);
+        int used = 0;
+        int currentAge = age;
+        for (int i = 0; i < sampled; i++) {
+            long data = table[i * 2 + 1];
+            if (bound(data) != BOUND_NONE && age(data) == currentAge) {
+                used++;
+            }
+        }
+        return used * 1000 / Math.max(1, sampled);
+    }
+    
+    public int capacity() {
+        return table.length / 2;
+    }
+    
+    public long sizeBytes() {
+        return table.length * 8L;
+    }
+    
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+    
+    /**
+     * Stored score converted back to be relative to the root at the given ply
+     */
+    public static int score(long data, int ply) {
+        int score = (short) (data >>> 16);
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+    
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+    
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 3;
+    }
+    
+    private static int age(long data) {
+        return (int) (data >>> 42) & AGE_MASK;
+    }
+    
+    private static int toStored(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+    
+    private int bucket(long key) {
+        return ((int) key & bucketMask) * BUCKET_LONGS;
+    }
+}
@@ -0,0 +1,160 @@
+package com.chess.model;
+
+/**
+ * Precomputed attack tables for bitboard move generation.
+ * Squares are numbered 0-63 with a1 = 0, h1 = 7 and h8 = 63.
+ */
+public final class Attacks {
+    private static final int NORTH = 0;
+    private static final int EAST = 1;
+    private static final int NORTH_EAST = 2;
+    private static final int NORTH_WEST = 3;
+    private static final int SOUTH = 4;
+    private static final int WEST = 5;
+    private static final int SOUTH_WEST = 6;
+    private static final int SOUTH_EAST = 7;
+    
+    private static final int[] DIR_RANK = {1, 0, 1, 1, -1, 0, -1, -1};
+    private static final int[] DIR_FILE = {0, 1, 1, -1, 0, -1, -1, 1};
+    
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+    private static final long[][] RAYS = new long[8][64];
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+    
+    static {
+        int[][] knightSteps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        for (int sq = 0; sq < 64; sq++) {
+            int rank = sq >>> 3;
+            int file = sq & 7;
+            
+            for (int[] step : knightSteps) {
+                KNIGHT[sq] |= bit(rank + step[0], file + step[1]);
+            }
+            for (int dir = 0; dir < 8; dir++) {
+                KING[sq] |= bit(rank + DIR_RANK[dir], file + DIR_FILE[dir]);
+            }
+            PAWN[Bitboard.WHITE][sq] = bit(rank + 1, file - 1) | bit(rank + 1, file + 1);
+            PAWN[Bitboard.BLACK][sq] = bit(rank - 1, file - 1) | bit(rank - 1, file + 1);
+            
+            for (int dir = 0; dir < 8; dir++) {
+                int r = rank + DIR_RANK[dir];
+                int f = file + DIR_FILE[dir];
+                long ray = 0L;
+                while (r >= 0 && r < 8 && f >= 0 && f < 8) {
+                    int target = r * 8 + f;
+                    BETWEEN[sq][target] = ray;
+                    ray |= 1L << target;
+                    r += DIR_RANK[dir];
+                    f += DIR_FILE[dir];
+                }
+                RAYS[dir][sq] = ray;
+            }
+        }
+        
+        for (int sq = 0; sq < 64; sq++) {
+            for (int dir = 0; dir < 4; dir++) {
+                long line = RAYS[dir][sq] | RAYS[dir + 4][sq] | (1L << sq);
+                long ray = RAYS[dir][sq] | RAYS[dir + 4][sq];
+                while (ray != 0) {
+                    LINE[sq][Long.numberOfTrailingZeros(ray)] = line;
+                    ray &= ray - 1;
+                }
+            }
+        }
+    }
+    
+    private Attacks() {
+    }
+    
+    private static long bit(int rank, int file) {
+        if (rank < 0 || rank > 7 || file < 0 || file > 7) {
+            return 0L;
+        }
+        return 1L << (rank * 8 + file);
+    }
+    
+    /**
+     * Squares attacked by a knight on the given square
+     */
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+    
+    /**
+     * Squares attacked by a king on the given square
+     */
+    public static long king(int square) {
+        return KING[square];
+    }
+    
+    /**
+     * Squares attacked by a pawn of the given color on the given square
+     */
+    public static long pawn(int color, int square) {
+        return PAWN[color][square];
+    }
+    
+    /**
+     * Squares attacked by a bishop on the given square for an occupancy set
+     */
+    public static long bishop(int square, long occupied) {
+        return positiveRay(NORTH_EAST, square, occupied)
+             | positiveRay(NORTH_WEST, square, occupied)
+             | negativeRay(SOUTH_EAST, square, occupied)
+             | negativeRay(SOUTH_WEST, square, occupied);
+    }
+    
+    /**
+     * Squares attacked by a rook on the given square for an occupancy set
+     */
+    public static long rook(int square, long occupied) {
+        return positiveRay(NORTH, square, occupied)
+             | positiveRay(EAST, square, occupied)
+             | negativeRay(SOUTH, square, occupied)
+             | negativeRay(WEST, square, occupied);
+    }
+    
+    /**
+     * Squares attacked by a queen on the given square for an occupancy set
+     */
+    public static long queen(int square, long occupied) {
+        return bishop(square, occupied) | rook(square, occupied);
+    }
+    
+    /**
+     * Squares strictly between two squares on a shared rank, file or diagonal.
+     * Returns an empty set when the squares are not aligned.
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+    
+    /**
+     * The full rank, file or diagonal through two squares, including both.
+     * Returns an empty set when the squares are not aligned.
+     */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+    
+    private static long positiveRay(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            ray ^= RAYS[dir][Long.numberOfTrailingZeros(blockers)];
+        }
+        return ray;
+    }
+    
+    private static long negativeRay(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            ray ^= RAYS[dir][63 - Long.numberOfLeadingZeros(blockers)];
+        }
+        return ray;
+    }
+}
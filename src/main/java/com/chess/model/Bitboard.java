@@ -0,0 +1,537 @@
+package com.chess.model;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of a chess position.
+ * Keeps one 64-bit set per piece kind plus color and total occupancy masks,
+ * and a square-indexed mailbox for constant-time piece lookups.
+ */
+public class Bitboard {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+    
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+    
+    public static final int NO_PIECE = -1;
+    public static final int NO_SQUARE = -1;
+    
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 2;
+    public static final int BLACK_KING_SIDE = 4;
+    public static final int BLACK_QUEEN_SIDE = 8;
+    public static final int ALL_CASTLING = 15;
+    
+    /** Initial depth of the undo stack; it only grows for unusually long games */
+    public static final int MAX_PLY = 1024;
+    
+    /** Piece values for static exchange evaluation; the king outweighs any exchange */
+    public static final int[] SEE_VALUES = {100, 320, 330, 500, 900, 20000};
+    
+    /** Swap list length for see; an exchange on one square has at most 32 captures */
+    public static final int SEE_BUFFER = 33;
+    
+    /** Castling rights kept when a piece moves from or to each square */
+    private static final int[] CASTLING_MASK = new int[64];
+    
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[0] = ALL_CASTLING & ~WHITE_QUEEN_SIDE;
+        CASTLING_MASK[7] = ALL_CASTLING & ~WHITE_KING_SIDE;
+        CASTLING_MASK[4] = ALL_CASTLING & ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLING_MASK[56] = ALL_CASTLING & ~BLACK_QUEEN_SIDE;
+        CASTLING_MASK[63] = ALL_CASTLING & ~BLACK_KING_SIDE;
+        CASTLING_MASK[60] = ALL_CASTLING & ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+    }
+    
+    private final long[] pieces = new long[12];
+    private final long[] colors = new long[2];
+    private final byte[] mailbox = new byte[64];
+    private long occupied;
+    private int sideToMove;
+    private int castlingRights;
+    private int epSquare;
+    private int halfmoveClock;
+    private int fullmoveNumber;
+    private long hash;
+    private long pawnHash;
+    // Material and piece-square sums from white's point of view, and the game phase
+    private int midgameScore;
+    private int endgameScore;
+    private int phase;
+    
+    // Undo stack: the move made at each ply and the irreversible state before it
+    private int[] moveStack = new int[MAX_PLY];
+    private int[] stateStack = new int[MAX_PLY];
+    private long[] hashStack = new long[MAX_PLY];
+    private int ply;
+    
+    public Bitboard() {
+        clear();
+    }
+    
+    /**
+     * Copy a position, including its undo history, so it can be searched independently
+     */
+    public Bitboard(Bitboard other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+        occupied = other.occupied;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        epSquare = other.epSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        hash = other.hash;
+        pawnHash = other.pawnHash;
+        midgameScore = other.midgameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+        moveStack = other.moveStack.clone();
+        stateStack = other.stateStack.clone();
+        hashStack = other.hashStack.clone();
+        ply = other.ply;
+    }
+    
+    /**
+     * Piece code for a color and piece type
+     */
+    public static int piece(int color, int type) {
+        return color * 6 + type;
+    }
+    
+    public static int colorOf(int piece) {
+        return piece < 6 ? WHITE : BLACK;
+    }
+    
+    public static int typeOf(int piece) {
+        return piece < 6 ? piece : piece - 6;
+    }
+    
+    /**
+     * Square index (a1 = 0) for a row/column pair as used by Position
+     */
+    public static int square(int row, int col) {
+        return (7 - row) * 8 + col;
+    }
+    
+    public static int rowOf(int square) {
+        return 7 - (square >>> 3);
+    }
+    
+    public static int colOf(int square) {
+        return square & 7;
+    }
+    
+    /**
+     * Remove every piece and give the move to white
+     */
+    public void clear() {
+        Arrays.fill(pieces, 0L);
+        colors[WHITE] = 0L;
+        colors[BLACK] = 0L;
+        Arrays.fill(mailbox, (byte) NO_PIECE);
+        occupied = 0L;
+        sideToMove = WHITE;
+        castlingRights = 0;
+        epSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        ply = 0;
+        hash = Zobrist.castling(0);
+        pawnHash = 0L;
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+    }
+    
+    /**
+     * Put a piece on an empty square
+     */
+    public void addPiece(int piece, int square) {
+        long bit = 1L << square;
+        pieces[piece] |= bit;
+        colors[colorOf(piece)] |= bit;
+        occupied |= bit;
+        mailbox[square] = (byte) piece;
+        hash ^= Zobrist.piece(piece, square);
+        if (typeOf(piece) == PAWN) {
+            pawnHash ^= Zobrist.piece(piece, square);
+        }
+        midgameScore += PieceSquareTables.midgame(piece, square);
+        endgameScore += PieceSquareTables.endgame(piece, square);
+        phase += PieceSquareTables.phase(piece);
+    }
+    
+    /**
+     * Remove whatever piece stands on a square, returning its code
+     */
+    public int removePiece(int square) {
+        int piece = mailbox[square];
+        if (piece != NO_PIECE) {
+            long bit = 1L << square;
+            pieces[piece] &= ~bit;
+            colors[colorOf(piece)] &= ~bit;
+            occupied &= ~bit;
+            mailbox[square] = (byte) NO_PIECE;
+            hash ^= Zobrist.piece(piece, square);
+            if (typeOf(piece) == PAWN) {
+                pawnHash ^= Zobrist.piece(piece, square);
+            }
+            midgameScore -= PieceSquareTables.midgame(piece, square);
+            endgameScore -= PieceSquareTables.endgame(piece, square);
+            phase -= PieceSquareTables.phase(piece);
+        }
+        return piece;
+    }
+    
+    /**
+     * Move a piece between squares, capturing anything on the target square
+     */
+    public int movePiece(int from, int to) {
+        int captured = removePiece(to);
+        int piece = removePiece(from);
+        addPiece(piece, to);
+        return captured;
+    }
+    
+    /**
+     * Apply an encoded move and pass the turn, returning the captured piece code.
+     * The move can be taken back with unmake().
+     */
+    public int make(int move) {
+        int from = Move.fromOf(move);
+        int to = Move.toOf(move);
+        int flags = Move.flagsOf(move);
+        int moving = mailbox[from];
+        long hashBefore = hash;
+        int captured;
+        
+        if (flags == Move.EN_PASSANT) {
+            captured = removePiece(sideToMove == WHITE ? to - 8 : to + 8);
+            movePiece(from, to);
+        } else {
+            captured = movePiece(from, to);
+        }
+        
+        if (flags == Move.KING_CASTLE) {
+            movePiece(to + 1, to - 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            movePiece(to - 2, to + 1);
+        } else if ((flags & Move.PROMOTION) != 0) {
+            removePiece(to);
+            addPiece(piece(sideToMove, Move.promotionOf(move)), to);
+        }
+        
+        if (ply == moveStack.length) {
+            moveStack = Arrays.copyOf(moveStack, ply * 2);
+            stateStack = Arrays.copyOf(stateStack, ply * 2);
+            hashStack = Arrays.copyOf(hashStack, ply * 2);
+        }
+        moveStack[ply] = move;
+        hashStack[ply] = hashBefore;
+        stateStack[ply] = (captured + 1) | (castlingRights << 4) | ((epSquare + 1) << 8) | (halfmoveClock << 16);
+        ply++;
+        
+        hash ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(epSquare);
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        epSquare = flags == Move.DOUBLE_PAWN_PUSH ? (from + to) >>> 1 : NO_SQUARE;
+        hash ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(epSquare) ^ Zobrist.side();
+        halfmoveClock = captured != NO_PIECE || typeOf(moving) == PAWN ? 0 : halfmoveClock + 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove ^= 1;
+        assert hash == Zobrist.compute(this) : "incremental hash diverged after " + Move.toCoordinate(move);
+        assert pawnHash == Zobrist.computePawns(this) : "pawn hash diverged after " + Move.toCoordinate(move);
+        return captured;
+    }
+    
+    /**
+     * Take back the last move made with make(), restoring the captured piece,
+     * castling rights, en passant square and halfmove clock.
+     */
+    public void unmake() {
+        int move = moveStack[--ply];
+        int state = stateStack[ply];
+        int from = Move.fromOf(move);
+        int to = Move.toOf(move);
+        int flags = Move.flagsOf(move);
+        
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber--;
+        }
+        
+        if ((flags & Move.PROMOTION) != 0) {
+            removePiece(to);
+            addPiece(piece(sideToMove, PAWN), to);
+        } else if (flags == Move.KING_CASTLE) {
+            movePiece(to - 1, to + 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            movePiece(to + 1, to - 2);
+        }
+        movePiece(to, from);
+        
+        int captured = (state & 0xF) - 1;
+        if (captured != NO_PIECE) {
+            int square = flags == Move.EN_PASSANT ? (sideToMove == WHITE ? to - 8 : to + 8) : to;
+            addPiece(captured, square);
+        }
+        castlingRights = (state >>> 4) & 0xF;
+        epSquare = ((state >>> 8) & 0x7F) - 1;
+        halfmoveClock = state >>> 16;
+        hash = hashStack[ply];
+        assert hash == Zobrist.compute(this) : "hash not restored after undoing " + Move.toCoordinate(move);
+    }
+    
+    /**
+     * Number of moves that can currently be taken back
+     */
+    public int ply() {
+        return ply;
+    }
+    
+    /**
+     * Check whether the current position occurred before since the last capture or pawn move
+     */
+    public boolean isRepetition() {
+        int oldest = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 4; i >= oldest; i -= 2) {
+            if (hashStack[i] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * The move made at the given ply, oldest first
+     */
+    public int moveAt(int ply) {
+        return moveStack[ply];
+    }
+    
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+    
+    public long pieces(int piece) {
+        return pieces[piece];
+    }
+    
+    public long pieces(int color, int type) {
+        return pieces[piece(color, type)];
+    }
+    
+    public long occupancy(int color) {
+        return colors[color];
+    }
+    
+    public long occupied() {
+        return occupied;
+    }
+    
+    public int sideToMove() {
+        return sideToMove;
+    }
+    
+    public void setSideToMove(int color) {
+        if (color != sideToMove) {
+            hash ^= Zobrist.side();
+        }
+        this.sideToMove = color;
+    }
+    
+    /**
+     * Castling rights as a combination of the *_SIDE bit flags
+     */
+    public int castlingRights() {
+        return castlingRights;
+    }
+    
+    public void setCastlingRights(int castlingRights) {
+        hash ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(castlingRights);
+        this.castlingRights = castlingRights;
+    }
+    
+    /**
+     * Square a pawn may capture onto en passant, or NO_SQUARE
+     */
+    public int epSquare() {
+        return epSquare;
+    }
+    
+    public void setEpSquare(int epSquare) {
+        hash ^= Zobrist.enPassant(this.epSquare) ^ Zobrist.enPassant(epSquare);
+        this.epSquare = epSquare;
+    }
+    
+    /**
+     * 64-bit Zobrist key of the position, maintained incrementally.
+     * With assertions enabled (-ea) every make and unmake checks it against a full recomputation.
+     */
+    public long hash() {
+        return hash;
+    }
+    
+    /**
+     * Zobrist key of the pawns alone, used to cache pawn-structure evaluation
+     */
+    public long pawnHash() {
+        return pawnHash;
+    }
+    
+    /**
+     * Material plus midgame piece-square score, positive when white is better
+     */
+    public int midgameScore() {
+        return midgameScore;
+    }
+    
+    /**
+     * Material plus endgame piece-square score, positive when white is better
+     */
+    public int endgameScore() {
+        return endgameScore;
+    }
+    
+    /**
+     * Game phase from the remaining pieces: PieceSquareTables.MAX_PHASE at the start,
+     * 0 with only kings and pawns. Promotions can push it above the maximum.
+     */
+    public int phase() {
+        return phase;
+    }
+    
+    /**
+     * Plies since the last capture or pawn move, for the fifty-move rule
+     */
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+    
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+    
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+    
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+    
+    /**
+     * Square of the king of the given color, or -1 if there is none
+     */
+    public int kingSquare(int color) {
+        long king = pieces[piece(color, KING)];
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+    
+    /**
+     * All pieces of either color attacking a square for an occupancy set
+     */
+    public long attackersTo(int square, long occupied) {
+        long bishops = pieces[piece(WHITE, BISHOP)] | pieces[piece(BLACK, BISHOP)]
+                     | pieces[piece(WHITE, QUEEN)] | pieces[piece(BLACK, QUEEN)];
+        long rooks = pieces[piece(WHITE, ROOK)] | pieces[piece(BLACK, ROOK)]
+                   | pieces[piece(WHITE, QUEEN)] | pieces[piece(BLACK, QUEEN)];
+        return (Attacks.pawn(BLACK, square) & pieces[piece(WHITE, PAWN)])
+             | (Attacks.pawn(WHITE, square) & pieces[piece(BLACK, PAWN)])
+             | (Attacks.knight(square) & (pieces[piece(WHITE, KNIGHT)] | pieces[piece(BLACK, KNIGHT)]))
+             | (Attacks.king(square) & (pieces[piece(WHITE, KING)] | pieces[piece(BLACK, KING)]))
+             | (Attacks.bishop(square, occupied) & bishops)
+             | (Attacks.rook(square, occupied) & rooks);
+    }
+    
+    /**
+     * Check whether a square is attacked by any piece of the given color
+     */
+    public boolean isAttacked(int square, int byColor) {
+        return (attackersTo(square, occupied) & colors[byColor]) != 0;
+    }
+    
+    /**
+     * Static exchange evaluation: the material balance for the side to move after
+     * the move and the best sequence of recaptures on its target square, each side
+     * capturing with its least valuable piece and free to stop. Sliders behind the
+     * capturing pieces join in as the line opens (x-rays). Pins and checks are ignored.
+     * The board is not changed. The swap list is the caller's, at least SEE_BUFFER
+     * ints, so callers reuse one and nothing is allocated.
+     */
+    public int see(int move, int[] seeGain) {
+        int from = Move.fromOf(move);
+        int to = Move.toOf(move);
+        long occupancy = occupied ^ (1L << from);
+        
+        int gain;
+        if (Move.flagsOf(move) == Move.EN_PASSANT) {
+            gain = SEE_VALUES[PAWN];
+            occupancy ^= 1L << (sideToMove == WHITE ? to - 8 : to + 8);
+        } else {
+            gain = mailbox[to] == NO_PIECE ? 0 : SEE_VALUES[typeOf(mailbox[to])];
+        }
+        int onSquare = typeOf(mailbox[from]);
+        if (Move.isPromotion(move)) {
+            onSquare = Move.promotionOf(move);
+            gain += SEE_VALUES[onSquare] - SEE_VALUES[PAWN];
+        }
+        
+        long diagonal = pieces[piece(WHITE, BISHOP)] | pieces[piece(BLACK, BISHOP)]
+                      | pieces[piece(WHITE, QUEEN)] | pieces[piece(BLACK, QUEEN)];
+        long orthogonal = pieces[piece(WHITE, ROOK)] | pieces[piece(BLACK, ROOK)]
+                        | pieces[piece(WHITE, QUEEN)] | pieces[piece(BLACK, QUEEN)];
+        long attackers = attackersTo(to, occupancy) & occupancy;
+        int side = sideToMove ^ 1;
+        int depth = 0;
+        seeGain[0] = gain;
+        
+        while (true) {
+            long own = attackers & colors[side];
+            if (own == 0) {
+                break;
+            }
+            int type = PAWN;
+            long candidates = own & pieces[piece(side, PAWN)];
+            while (candidates == 0) {
+                type++;
+                candidates = own & pieces[piece(side, type)];
+            }
+            
+            // Speculative score if the piece standing on the square is taken
+            depth++;
+            seeGain[depth] = SEE_VALUES[onSquare] - seeGain[depth - 1];
+            if (Math.max(-seeGain[depth - 1], seeGain[depth]) < 0) {
+                // This capture cannot help its side, so the sign of the result is settled
+                depth--;
+                break;
+            }
+            
+            occupancy ^= candidates & -candidates;
+            if (type == PAWN || type == BISHOP || type == QUEEN) {
+                attackers |= Attacks.bishop(to, occupancy) & diagonal;
+            }
+            if (type == ROOK || type == QUEEN) {
+                attackers |= Attacks.rook(to, occupancy) & orthogonal;
+            }
+            attackers &= occupancy;
+            onSquare = type;
+            side ^= 1;
+        }
+        
+        // Each side may stop instead of recapturing, so fold the list back to the first capture
+        for (; depth > 0; depth--) {
+            seeGain[depth - 1] = -Math.max(-seeGain[depth - 1], seeGain[depth]);
+        }
+        return seeGain[0];
+    }
+}
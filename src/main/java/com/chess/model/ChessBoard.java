@@ -4,52 +4,65 @@ import com.chess.model.pieces.*;
 import java.util.*;
 
 /**
- * Chess board implementation using 2D array data structure
+ * Chess board implementation backed by a bitboard position.
+ * Piece objects are materialized lazily for callers that work with ChessPiece.
  */
 public class ChessBoard {
     private static final int BOARD_SIZE = 8;
-    private ChessPiece[][] board;
+    private static final PieceType[] BACK_RANK = {
+        PieceType.ROOK, PieceType.KNIGHT, PieceType.BISHOP, PieceType.QUEEN,
+        PieceType.KING, PieceType.BISHOP, PieceType.KNIGHT, PieceType.ROOK
+    };
+    private static final String[] PIECE_NAMES = {
+        "WP", "WN", "WB", "WR", "WQ", "WK", "BP", "BN", "BB", "BR", "BQ", "BK"
+    };
+    private static final PieceType[] PROMOTION_TYPES = {
+        PieceType.PAWN, PieceType.KNIGHT, PieceType.BISHOP, PieceType.ROOK, PieceType.QUEEN
+    };
+    
+    private Bitboard bits;
+    private ChessPiece[] pieceCache;
     private List<Move> moveHistory;
-    private PieceColor currentPlayer;
+    private int[] moveBuffer;
+    private int[] seeGain;
     
     public ChessBoard() {
-        board = new ChessPiece[BOARD_SIZE][BOARD_SIZE];
+        bits = new Bitboard();
+        pieceCache = new ChessPiece[64];
+        moveBuffer = new int[MoveGenerator.MAX_MOVES];
+        seeGain = new int[Bitboard.SEE_BUFFER];
         moveHistory = new ArrayList<>();
-        currentPlayer = PieceColor.WHITE;
         initializeBoard();
     }
     
+    /**
+     * Create a board holding the position described by a FEN string.
+     * Throws IllegalArgumentException if the FEN is malformed or the position impossible.
+     */
+    public ChessBoard(CharSequence fen) {
+        bits = new Bitboard();
+        pieceCache = new ChessPiece[64];
+        moveBuffer = new int[MoveGenerator.MAX_MOVES];
+        seeGain = new int[Bitboard.SEE_BUFFER];
+        moveHistory = new ArrayList<>();
+        Fen.load(bits, fen);
+    }
+    
     /**
      * Initialize the chess board with pieces in starting positions
      */
     private void initializeBoard() {
-        // Place white pieces
-        board[7][0] = new Rook(PieceColor.WHITE, new Position(7, 0));
-        board[7][1] = new Knight(PieceColor.WHITE, new Position(7, 1));
-        board[7][2] = new Bishop(PieceColor.WHITE, new Position(7, 2));
-        board[7][3] = new Queen(PieceColor.WHITE, new Position(7, 3));
-        board[7][4] = new King(PieceColor.WHITE, new Position(7, 4));
-        board[7][5] = new Bishop(PieceColor.WHITE, new Position(7, 5));
-        board[7][6] = new Knight(PieceColor.WHITE, new Position(7, 6));
-        board[7][7] = new Rook(PieceColor.WHITE, new Position(7, 7));
-        
-        for (int col = 0; col < BOARD_SIZE; col++) {
-            board[6][col] = new Pawn(PieceColor.WHITE, new Position(6, col));
-        }
-        
-        // Place black pieces
-        board[0][0] = new Rook(PieceColor.BLACK, new Position(0, 0));
-        board[0][1] = new Knight(PieceColor.BLACK, new Position(0, 1));
-        board[0][2] = new Bishop(PieceColor.BLACK, new Position(0, 2));
-        board[0][3] = new Queen(PieceColor.BLACK, new Position(0, 3));
-        board[0][4] = new King(PieceColor.BLACK, new Position(0, 4));
-        board[0][5] = new Bishop(PieceColor.BLACK, new Position(0, 5));
-        board[0][6] = new Knight(PieceColor.BLACK, new Position(0, 6));
-        board[0][7] = new Rook(PieceColor.BLACK, new Position(0, 7));
-        
         for (int col = 0; col < BOARD_SIZE; col++) {
-            board[1][col] = new Pawn(PieceColor.BLACK, new Position(1, col));
+            // Place white pieces
+            bits.addPiece(toCode(PieceColor.WHITE, BACK_RANK[col]), Bitboard.square(7, col));
+            bits.addPiece(toCode(PieceColor.WHITE, PieceType.PAWN), Bitboard.square(6, col));
+            
+            // Place black pieces
+            bits.addPiece(toCode(PieceColor.BLACK, BACK_RANK[col]), Bitboard.square(0, col));
+            bits.addPiece(toCode(PieceColor.BLACK, PieceType.PAWN), Bitboard.square(1, col));
         }
+        bits.setSideToMove(Bitboard.WHITE);
+        bits.setCastlingRights(Bitboard.ALL_CASTLING);
     }
     
     /**
@@ -59,7 +72,7 @@ public class ChessBoard {
         if (!position.isValid()) {
             return null;
         }
-        return board[position.getRow()][position.getCol()];
+        return pieceAt(position.getSquare());
     }
     
     /**
@@ -67,7 +80,12 @@ public class ChessBoard {
      */
     public void setPieceAt(Position position, ChessPiece piece) {
         if (position.isValid()) {
-            board[position.getRow()][position.getCol()] = piece;
+            int square = position.getSquare();
+            bits.removePiece(square);
+            if (piece != null) {
+                bits.addPiece(toCode(piece.getColor(), piece.getType()), square);
+            }
+            pieceCache[square] = piece;
         }
     }
     
@@ -78,8 +96,10 @@ public class ChessBoard {
         if (!position.isValid()) {
             return null;
         }
-        ChessPiece piece = board[position.getRow()][position.getCol()];
-        board[position.getRow()][position.getCol()] = null;
+        int square = position.getSquare();
+        ChessPiece piece = pieceAt(square);
+        bits.removePiece(square);
+        pieceCache[square] = null;
         return piece;
     }
     
@@ -87,57 +107,147 @@ public class ChessBoard {
      * Check if a path between two positions is clear
      */
     public boolean isPathClear(Position from, Position to) {
-        int rowDir = Integer.compare(to.getRow() - from.getRow(), 0);
-        int colDir = Integer.compare(to.getCol() - from.getCol(), 0);
-        
-        int currentRow = from.getRow() + rowDir;
-        int currentCol = from.getCol() + colDir;
-        
-        while (currentRow != to.getRow() || currentCol != to.getCol()) {
-            if (board[currentRow][currentCol] != null) {
-                return false;
-            }
-            currentRow += rowDir;
-            currentCol += colDir;
-        }
-        
-        return true;
+        return (Attacks.between(from.getSquare(), to.getSquare()) & bits.occupied()) == 0;
     }
     
     /**
      * Make a move on the board
      */
     public boolean makeMove(Move move) {
-        ChessPiece piece = getPieceAt(move.getFrom());
+        int from = move.getFrom().getSquare();
+        int to = move.getTo().getSquare();
+        int code = findMove(from, to, move.getPromotionPiece());
         
-        if (piece == null || piece.getColor() != currentPlayer) {
-            return false;
-        }
-        
-        if (!piece.isValidMove(move.getTo(), this)) {
+        if (code == Move.NONE) {
             return false;
         }
         
         // Perform the move
-        ChessPiece capturedPiece = removePieceAt(move.getTo());
-        removePieceAt(move.getFrom());
-        setPieceAt(move.getTo(), piece);
+        StringBuilder san = new StringBuilder(8);
+        San.append(bits, code, san, moveBuffer);
+        ChessPiece piece = pieceAt(from);
+        ChessPiece capturedPiece = Move.flagsOf(code) == Move.EN_PASSANT
+                ? pieceAt(bits.sideToMove() == Bitboard.WHITE ? to - 8 : to + 8)
+                : pieceAt(to);
+        bits.make(code);
+        pieceCache[from] = null;
+        pieceCache[to] = piece;
         piece.setPosition(move.getTo());
         
+        if (Move.isPromotion(code)) {
+            move.setPromotionPiece(PROMOTION_TYPES[Move.promotionOf(code)]);
+        }
+        move.setCode(code);
+        move.setSan(san.toString());
         move.setCapturedPiece(capturedPiece);
         moveHistory.add(move);
         
-        // Switch players
-        currentPlayer = currentPlayer.opposite();
-        
         return true;
     }
     
+    /**
+     * Make a move given in standard algebraic notation, such as Nf3 or exd8=Q
+     */
+    public boolean makeMove(String san) {
+        return makeMove(San.parse(bits, san, 0, san.length(), moveBuffer));
+    }
+    
+    /**
+     * Make an encoded move, as recorded by Move.getCode, if it is legal here
+     */
+    public boolean makeMove(int code) {
+        if (code == Move.NONE) {
+            return false;
+        }
+        Move move = new Move(code);
+        if (Move.isPromotion(code)) {
+            move.setPromotionPiece(PROMOTION_TYPES[Move.promotionOf(code)]);
+        }
+        return makeMove(move);
+    }
+    
+    /**
+     * Take back the last move, returning it, or null if no move has been made
+     */
+    public Move undoMove() {
+        if (moveHistory.isEmpty() || bits.ply() == 0) {
+            return null;
+        }
+        bits.unmake();
+        // Piece objects along the undone move no longer match their squares
+        Arrays.fill(pieceCache, null);
+        return moveHistory.remove(moveHistory.size() - 1);
+    }
+    
+    /**
+     * Generate legal moves for the side to move into the given buffer, returning the count
+     */
+    public int generateMoves(int[] moves) {
+        return MoveGenerator.generateLegal(bits, moves, 0);
+    }
+    
+    /**
+     * Check whether the current player's king is attacked
+     */
+    public boolean isInCheck() {
+        return MoveGenerator.isInCheck(bits);
+    }
+    
+    /**
+     * Static exchange evaluation of an encoded move, see Bitboard.see.
+     * Reuses the board's swap list, so callers must not share a board across threads.
+     */
+    public int see(int move) {
+        return bits.see(move, seeGain);
+    }
+    
+    /**
+     * Get the 64-bit Zobrist key identifying the current position
+     */
+    public long hash() {
+        return bits.hash();
+    }
+    
+    /**
+     * Describe the current position in Forsyth-Edwards Notation
+     */
+    public String toFen() {
+        return Fen.toFen(bits);
+    }
+    
+    /**
+     * Get the underlying bitboard position
+     */
+    public Bitboard getBitboard() {
+        return bits;
+    }
+    
     /**
      * Get current player
      */
     public PieceColor getCurrentPlayer() {
-        return currentPlayer;
+        return bits.sideToMove() == Bitboard.WHITE ? PieceColor.WHITE : PieceColor.BLACK;
+    }
+    
+    /**
+     * Get the square a pawn may capture onto en passant, or null if there is none
+     */
+    public Position getEnPassantSquare() {
+        int square = bits.epSquare();
+        return square == Bitboard.NO_SQUARE ? null : Position.fromSquare(square);
+    }
+    
+    /**
+     * Check whether a player may still castle on the given side
+     */
+    public boolean hasCastlingRight(PieceColor color, boolean kingSide) {
+        int right;
+        if (color == PieceColor.WHITE) {
+            right = kingSide ? Bitboard.WHITE_KING_SIDE : Bitboard.WHITE_QUEEN_SIDE;
+        } else {
+            right = kingSide ? Bitboard.BLACK_KING_SIDE : Bitboard.BLACK_QUEEN_SIDE;
+        }
+        return (bits.castlingRights() & right) != 0;
     }
     
     /**
@@ -152,15 +262,10 @@ public class ChessBoard {
      */
     public String[][] getBoardState() {
         String[][] state = new String[BOARD_SIZE][BOARD_SIZE];
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece != null) {
-                    state[row][col] = piece.getColor().toString().charAt(0) + 
-                                     piece.getType().getSymbol();
-                } else {
-                    state[row][col] = null;
-                }
+        for (int square = 0; square < 64; square++) {
+            int piece = bits.pieceAt(square);
+            if (piece != Bitboard.NO_PIECE) {
+                state[Bitboard.rowOf(square)][Bitboard.colOf(square)] = PIECE_NAMES[piece];
             }
         }
         return state;
@@ -170,15 +275,94 @@ public class ChessBoard {
      * Find the king of specified color
      */
     public Position findKing(PieceColor color) {
-        for (int row = 0; row < BOARD_SIZE; row++) {
-            for (int col = 0; col < BOARD_SIZE; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece != null && piece.getType() == PieceType.KING && 
-                    piece.getColor() == color) {
-                    return new Position(row, col);
-                }
+        int square = bits.kingSquare(toColor(color));
+        return square < 0 ? null : Position.fromSquare(square);
+    }
+    
+    /**
+     * Find the generated move between two squares, or Move.NONE if there is none.
+     * Promotions default to a queen when no promotion piece is given.
+     */
+    private int findMove(int from, int to, PieceType promotion) {
+        int promotionType = promotion == null ? Bitboard.QUEEN : Bitboard.typeOf(toCode(PieceColor.WHITE, promotion));
+        int count = generateMoves(moveBuffer);
+        for (int i = 0; i < count; i++) {
+            int move = moveBuffer[i];
+            if (Move.fromOf(move) == from && Move.toOf(move) == to
+                    && (!Move.isPromotion(move) || Move.promotionOf(move) == promotionType)) {
+                return move;
             }
         }
-        return null;
+        return Move.NONE;
+    }
+    
+    /**
+     * Get the piece object for a square, creating it from the bitboard if needed
+     */
+    private ChessPiece pieceAt(int square) {
+        int code = bits.pieceAt(square);
+        if (code == Bitboard.NO_PIECE) {
+            return null;
+        }
+        ChessPiece piece = pieceCache[square];
+        if (piece == null || toCode(piece.getColor(), piece.getType()) != code) {
+            piece = createPiece(code, Position.fromSquare(square));
+            pieceCache[square] = piece;
+        }
+        return piece;
+    }
+    
+    private static ChessPiece createPiece(int code, Position position) {
+        PieceColor color = Bitboard.colorOf(code) == Bitboard.WHITE ? PieceColor.WHITE : PieceColor.BLACK;
+        ChessPiece piece;
+        switch (Bitboard.typeOf(code)) {
+            case Bitboard.PAWN:
+                piece = new Pawn(color, position);
+                // A pawn away from its starting rank has already moved
+                int startRow = color == PieceColor.WHITE ? 6 : 1;
+                if (position.getRow() != startRow) {
+                    piece.setPosition(position);
+                }
+                return piece;
+            case Bitboard.KNIGHT:
+                return new Knight(color, position);
+            case Bitboard.BISHOP:
+                return new Bishop(color, position);
+            case Bitboard.ROOK:
+                return new Rook(color, position);
+            case Bitboard.QUEEN:
+                return new Queen(color, position);
+            default:
+                return new King(color, position);
+        }
+    }
+    
+    static int toColor(PieceColor color) {
+        return color == PieceColor.WHITE ? Bitboard.WHITE : Bitboard.BLACK;
+    }
+    
+    static int toCode(PieceColor color, PieceType type) {
+        int pieceType;
+        switch (type) {
+            case PAWN:
+                pieceType = Bitboard.PAWN;
+                break;
+            case KNIGHT:
+                pieceType = Bitboard.KNIGHT;
+                break;
+            case BISHOP:
+                pieceType = Bitboard.BISHOP;
+                break;
+            case ROOK:
+                pieceType = Bitboard.ROOK;
+                break;
+            case QUEEN:
+                pieceType = Bitboard.QUEEN;
+                break;
+            default:
+                pieceType = Bitboard.KING;
+                break;
+        }
+        return Bitboard.piece(toColor(color), pieceType);
     }
 }
@@ -0,0 +1,251 @@
+package com.chess.model;
+
+/**
+ * Forsyth-Edwards Notation support for loading and saving arbitrary positions.
+ * The parser walks the characters once without splitting or creating strings,
+ * so test suites and position databases can be bulk-loaded into a reused board.
+ */
+public final class Fen {
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    
+    private static final String PIECE_LETTERS = "PNBRQKpnbrqk";
+    private static final String CASTLING_LETTERS = "KQkq";
+    /** The halfmove clock is packed into 16 bits of the board's undo stack; this leaves room to play on */
+    private static final int MAX_HALFMOVE = 9999;
+    private static final int MAX_FULLMOVE = 1_000_000;
+    
+    private Fen() {
+    }
+    
+    /**
+     * Replace the contents of a bitboard with the position described by a FEN string
+     */
+    public static void load(Bitboard board, CharSequence fen) {
+        load(board, fen, 0, fen.length());
+    }
+    
+    /**
+     * Replace the contents of a bitboard with the FEN found between start and end of a
+     * larger sequence, such as one line of a file. The halfmove clock and fullmove number
+     * may be omitted, as they are in EPD records.
+     */
+    public static void load(Bitboard board, CharSequence fen, int start, int end) {
+        int i = skipSpaces(fen, start, end);
+        board.clear();
+        
+        int rank = 7;
+        int file = 0;
+        for (; i < end && !isSpace(fen.charAt(i)); i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (file != 8 || rank == 0) {
+                    throw invalid(fen, start, end, "rank " + (rank + 1) + " does not have 8 squares");
+                }
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+                if (file > 8) {
+                    throw invalid(fen, start, end, "rank " + (rank + 1) + " has more than 8 squares");
+                }
+            } else {
+                int piece = PIECE_LETTERS.indexOf(c);
+                if (piece < 0) {
+                    throw invalid(fen, start, end, "unexpected character '" + c + "'");
+                }
+                if (file > 7) {
+                    throw invalid(fen, start, end, "rank " + (rank + 1) + " has more than 8 squares");
+                }
+                if (Bitboard.typeOf(piece) == Bitboard.PAWN && (rank == 0 || rank == 7)) {
+                    throw invalid(fen, start, end, "pawn on the first or last rank");
+                }
+                board.addPiece(piece, rank * 8 + file);
+                file++;
+            }
+        }
+        if (rank != 0 || file != 8) {
+            throw invalid(fen, start, end, "board does not have 8 ranks of 8 squares");
+        }
+        if (Long.bitCount(board.pieces(Bitboard.WHITE, Bitboard.KING)) != 1
+                || Long.bitCount(board.pieces(Bitboard.BLACK, Bitboard.KING)) != 1) {
+            throw invalid(fen, start, end, "each side needs exactly one king");
+        }
+        
+        i = skipSpaces(fen, i, end);
+        char side = i < end ? fen.charAt(i++) : ' ';
+        if (side != 'w' && side != 'b' || i < end && !isSpace(fen.charAt(i))) {
+            throw invalid(fen, start, end, "side to move must be w or b");
+        }
+        board.setSideToMove(side == 'w' ? Bitboard.WHITE : Bitboard.BLACK);
+        int opponent = board.sideToMove() ^ 1;
+        if (board.isAttacked(board.kingSquare(opponent), board.sideToMove())) {
+            throw invalid(fen, start, end, "the side not to move is in check");
+        }
+        
+        i = skipSpaces(fen, i, end);
+        int rights = 0;
+        if (i < end && fen.charAt(i) == '-') {
+            i++;
+        } else {
+            for (; i < end && !isSpace(fen.charAt(i)); i++) {
+                int right = CASTLING_LETTERS.indexOf(fen.charAt(i));
+                if (right < 0) {
+                    throw invalid(fen, start, end, "unexpected castling character '" + fen.charAt(i) + "'");
+                }
+                rights |= 1 << right;
+            }
+        }
+        board.setCastlingRights(rights & castlingAllowed(board));
+        
+        i = skipSpaces(fen, i, end);
+        if (i < end && fen.charAt(i) == '-') {
+            i++;
+        } else if (i < end) {
+            int epFile = fen.charAt(i) - 'a';
+            int epRank = i + 1 < end ? fen.charAt(i + 1) - '1' : -1;
+            int expected = side == 'w' ? 5 : 2;
+            if (epFile < 0 || epFile > 7 || epRank != expected) {
+                throw invalid(fen, start, end, "invalid en passant square");
+            }
+            // The pawn that just moved two squares, and the two squares it passed, must agree
+            int ep = epRank * 8 + epFile;
+            int forward = side == 'w' ? 8 : -8;
+            if (board.pieceAt(ep - forward) != Bitboard.piece(opponent, Bitboard.PAWN)
+                    || board.pieceAt(ep) != Bitboard.NO_PIECE || board.pieceAt(ep + forward) != Bitboard.NO_PIECE) {
+                throw invalid(fen, start, end, "en passant square without a pawn that just moved past it");
+            }
+            board.setEpSquare(ep);
+            i += 2;
+        }
+        
+        i = skipSpaces(fen, i, end);
+        if (i < end) {
+            int halfmove = 0;
+            for (; i < end && !isSpace(fen.charAt(i)); i++) {
+                halfmove = halfmove * 10 + digit(fen, i, start, end);
+                if (halfmove > MAX_HALFMOVE) {
+                    throw invalid(fen, start, end, "halfmove clock above " + MAX_HALFMOVE);
+                }
+            }
+            board.setHalfmoveClock(halfmove);
+            
+            i = skipSpaces(fen, i, end);
+            if (i < end) {
+                int fullmove = 0;
+                for (; i < end && !isSpace(fen.charAt(i)); i++) {
+                    fullmove = fullmove * 10 + digit(fen, i, start, end);
+                    if (fullmove > MAX_FULLMOVE) {
+                        throw invalid(fen, start, end, "fullmove number above " + MAX_FULLMOVE);
+                    }
+                }
+                board.setFullmoveNumber(Math.max(1, fullmove));
+            }
+        }
+    }
+    
+    /**
+     * Describe a position as a FEN string
+     */
+    public static String toFen(Bitboard board) {
+        StringBuilder fen = new StringBuilder(90);
+        append(board, fen);
+        return fen.toString();
+    }
+    
+    /**
+     * Append the FEN of a position to a builder, for writing many positions without temporary strings
+     */
+    public static void append(Bitboard board, StringBuilder fen) {
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = board.pieceAt(rank * 8 + file);
+                if (piece == Bitboard.NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                fen.append(PIECE_LETTERS.charAt(piece));
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (rank > 0) {
+                fen.append('/');
+            }
+        }
+        
+        fen.append(board.sideToMove() == Bitboard.WHITE ? " w " : " b ");
+        int rights = board.castlingRights();
+        if (rights == 0) {
+            fen.append('-');
+        }
+        for (int right = 0; right < 4; right++) {
+            if ((rights & (1 << right)) != 0) {
+                fen.append(CASTLING_LETTERS.charAt(right));
+            }
+        }
+        
+        int ep = board.epSquare();
+        if (ep == Bitboard.NO_SQUARE) {
+            fen.append(" -");
+        } else {
+            fen.append(' ').append((char) ('a' + (ep & 7))).append((char) ('1' + (ep >>> 3)));
+        }
+        fen.append(' ').append(board.halfmoveClock()).append(' ').append(board.fullmoveNumber());
+    }
+    
+    /**
+     * Castling rights that the king and rook placement still allows; FENs in
+     * the wild sometimes claim rights whose pieces have already moved
+     */
+    private static int castlingAllowed(Bitboard board) {
+        int allowed = 0;
+        if (board.pieceAt(4) == Bitboard.piece(Bitboard.WHITE, Bitboard.KING)) {
+            if (board.pieceAt(7) == Bitboard.piece(Bitboard.WHITE, Bitboard.ROOK)) {
+                allowed |= Bitboard.WHITE_KING_SIDE;
+            }
+            if (board.pieceAt(0) == Bitboard.piece(Bitboard.WHITE, Bitboard.ROOK)) {
+                allowed |= Bitboard.WHITE_QUEEN_SIDE;
+            }
+        }
+        if (board.pieceAt(60) == Bitboard.piece(Bitboard.BLACK, Bitboard.KING)) {
+            if (board.pieceAt(63) == Bitboard.piece(Bitboard.BLACK, Bitboard.ROOK)) {
+                allowed |= Bitboard.BLACK_KING_SIDE;
+            }
+            if (board.pieceAt(56) == Bitboard.piece(Bitboard.BLACK, Bitboard.ROOK)) {
+                allowed |= Bitboard.BLACK_QUEEN_SIDE;
+            }
+        }
+        return allowed;
+    }
+    
+    private static int skipSpaces(CharSequence fen, int i, int end) {
+        while (i < end && isSpace(fen.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+    
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+    
+    private static int digit(CharSequence fen, int i, int start, int end) {
+        char c = fen.charAt(i);
+        if (c < '0' || c > '9') {
+            throw invalid(fen, start, end, "move counters must be numbers");
+        }
+        return c - '0';
+    }
+    
+    /**
+     * Build the exception; only this error path creates strings
+     */
+    private static IllegalArgumentException invalid(CharSequence fen, int start, int end, String reason) {
+        return new IllegalArgumentException("Invalid FEN (" + reason + "): " + fen.subSequence(start, end));
+    }
+}
@@ -1,14 +1,28 @@
 package com.chess.model;
 
 /**
- * Represents a chess move from one position to another
+ * Represents a chess move from one position to another.
+ * Moves are also encoded as primitive ints for the move generator:
+ * bits 0-5 hold the from square, bits 6-11 the to square and bits 12-15 the flags.
  */
 public class Move {
+    public static final int NONE = 0;
+    
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8;
+    
     private Position from;
     private Position to;
     private ChessPiece capturedPiece;
     private boolean isPromotion;
     private PieceType promotionPiece;
+    private String san;
+    private transient int code;
     
     public Move(Position from, Position to) {
         this.from = from;
@@ -22,6 +36,16 @@ public class Move {
         this.isPromotion = false;
     }
     
+    /**
+     * Create a move from its primitive encoding
+     */
+    public Move(int code) {
+        this.from = Position.fromSquare(fromOf(code));
+        this.to = Position.fromSquare(toOf(code));
+        this.code = code;
+        this.isPromotion = false;
+    }
+    
     public Position getFrom() {
         return from;
     }
@@ -59,6 +83,73 @@ public class Move {
         return capturedPiece != null;
     }
     
+    /**
+     * Standard algebraic notation, set when the move is made on a board
+     */
+    public String getSan() {
+        return san;
+    }
+    
+    public void setSan(String san) {
+        this.san = san;
+    }
+    
+    /**
+     * Get the primitive encoding, or NONE if this move has not been matched to one
+     */
+    public int getCode() {
+        return code;
+    }
+    
+    public void setCode(int code) {
+        this.code = code;
+    }
+    
+    /**
+     * Encode a move as an int
+     */
+    public static int encode(int from, int to, int flags) {
+        return from | (to << 6) | (flags << 12);
+    }
+    
+    public static int fromOf(int move) {
+        return move & 0x3F;
+    }
+    
+    public static int toOf(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+    
+    public static int flagsOf(int move) {
+        return (move >>> 12) & 0xF;
+    }
+    
+    public static boolean isCapture(int move) {
+        return (move & (CAPTURE << 12)) != 0;
+    }
+    
+    public static boolean isPromotion(int move) {
+        return (move & (PROMOTION << 12)) != 0;
+    }
+    
+    /**
+     * Bitboard piece type a promotion move promotes to
+     */
+    public static int promotionOf(int move) {
+        return Bitboard.KNIGHT + ((move >>> 12) & 3);
+    }
+    
+    /**
+     * Coordinate notation for an encoded move, e.g. e2e4 or e7e8q
+     */
+    public static String toCoordinate(int move) {
+        String text = Position.fromSquare(fromOf(move)).toAlgebraic() + Position.fromSquare(toOf(move)).toAlgebraic();
+        if (isPromotion(move)) {
+            text += "nbrq".charAt(promotionOf(move) - Bitboard.KNIGHT);
+        }
+        return text;
+    }
+    
     @Override
     public String toString() {
         return from.toString() + "-" + to.toString();
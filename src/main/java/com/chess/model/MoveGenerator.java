@@ -0,0 +1,351 @@
+package com.chess.model;
+
+import static com.chess.model.Bitboard.*;
+
+/**
+ * Bitboard move generator writing int-encoded moves into a caller supplied buffer.
+ * Generation never allocates, so one buffer can be reused across calls.
+ *
+ * Legal generation works from a check mask and pin rays computed once per call,
+ * so it costs about the same as pseudo-legal generation and never tries a move
+ * on the board to see whether the king is left in check.
+ */
+public final class MoveGenerator {
+    /** Upper bound on the number of moves in any legal chess position */
+    public static final int MAX_MOVES = 256;
+    
+    // Kinds of moves to generate
+    private static final int TACTICAL = 1;
+    private static final int QUIET = 2;
+    private static final int ALL = TACTICAL | QUIET;
+    
+    static final long FILE_A = 0x0101010101010101L;
+    static final long FILE_H = FILE_A << 7;
+    static final long RANK_1 = 0xFFL;
+    static final long RANK_3 = RANK_1 << 16;
+    static final long RANK_6 = RANK_1 << 40;
+    static final long RANK_8 = RANK_1 << 56;
+    
+    private MoveGenerator() {
+    }
+    
+    /**
+     * Generate legal moves for the side to move.
+     * Moves are written from index start onwards; the new end index is returned.
+     */
+    public static int generateLegal(Bitboard board, int[] moves, int start) {
+        return generate(board, ALL, -1L, moves, start);
+    }
+    
+    /**
+     * Generate legal captures, en passant and promotions: the moves a search tries first
+     */
+    public static int generateTactical(Bitboard board, int[] moves, int start) {
+        return generate(board, TACTICAL, -1L, moves, start);
+    }
+    
+    /**
+     * Generate the legal moves generateTactical leaves out: quiet moves and castling
+     */
+    public static int generateQuiet(Bitboard board, int[] moves, int start) {
+        return generate(board, QUIET, -1L, moves, start);
+    }
+    
+    /**
+     * Generate the legal moves of the piece on one square.
+     * Cheap enough to check a remembered move (hash or killer move) before trying it.
+     */
+    public static int generateFrom(Bitboard board, int square, int[] moves, int start) {
+        return generate(board, ALL, 1L << square, moves, start);
+    }
+    
+    /**
+     * Legal generation of the given kinds of moves for pieces standing on the from mask
+     */
+    private static int generate(Bitboard board, int kinds, long fromMask, int[] moves, int start) {
+        int us = board.sideToMove();
+        int king = board.kingSquare(us);
+        if (king < 0) {
+            return generatePseudoLegal(board, moves, start);
+        }
+        
+        long enemy = board.occupancy(us ^ 1);
+        long occupied = board.occupied();
+        long checkers = board.attackersTo(king, occupied) & enemy;
+        long danger = attackedSquares(board, us ^ 1, occupied & ~(1L << king));
+        long kindMask = ((kinds & TACTICAL) != 0 ? enemy : 0L) | ((kinds & QUIET) != 0 ? ~occupied : 0L);
+        
+        int count = start;
+        boolean kingMoves = (fromMask & (1L << king)) != 0;
+        if (kingMoves) {
+            count = addMoves(king, Attacks.king(king) & ~board.occupancy(us) & ~danger & kindMask, enemy, moves, count);
+        }
+        if (Long.bitCount(checkers) > 1) {
+            // Only the king can escape a double check
+            return count;
+        }
+        
+        long checkMask = -1L;
+        if (checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            checkMask = Attacks.between(king, checker) | checkers;
+        } else if (kingMoves && (kinds & QUIET) != 0) {
+            count = addCastling(board, danger, moves, count);
+        }
+        count = generatePieceMoves(board, pinnedPieces(board, us, king), king, checkMask, kinds, fromMask, moves, count);
+        if ((kinds & TACTICAL) == 0) {
+            return count;
+        }
+        return addEnPassant(board, king, checkers, fromMask, moves, count);
+    }
+    
+    /**
+     * Generate pseudo-legal moves for the side to move, ignoring checks and pins.
+     * Moves are written from index start onwards; the new end index is returned.
+     */
+    public static int generatePseudoLegal(Bitboard board, int[] moves, int start) {
+        int us = board.sideToMove();
+        int count = generatePieceMoves(board, 0L, -1, -1L, ALL, -1L, moves, start);
+        
+        int king = board.kingSquare(us);
+        if (king >= 0) {
+            count = addMoves(king, Attacks.king(king) & ~board.occupancy(us), board.occupancy(us ^ 1), moves, count);
+            if (board.castlingRights() != 0) {
+                count = addCastling(board, attackedSquares(board, us ^ 1, board.occupied()), moves, count);
+            }
+        }
+        return addEnPassant(board, -1, 0L, -1L, moves, count);
+    }
+    
+    /**
+     * Check whether the side to move is in check
+     */
+    public static boolean isInCheck(Bitboard board) {
+        int us = board.sideToMove();
+        int king = board.kingSquare(us);
+        return king >= 0 && board.isAttacked(king, us ^ 1);
+    }
+    
+    /**
+     * Generate the given kinds of non-king moves whose target lies in checkMask.
+     * Pinned pieces are further restricted to the line through their king.
+     */
+    private static int generatePieceMoves(Bitboard board, long pinned, int king, long checkMask,
+                                          int kinds, long fromMask, int[] moves, int count) {
+        int us = board.sideToMove();
+        long enemy = board.occupancy(us ^ 1);
+        long occupied = board.occupied();
+        long pawnTargets = ~board.occupancy(us) & checkMask;
+        long kindMask = ((kinds & TACTICAL) != 0 ? enemy : 0L) | ((kinds & QUIET) != 0 ? ~occupied : 0L);
+        long targets = pawnTargets & kindMask;
+        
+        long pawns = board.pieces(us, PAWN) & fromMask;
+        count = addPawnMoves(board, pawns & ~pinned, pawnTargets, kinds, moves, count);
+        long pinnedPawns = pawns & pinned;
+        while (pinnedPawns != 0) {
+            long pawn = pinnedPawns & -pinnedPawns;
+            pinnedPawns ^= pawn;
+            long line = Attacks.line(king, Long.numberOfTrailingZeros(pawn));
+            count = addPawnMoves(board, pawn, pawnTargets & line, kinds, moves, count);
+        }
+        
+        // A pinned knight can never move
+        long knights = board.pieces(us, KNIGHT) & ~pinned & fromMask;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            count = addMoves(from, Attacks.knight(from) & targets, enemy, moves, count);
+        }
+        
+        long diagonal = (board.pieces(us, BISHOP) | board.pieces(us, QUEEN)) & fromMask;
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            diagonal &= diagonal - 1;
+            long attacks = Attacks.bishop(from, occupied) & targets;
+            if ((pinned & (1L << from)) != 0) {
+                attacks &= Attacks.line(king, from);
+            }
+            count = addMoves(from, attacks, enemy, moves, count);
+        }
+        
+        long orthogonal = (board.pieces(us, ROOK) | board.pieces(us, QUEEN)) & fromMask;
+        while (orthogonal != 0) {
+            int from = Long.numberOfTrailingZeros(orthogonal);
+            orthogonal &= orthogonal - 1;
+            long attacks = Attacks.rook(from, occupied) & targets;
+            if ((pinned & (1L << from)) != 0) {
+                attacks &= Attacks.line(king, from);
+            }
+            count = addMoves(from, attacks, enemy, moves, count);
+        }
+        return count;
+    }
+    
+    /**
+     * Add pawn moves; promotions count as tactical even without a capture
+     */
+    private static int addPawnMoves(Bitboard board, long pawns, long targets, int kinds, int[] moves, int count) {
+        int us = board.sideToMove();
+        long enemy = board.occupancy(us ^ 1);
+        long empty = ~board.occupied();
+        int forward = us == WHITE ? 8 : -8;
+        
+        long single = shift(pawns, forward) & empty;
+        if ((kinds & QUIET) != 0) {
+            long doubled = shift(single & (us == WHITE ? RANK_3 : RANK_6), forward) & empty;
+            count = addPawnMoves(single & targets & ~(RANK_1 | RANK_8), forward, Move.QUIET, moves, count);
+            count = addPawnMoves(doubled & targets, 2 * forward, Move.DOUBLE_PAWN_PUSH, moves, count);
+        }
+        if ((kinds & TACTICAL) != 0) {
+            long captureWest = shift(pawns & ~FILE_A, forward - 1) & enemy;
+            long captureEast = shift(pawns & ~FILE_H, forward + 1) & enemy;
+            count = addPawnMoves(single & targets & (RANK_1 | RANK_8), forward, Move.QUIET, moves, count);
+            count = addPawnMoves(captureWest & targets, forward - 1, Move.CAPTURE, moves, count);
+            count = addPawnMoves(captureEast & targets, forward + 1, Move.CAPTURE, moves, count);
+        }
+        return count;
+    }
+    
+    private static int addPawnMoves(long targets, int offset, int flags, int[] moves, int count) {
+        long promotions = targets & (RANK_1 | RANK_8);
+        targets ^= promotions;
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[count++] = Move.encode(to - offset, to, flags);
+        }
+        while (promotions != 0) {
+            int to = Long.numberOfTrailingZeros(promotions);
+            promotions &= promotions - 1;
+            // Queen first; the low two flag bits select knight, bishop, rook or queen
+            for (int piece = 3; piece >= 0; piece--) {
+                moves[count++] = Move.encode(to - offset, to, flags | Move.PROMOTION | piece);
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Add castling moves allowed by the castling rights, given the squares the enemy attacks.
+     * The rights guarantee that king and rook are still on their original squares.
+     */
+    private static int addCastling(Bitboard board, long danger, int[] moves, int count) {
+        int rights = board.castlingRights();
+        long occupied = board.occupied();
+        if (board.sideToMove() == WHITE) {
+            if ((rights & WHITE_KING_SIDE) != 0 && (occupied & 0x60L) == 0 && (danger & 0x70L) == 0) {
+                moves[count++] = Move.encode(4, 6, Move.KING_CASTLE);
+            }
+            if ((rights & WHITE_QUEEN_SIDE) != 0 && (occupied & 0x0EL) == 0 && (danger & 0x1CL) == 0) {
+                moves[count++] = Move.encode(4, 2, Move.QUEEN_CASTLE);
+            }
+        } else {
+            if ((rights & BLACK_KING_SIDE) != 0 && (occupied & (0x60L << 56)) == 0 && (danger & (0x70L << 56)) == 0) {
+                moves[count++] = Move.encode(60, 62, Move.KING_CASTLE);
+            }
+            if ((rights & BLACK_QUEEN_SIDE) != 0 && (occupied & (0x0EL << 56)) == 0 && (danger & (0x1CL << 56)) == 0) {
+                moves[count++] = Move.encode(60, 58, Move.QUEEN_CASTLE);
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Add en passant captures. With a king square the captures are checked for legality:
+     * both pawns leave their squares at once, which can expose the king along a rank,
+     * so the slider test is repeated on the resulting occupancy.
+     */
+    private static int addEnPassant(Bitboard board, int king, long checkers, long fromMask, int[] moves, int count) {
+        int ep = board.epSquare();
+        if (ep == NO_SQUARE) {
+            return count;
+        }
+        int us = board.sideToMove();
+        int them = us ^ 1;
+        int victim = us == WHITE ? ep - 8 : ep + 8;
+        long attackers = Attacks.pawn(them, ep) & board.pieces(us, PAWN) & fromMask;
+        
+        while (attackers != 0) {
+            int from = Long.numberOfTrailingZeros(attackers);
+            attackers &= attackers - 1;
+            if (king >= 0) {
+                long occupied = (board.occupied() ^ (1L << from) ^ (1L << victim)) | (1L << ep);
+                long queens = board.pieces(them, QUEEN);
+                if ((Attacks.rook(king, occupied) & (board.pieces(them, ROOK) | queens)) != 0
+                        || (Attacks.bishop(king, occupied) & (board.pieces(them, BISHOP) | queens)) != 0
+                        || (checkers & (board.pieces(them, KNIGHT) | board.pieces(them, PAWN)) & ~(1L << victim)) != 0) {
+                    continue;
+                }
+            }
+            moves[count++] = Move.encode(from, ep, Move.EN_PASSANT);
+        }
+        return count;
+    }
+    
+    private static int addMoves(int from, long targets, long enemy, int[] moves, int count) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            int flags = (enemy & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET;
+            moves[count++] = Move.encode(from, to, flags);
+        }
+        return count;
+    }
+    
+    /**
+     * Own pieces that are the only blocker between the king and an enemy slider
+     */
+    static long pinnedPieces(Bitboard board, int us, int king) {
+        int them = us ^ 1;
+        long enemy = board.occupancy(them);
+        long queens = board.pieces(them, QUEEN);
+        long snipers = (Attacks.rook(king, enemy) & (board.pieces(them, ROOK) | queens))
+                     | (Attacks.bishop(king, enemy) & (board.pieces(them, BISHOP) | queens));
+        
+        long pinned = 0L;
+        long occupied = board.occupied();
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.between(king, sniper) & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers & board.occupancy(us);
+            }
+        }
+        return pinned;
+    }
+    
+    /**
+     * Every square attacked by the given color for an occupancy set
+     */
+    static long attackedSquares(Bitboard board, int color, long occupied) {
+        long pawns = board.pieces(color, PAWN);
+        int forward = color == WHITE ? 8 : -8;
+        long attacked = shift(pawns & ~FILE_A, forward - 1) | shift(pawns & ~FILE_H, forward + 1);
+        
+        long knights = board.pieces(color, KNIGHT);
+        while (knights != 0) {
+            attacked |= Attacks.knight(Long.numberOfTrailingZeros(knights));
+            knights &= knights - 1;
+        }
+        long diagonal = board.pieces(color, BISHOP) | board.pieces(color, QUEEN);
+        while (diagonal != 0) {
+            attacked |= Attacks.bishop(Long.numberOfTrailingZeros(diagonal), occupied);
+            diagonal &= diagonal - 1;
+        }
+        long orthogonal = board.pieces(color, ROOK) | board.pieces(color, QUEEN);
+        while (orthogonal != 0) {
+            attacked |= Attacks.rook(Long.numberOfTrailingZeros(orthogonal), occupied);
+            orthogonal &= orthogonal - 1;
+        }
+        int king = board.kingSquare(color);
+        if (king >= 0) {
+            attacked |= Attacks.king(king);
+        }
+        return attacked;
+    }
+    
+    static long shift(long bits, int offset) {
+        return offset > 0 ? bits << offset : bits >>> -offset;
+    }
+}
@@ -4,6 +4,14 @@ package com.chess.model;
  * Represents a position on the chess board using coordinates
  */
 public class Position {
+    private static final Position[] SQUARES = new Position[64];
+    
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new Position(Bitboard.rowOf(square), Bitboard.colOf(square));
+        }
+    }
+    
     private final int row;
     private final int col;
     
@@ -35,6 +43,20 @@ public class Position {
         return col;
     }
     
+    /**
+     * Get the bitboard square index (a1 = 0, h8 = 63)
+     */
+    public int getSquare() {
+        return Bitboard.square(row, col);
+    }
+    
+    /**
+     * Get the shared position instance for a bitboard square index
+     */
+    public static Position fromSquare(int square) {
+        return SQUARES[square];
+    }
+    
     public String toAlgebraic() {
         return String.valueOf((char)('a' + col)) + (8 - row);
     }
@@ -0,0 +1,302 @@
+package com.chess.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Standard algebraic notation (Nbd7, exd8=Q+, O-O) for encoded moves.
+ * Parsing narrows the candidate pieces with attack sets on the target square and
+ * only generates moves for those, so a SAN move costs a few bitboard lookups.
+ * Writing disambiguates against the same attack sets, dropping rivals that a pin
+ * or check keeps from reaching the square, without generating their moves.
+ */
+public final class San {
+    private static final String PIECE_LETTERS = "PNBRQK";
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long RANK_1 = 0xFFL;
+    
+    private San() {
+    }
+    
+    /**
+     * SAN for a legal move in this position
+     */
+    public static String toSan(Bitboard board, int move) {
+        StringBuilder san = new StringBuilder(8);
+        append(board, move, san, new int[MoveGenerator.MAX_MOVES]);
+        return san.toString();
+    }
+    
+    /**
+     * SAN for a line of legal moves starting in this position, such as a principal
+     * variation. The moves are played and taken back, leaving the board unchanged.
+     */
+    public static List<String> toSan(Bitboard board, int[] line) {
+        List<String> sans = new ArrayList<>(line.length);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        StringBuilder san = new StringBuilder(8);
+        for (int move : line) {
+            san.setLength(0);
+            append(board, move, san, moves);
+            sans.add(san.toString());
+            board.make(move);
+        }
+        for (int i = 0; i < line.length; i++) {
+            board.unmake();
+        }
+        return sans;
+    }
+    
+    /**
+     * Append the SAN of a legal move, with a check or mate suffix. The moves buffer
+     * is scratch space for detecting mate, so nothing is allocated.
+     */
+    public static void append(Bitboard board, int move, StringBuilder san, int[] moves) {
+        int from = Move.fromOf(move);
+        int to = Move.toOf(move);
+        int flags = Move.flagsOf(move);
+        int type = Bitboard.typeOf(board.pieceAt(from));
+        
+        if (flags == Move.KING_CASTLE) {
+            san.append("O-O");
+        } else if (flags == Move.QUEEN_CASTLE) {
+            san.append("O-O-O");
+        } else {
+            if (type == Bitboard.PAWN) {
+                if (Move.isCapture(move)) {
+                    san.append((char) ('a' + (from & 7)));
+                }
+            } else {
+                san.append(PIECE_LETTERS.charAt(type));
+                long rivals = candidates(board, type, to, true) & ~(1L << from);
+                rivals = legalRivals(board, rivals, to);
+                if (rivals != 0) {
+                    if ((rivals & (FILE_A << (from & 7))) == 0) {
+                        san.append((char) ('a' + (from & 7)));
+                    } else if ((rivals & (RANK_1 << (from & 56))) == 0) {
+                        san.append((char) ('1' + (from >>> 3)));
+                    } else {
+                        san.append((char) ('a' + (from & 7))).append((char) ('1' + (from >>> 3)));
+                    }
+                }
+            }
+            if (Move.isCapture(move)) {
+                san.append('x');
+            }
+            san.append((char) ('a' + (to & 7))).append((char) ('1' + (to >>> 3)));
+            if (Move.isPromotion(move)) {
+                san.append('=').append(PIECE_LETTERS.charAt(Move.promotionOf(move)));
+            }
+        }
+        
+        board.make(move);
+        if (MoveGenerator.isInCheck(board)) {
+            san.append(MoveGenerator.generateLegal(board, moves, 0) == 0 ? '#' : '+');
+        }
+        board.unmake();
+    }
+    
+    /**
+     * Rival pieces whose move to the target square would not leave their own king attacked
+     */
+    private static long legalRivals(Bitboard board, long rivals, int to) {
+        int side = board.sideToMove();
+        int king = board.kingSquare(side);
+        long target = 1L << to;
+        long enemies = board.occupancy(side ^ 1) & ~target;
+        long legal = 0L;
+        while (rivals != 0) {
+            long rival = rivals & -rivals;
+            rivals ^= rival;
+            long occupied = (board.occupied() ^ rival) | target;
+            if ((board.attackersTo(king, occupied) & enemies) == 0) {
+                legal |= rival;
+            }
+        }
+        return legal;
+    }
+    
+    /**
+     * Find the legal move a SAN string describes in this position, or Move.NONE
+     */
+    public static int parse(Bitboard board, CharSequence san) {
+        return parse(board, san, 0, san.length(), new int[MoveGenerator.MAX_MOVES]);
+    }
+    
+    /**
+     * Find the legal move described by the SAN between start and end of a larger
+     * sequence, or Move.NONE if it is malformed, illegal or ambiguous. Check,
+     * mate and annotation suffixes are ignored. The moves buffer is scratch space
+     * for the move generator, so nothing is allocated.
+     */
+    public static int parse(Bitboard board, CharSequence san, int start, int end, int[] moves) {
+        while (end > start && isSuffix(san.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+        int side = board.sideToMove();
+        
+        char first = san.charAt(start);
+        if (first == 'O' || first == '0') {
+            int flags;
+            if (isCastling(san, start, end, 3)) {
+                flags = Move.KING_CASTLE;
+            } else if (isCastling(san, start, end, 5)) {
+                flags = Move.QUEEN_CASTLE;
+            } else {
+                return Move.NONE;
+            }
+            int king = board.kingSquare(side);
+            int count = MoveGenerator.generateFrom(board, king, moves, 0);
+            for (int i = 0; i < count; i++) {
+                if (Move.flagsOf(moves[i]) == flags) {
+                    return moves[i];
+                }
+            }
+            return Move.NONE;
+        }
+        
+        int promotion = Bitboard.NO_PIECE;
+        char last = san.charAt(end - 1);
+        if (last >= 'A' && last <= 'Z' || "nbrq".indexOf(last) >= 0 && isRank(san.charAt(end - 2))) {
+            // Promotion piece, written e8=Q, e8Q or in lower case by some programs
+            promotion = PIECE_LETTERS.indexOf(Character.toUpperCase(last));
+            if (promotion < Bitboard.KNIGHT || promotion > Bitboard.QUEEN) {
+                return Move.NONE;
+            }
+            end--;
+            if (san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+        if (end - start < 2 || !isFile(san.charAt(end - 2)) || !isRank(san.charAt(end - 1))) {
+            return Move.NONE;
+        }
+        int to = (san.charAt(end - 1) - '1') * 8 + (san.charAt(end - 2) - 'a');
+        end -= 2;
+        
+        int type = Bitboard.PAWN;
+        int i = start;
+        if (first >= 'A' && first <= 'Z') {
+            type = PIECE_LETTERS.indexOf(first);
+            if (type <= Bitboard.PAWN) {
+                return Move.NONE;
+            }
+            i++;
+        }
+        
+        // Optional origin file and rank, then an optional capture mark
+        long hint = ~0L;
+        boolean capture = false;
+        for (; i < end; i++) {
+            char c = san.charAt(i);
+            if (isFile(c)) {
+                hint &= FILE_A << (c - 'a');
+            } else if (isRank(c)) {
+                hint &= RANK_1 << (8 * (c - '1'));
+            } else if ((c == 'x' || c == ':') && i == end - 1) {
+                capture = true;
+            } else if (c != '-') {
+                return Move.NONE;
+            }
+        }
+        if (type == Bitboard.PAWN && Long.bitCount(hint) == 1) {
+            // Long algebraic without a piece letter, such as g1f3: the origin names the piece
+            int occupant = board.pieceAt(Long.numberOfTrailingZeros(hint));
+            if (occupant == Bitboard.NO_PIECE || Bitboard.colorOf(occupant) != side) {
+                return Move.NONE;
+            }
+            type = Bitboard.typeOf(occupant);
+        }
+        boolean lastRank = to >>> 3 == (side == Bitboard.WHITE ? 7 : 0);
+        if ((promotion != Bitboard.NO_PIECE) != (type == Bitboard.PAWN && lastRank)) {
+            return Move.NONE;
+        }
+        
+        long candidates = candidates(board, type, to, capture);
+        if (type == Bitboard.PAWN && !capture && hint != ~0L) {
+            // An origin without 'x' may be a push (e2e4) or a capture written without the mark (ed5)
+            candidates |= candidates(board, type, to, true);
+        }
+        candidates &= hint;
+        int found = Move.NONE;
+        while (candidates != 0) {
+            int from = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            int count = MoveGenerator.generateFrom(board, from, moves, 0);
+            for (int m = 0; m < count; m++) {
+                int move = moves[m];
+                if (Move.toOf(move) == to && (promotion == Bitboard.NO_PIECE
+                        ? !Move.isPromotion(move) : Move.isPromotion(move) && Move.promotionOf(move) == promotion)) {
+                    if (found != Move.NONE) {
+                        return Move.NONE;
+                    }
+                    found = move;
+                }
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Pieces of the side to move that could reach the target square, ignoring pins
+     */
+    static long candidates(Bitboard board, int type, int to, boolean pawnCapture) {
+        int side = board.sideToMove();
+        long own = board.pieces(side, type);
+        long occupied = board.occupied();
+        switch (type) {
+            case Bitboard.PAWN:
+                if (pawnCapture) {
+                    return Attacks.pawn(side ^ 1, to) & own;
+                }
+                int behind = side == Bitboard.WHITE ? to - 8 : to + 8;
+                if (behind < 0 || behind > 63) {
+                    return 0L;
+                }
+                if ((own & (1L << behind)) != 0) {
+                    return 1L << behind;
+                }
+                int doubleFrom = side == Bitboard.WHITE ? to - 16 : to + 16;
+                boolean fourthRank = Bitboard.rowOf(to) == (side == Bitboard.WHITE ? 4 : 3);
+                return fourthRank && (occupied & (1L << behind)) == 0 ? own & (1L << doubleFrom) : 0L;
+            case Bitboard.KNIGHT:
+                return Attacks.knight(to) & own;
+            case Bitboard.BISHOP:
+                return Attacks.bishop(to, occupied) & own;
+            case Bitboard.ROOK:
+                return Attacks.rook(to, occupied) & own;
+            case Bitboard.QUEEN:
+                return Attacks.queen(to, occupied) & own;
+            default:
+                return Attacks.king(to) & own;
+        }
+    }
+    
+    private static boolean isCastling(CharSequence san, int start, int end, int length) {
+        if (end - start != length) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = san.charAt(i);
+            if ((i - start) % 2 == 0 ? c != 'O' && c != '0' : c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isSuffix(char c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+    
+    private static boolean isFile(char c) {
+        return c >= 'a' && c <= 'h';
+    }
+    
+    private static boolean isRank(char c) {
+        return c >= '1' && c <= '8';
+    }
+}
@@ -0,0 +1,105 @@
+package com.chess.model;
+
+/**
+ * Zobrist keys for 64-bit position hashing.
+ * Keys come from a fixed-seed generator so hashes are stable across runs
+ * and can be stored in files such as opening books.
+ */
+public final class Zobrist {
+    private static final long[][] PIECES = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT = new long[8];
+    private static final long SIDE;
+    
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                seed = next(seed);
+                PIECES[piece][square] = mix(seed);
+            }
+        }
+        for (int rights = 0; rights < 16; rights++) {
+            seed = next(seed);
+            CASTLING[rights] = mix(seed);
+        }
+        for (int file = 0; file < 8; file++) {
+            seed = next(seed);
+            EN_PASSANT[file] = mix(seed);
+        }
+        seed = next(seed);
+        SIDE = mix(seed);
+    }
+    
+    private Zobrist() {
+    }
+    
+    private static long next(long seed) {
+        return seed + 0x9E3779B97F4A7C15L;
+    }
+    
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    public static long piece(int piece, int square) {
+        return PIECES[piece][square];
+    }
+    
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+    
+    /**
+     * Key for an en passant square, or 0 when there is none
+     */
+    public static long enPassant(int square) {
+        return square == Bitboard.NO_SQUARE ? 0L : EN_PASSANT[square & 7];
+    }
+    
+    /**
+     * Key toggled when black is to move
+     */
+    public static long side() {
+        return SIDE;
+    }
+    
+    /**
+     * Hash a position from scratch
+     */
+    public static long compute(Bitboard board) {
+        long hash = 0L;
+        for (int piece = 0; piece < 12; piece++) {
+            long bits = board.pieces(piece);
+            while (bits != 0) {
+                hash ^= PIECES[piece][Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+            }
+        }
+        hash ^= CASTLING[board.castlingRights()];
+        hash ^= enPassant(board.epSquare());
+        if (board.sideToMove() == Bitboard.BLACK) {
+            hash ^= SIDE;
+        }
+        return hash;
+    }
+    
+    /**
+     * Hash only the pawns of a position from scratch
+     */
+    public static long computePawns(Bitboard board) {
+        long hash = 0L;
+        for (int color = Bitboard.WHITE; color <= Bitboard.BLACK; color++) {
+            int piece = Bitboard.piece(color, Bitboard.PAWN);
+            long bits = board.pieces(piece);
+            while (bits != 0) {
+                hash ^= PIECES[piece][Long.numberOfTrailingZeros(bits)];
+                bits &= bits - 1;
+            }
+        }
+        return hash;
+    }
+}
@@ -26,7 +26,12 @@ public class King extends ChessPiece {
             return targetPiece == null || targetPiece.getColor() != this.color;
         }
         
-        // TODO: Implement castling logic
+        // Castling: two squares sideways along the back rank with an empty path to the rook
+        if (rowDiff == 0 && colDiff == 2) {
+            boolean kingSide = target.getCol() > position.getCol();
+            Position rook = new Position(position.getRow(), kingSide ? 7 : 0);
+            return board.hasCastlingRight(color, kingSide) && board.isPathClear(position, rook);
+        }
         return false;
     }
 }
@@ -39,7 +39,10 @@ public class Pawn extends ChessPiece {
             if (targetPiece != null && targetPiece.getColor() != this.color) {
                 return true;
             }
-            // TODO: Implement en passant
+            // En passant onto the square the enemy pawn just skipped
+            if (targetPiece == null && target.equals(board.getEnPassantSquare())) {
+                return true;
+            }
         }
         
         return false;
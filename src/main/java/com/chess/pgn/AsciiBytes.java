@@ -0,0 +1,39 @@
+package com.chess.pgn;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CharSequence view over ASCII bytes, so the FEN and SAN parsers can read
+ * PGN text straight out of a batch buffer without decoding it to strings
+ */
+final class AsciiBytes implements CharSequence {
+    private byte[] data = new byte[0];
+    
+    void wrap(byte[] data) {
+        this.data = data;
+    }
+    
+    @Override
+    public int length() {
+        return data.length;
+    }
+    
+    @Override
+    public char charAt(int index) {
+        return (char) (data[index] & 0xFF);
+    }
+    
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString(data, start, end);
+    }
+    
+    @Override
+    public String toString() {
+        return toString(data, 0, data.length);
+    }
+    
+    static String toString(byte[] data, int start, int end) {
+        return new String(data, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,180 @@
+package com.chess.pgn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregate statistics of a corpus audit. Counters are LongAdders because every
+ * worker of the pool updates them for each game.
+ */
+public final class CorpusStats {
+    private static final int MAX_SAMPLED_ERRORS = 20;
+    
+    private final LongAdder games = new LongAdder();
+    private final LongAdder invalidGames = new LongAdder();
+    private final LongAdder positions = new LongAdder();
+    private final LongAdder invalidPositions = new LongAdder();
+    private final LongAdder whiteWins = new LongAdder();
+    private final LongAdder blackWins = new LongAdder();
+    private final LongAdder draws = new LongAdder();
+    private final LongAdder unfinished = new LongAdder();
+    private final LongAdder plies = new LongAdder();
+    private final LongAdder resultMismatches = new LongAdder();
+    private final LongAdder evaluatedPositions = new LongAdder();
+    private final LongAdder whiteBlunders = new LongAdder();
+    private final LongAdder blackBlunders = new LongAdder();
+    private final Queue<String> sampledErrors = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger errorCount = new AtomicInteger();
+    private volatile PgnStats throughput;
+    
+    /**
+     * Count a game that was replayed without an illegal move
+     */
+    public void addGame(String result, int plyCount, boolean resultMatchesBoard) {
+        games.increment();
+        plies.add(plyCount);
+        switch (result) {
+            case "1-0":
+                whiteWins.increment();
+                break;
+            case "0-1":
+                blackWins.increment();
+                break;
+            case "1/2-1/2":
+                draws.increment();
+                break;
+            default:
+                unfinished.increment();
+                break;
+        }
+        if (!resultMatchesBoard) {
+            resultMismatches.increment();
+        }
+    }
+    
+    /**
+     * Count a game or position that could not be loaded, keeping the first few reasons
+     */
+    public void addInvalid(boolean position, String where, String error) {
+        (position ? invalidPositions : invalidGames).increment();
+        if (errorCount.incrementAndGet() <= MAX_SAMPLED_ERRORS) {
+            sampledErrors.add(where + ": " + error);
+        }
+    }
+    
+    public void addPosition() {
+        positions.increment();
+    }
+    
+    public void addEvaluated(int count) {
+        evaluatedPositions.add(count);
+    }
+    
+    public void addBlunder(boolean white) {
+        (white ? whiteBlunders : blackBlunders).increment();
+    }
+    
+    public void setThroughput(PgnStats throughput) {
+        this.throughput = throughput;
+    }
+    
+    public long getGames() {
+        return games.sum();
+    }
+    
+    public long getInvalidGames() {
+        return invalidGames.sum();
+    }
+    
+    public long getPositions() {
+        return positions.sum();
+    }
+    
+    public long getInvalidPositions() {
+        return invalidPositions.sum();
+    }
+    
+    public long getWhiteWins() {
+        return whiteWins.sum();
+    }
+    
+    public long getBlackWins() {
+        return blackWins.sum();
+    }
+    
+    public long getDraws() {
+        return draws.sum();
+    }
+    
+    public long getUnfinished() {
+        return unfinished.sum();
+    }
+    
+    /**
+     * Games whose board ends in mate or stalemate but whose result tag says otherwise
+     */
+    public long getResultMismatches() {
+        return resultMismatches.sum();
+    }
+    
+    /**
+     * Average length of the valid games in full moves
+     */
+    public double getAverageMoves() {
+        long count = games.sum();
+        return count == 0 ? 0 : plies.sum() / 2.0 / count;
+    }
+    
+    public long getEvaluatedPositions() {
+        return evaluatedPositions.sum();
+    }
+    
+    public long getWhiteBlunders() {
+        return whiteBlunders.sum();
+    }
+    
+    public long getBlackBlunders() {
+        return blackBlunders.sum();
+    }
+    
+    public List<String> getSampledErrors() {
+        return new ArrayList<>(sampledErrors);
+    }
+    
+    /**
+     * Read throughput of the audit, or null before it has finished
+     */
+    public PgnStats getThroughput() {
+        return throughput;
+    }
+    
+    /**
+     * Multi-line summary for the command line
+     */
+    public String report() {
+        long count = Math.max(1, games.sum());
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Games:      %d valid, %d invalid%n", games.sum(), invalidGames.sum()));
+        report.append(String.format("Results:    1-0 %.1f%%, 0-1 %.1f%%, 1/2 %.1f%%, * %.1f%%%n",
+                whiteWins.sum() * 100.0 / count, blackWins.sum() * 100.0 / count,
+                draws.sum() * 100.0 / count, unfinished.sum() * 100.0 / count));
+        report.append(String.format("Length:     %.1f moves on average%n", getAverageMoves()));
+        report.append(String.format("Mismatches: %d results contradict the final position%n", resultMismatches.sum()));
+        report.append(String.format("Positions:  %d valid, %d invalid%n", positions.sum(), invalidPositions.sum()));
+        if (evaluatedPositions.sum() > 0) {
+            report.append(String.format("Blunders:   %d by white, %d by black in %d evaluated positions%n",
+                    whiteBlunders.sum(), blackBlunders.sum(), evaluatedPositions.sum()));
+        }
+        for (String error : sampledErrors) {
+            report.append("  ").append(error).append(System.lineSeparator());
+        }
+        if (throughput != null) {
+            report.append(throughput);
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package com.chess.pgn;
+
+import java.util.Arrays;
+
+/**
+ * Raw text of consecutive games, passed from the reader thread to the workers.
+ * Batches are recycled, so their buffers are allocated once per import.
+ */
+final class GameBatch {
+    byte[] data;
+    int length;
+    int[] starts;
+    int[] ends;
+    long[] offsets;
+    int[] files;
+    int count;
+    
+    GameBatch(int bytes, int games) {
+        data = new byte[bytes];
+        starts = new int[games];
+        ends = new int[games];
+        offsets = new long[games];
+        files = new int[games];
+    }
+    
+    void clear() {
+        length = 0;
+        count = 0;
+    }
+    
+    /**
+     * Copy a piece of the game being assembled to the end of the buffer, so the
+     * reader may reuse its chunk; a game spanning chunks arrives in several pieces.
+     * When the piece does not fit after the text already held, the buffer is
+     * replaced by one at least twice as large, which the batch keeps when recycled.
+     */
+    void append(byte[] source, int offset, int bytes) {
+        if (length + bytes > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + bytes));
+        }
+        System.arraycopy(source, offset, data, length, bytes);
+        length += bytes;
+    }
+    
+    /**
+     * Record a game running from start to the current end of the buffer, and where it came from
+     */
+    void addGame(int start, int file, long fileOffset) {
+        starts[count] = start;
+        ends[count] = length;
+        files[count] = file;
+        offsets[count] = fileOffset;
+        count++;
+    }
+    
+    boolean isFull() {
+        return count == starts.length || length >= data.length - data.length / 8;
+    }
+}
@@ -0,0 +1,151 @@
+package com.chess.pgn;
+
+import com.chess.model.Bitboard;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * One game read from a PGN file: its tag pairs, the moves of the main line and
+ * the final position. Each worker reuses a single instance, so a handler must
+ * copy whatever it wants to keep before returning.
+ */
+public final class PgnGame {
+    public static final String UNKNOWN_RESULT = "*";
+    
+    final Bitboard board = new Bitboard();
+    byte[] text;
+    int[] tagNames = new int[32];
+    int[] tagValues = new int[32];
+    int tagCount;
+    int[] moves = new int[256];
+    int moveCount;
+    String result = UNKNOWN_RESULT;
+    String error;
+    long offset;
+    Path file;
+    boolean position;
+    
+    void reset(byte[] text, long offset) {
+        this.text = text;
+        this.offset = offset;
+        tagCount = 0;
+        moveCount = 0;
+        result = UNKNOWN_RESULT;
+        error = null;
+        position = false;
+    }
+    
+    void addTag(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        if (tagCount * 2 == tagNames.length) {
+            tagNames = Arrays.copyOf(tagNames, tagNames.length * 2);
+            tagValues = Arrays.copyOf(tagValues, tagValues.length * 2);
+        }
+        tagNames[tagCount * 2] = nameStart;
+        tagNames[tagCount * 2 + 1] = nameEnd;
+        tagValues[tagCount * 2] = valueStart;
+        tagValues[tagCount * 2 + 1] = valueEnd;
+        tagCount++;
+    }
+    
+    void addMove(int move) {
+        if (moveCount == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[moveCount++] = move;
+    }
+    
+    /**
+     * Value of a tag pair such as White or Event, or null if the game does not have it
+     */
+    public String tag(String name) {
+        int i = findTag(name);
+        return i < 0 ? null : AsciiBytes.toString(text, tagValues[i * 2], tagValues[i * 2 + 1]);
+    }
+    
+    /**
+     * Index of a tag pair, or -1, without creating a string for its value
+     */
+    int findTag(String name) {
+        for (int i = 0; i < tagCount; i++) {
+            int start = tagNames[i * 2];
+            if (tagNames[i * 2 + 1] - start == name.length() && matches(name, start)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private boolean matches(String name, int start) {
+        for (int i = 0; i < name.length(); i++) {
+            if (text[start + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public int getTagCount() {
+        return tagCount;
+    }
+    
+    /**
+     * Number of main line moves replayed; stops at the first illegal move
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+    
+    /**
+     * Encoded move at a ply of the main line, counted from the starting position
+     */
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+    
+    /**
+     * Game termination marker: 1-0, 0-1, 1/2-1/2 or *
+     */
+    public String getResult() {
+        return result;
+    }
+    
+    /**
+     * Why the game could not be replayed, or null if every move was legal
+     */
+    public String getError() {
+        return error;
+    }
+    
+    public boolean isValid() {
+        return error == null;
+    }
+    
+    /**
+     * Whether this is a single position from a FEN or EPD file rather than a game
+     */
+    public boolean isPosition() {
+        return position;
+    }
+    
+    /**
+     * File the game was read from
+     */
+    public Path getFile() {
+        return file;
+    }
+    
+    /**
+     * Byte offset of the game in the file
+     */
+    public long getOffset() {
+        return offset;
+    }
+    
+    /**
+     * Position after the last replayed move. Its undo history holds the whole
+     * game, so the earlier positions can be visited with unmake().
+     */
+    public Bitboard getBoard() {
+        return board;
+    }
+}
@@ -0,0 +1,256 @@
+package com.chess.pgn;
+
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+import com.chess.model.San;
+
+/**
+ * Parses the text of one PGN game and replays its main line on a board.
+ * Tag pairs are recorded as offsets into the text; comments, NAGs, escape lines
+ * and variations are skipped. Nothing is allocated per game unless it is invalid,
+ * so one parser per thread can process any number of games.
+ */
+public final class PgnParser {
+    private final AsciiBytes chars = new AsciiBytes();
+    private final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+    
+    /**
+     * Parse the game between start and end of the text into a reusable game object
+     */
+    public void parse(byte[] text, int start, int end, long offset, PgnGame game) {
+        game.reset(text, offset);
+        chars.wrap(text);
+        Bitboard board = game.board;
+        
+        int i = parseTags(text, start, end, game);
+        if (game.tagCount == 0 && isPosition(text, i, end)) {
+            loadPosition(text, i, end, game);
+            return;
+        }
+        int fen = game.findTag("FEN");
+        try {
+            if (fen < 0) {
+                Fen.load(board, Fen.START_POSITION);
+            } else {
+                Fen.load(board, chars, game.tagValues[fen * 2], game.tagValues[fen * 2 + 1]);
+            }
+        } catch (IllegalArgumentException e) {
+            game.error = e.getMessage();
+            return;
+        }
+        
+        while (i < end) {
+            byte c = text[i];
+            if (c <= ' ') {
+                i++;
+            } else if (c == '{') {
+                i = skipComment(text, i, end);
+            } else if (c == ';' || c == '%' || c == '[') {
+                i = skipLine(text, i, end);
+            } else if (c == '(') {
+                i = skipVariation(text, i, end);
+            } else if (c == '$' || c == '.' || c == ')') {
+                i++;
+                while (i < end && text[i] >= '0' && text[i] <= '9') {
+                    i++;
+                }
+            } else {
+                int tokenEnd = tokenEnd(text, i, end);
+                if (!parseToken(text, i, tokenEnd, game)) {
+                    return;
+                }
+                i = tokenEnd;
+            }
+        }
+    }
+    
+    /**
+     * Load a line of a FEN or EPD file. EPD operations after the
+     * en passant field, such as bm or id, are ignored.
+     */
+    private void loadPosition(byte[] text, int start, int end, PgnGame game) {
+        game.position = true;
+        int fieldEnd = start;
+        int fields = 0;
+        int fenEnd = end;
+        for (int i = start; i <= end; i++) {
+            if (i == end || text[i] <= ' ') {
+                if (i > fieldEnd) {
+                    fields++;
+                    // The move counters are kept only when both are numbers
+                    if (fields == 4) {
+                        fenEnd = i;
+                    } else if (fields > 4 && !isNumber(text, fieldEnd, i)) {
+                        break;
+                    } else if (fields == 6) {
+                        fenEnd = i;
+                        break;
+                    }
+                }
+                fieldEnd = i + 1;
+            }
+        }
+        try {
+            Fen.load(game.board, chars, start, fenEnd);
+        } catch (IllegalArgumentException e) {
+            game.error = e.getMessage();
+        }
+    }
+    
+    /**
+     * A record without tags whose first field contains a rank separator is a FEN line, not move text
+     */
+    private static boolean isPosition(byte[] text, int i, int end) {
+        for (; i < end && text[i] > ' '; i++) {
+            if (text[i] == '/') {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Apply a move number, result or SAN token. Returns false once the game has failed.
+     */
+    private boolean parseToken(byte[] text, int start, int end, PgnGame game) {
+        byte first = text[start];
+        if (first == '*') {
+            game.result = PgnGame.UNKNOWN_RESULT;
+            return true;
+        }
+        if (first >= '0' && first <= '9') {
+            if (end - start == 3 && text[start + 1] == '-') {
+                if (first == '1' && text[start + 2] == '0') {
+                    game.result = "1-0";
+                    return true;
+                }
+                if (first == '0' && text[start + 2] == '1') {
+                    game.result = "0-1";
+                    return true;
+                }
+            }
+            if (end - start == 7 && first == '1' && text[start + 1] == '/') {
+                game.result = "1/2-1/2";
+                return true;
+            }
+            if (isNumber(text, start, end)) {
+                // Move number; its dots are skipped as separate tokens
+                return true;
+            }
+        }
+        
+        Bitboard board = game.board;
+        int move = San.parse(board, chars, start, end, moveBuffer);
+        if (move == Move.NONE) {
+            game.error = "Illegal or ambiguous move " + AsciiBytes.toString(text, start, end)
+                    + " at ply " + (game.moveCount + 1);
+            return false;
+        }
+        board.make(move);
+        game.addMove(move);
+        return true;
+    }
+    
+    /**
+     * Record the [Name "Value"] pairs at the start of the game, returning where the moves begin
+     */
+    private static int parseTags(byte[] text, int i, int end, PgnGame game) {
+        while (i < end) {
+            byte c = text[i];
+            if (c <= ' ') {
+                i++;
+                continue;
+            }
+            if (c != '[') {
+                return i;
+            }
+            int nameStart = i + 1;
+            int nameEnd = nameStart;
+            while (nameEnd < end && text[nameEnd] > ' ' && text[nameEnd] != '"') {
+                nameEnd++;
+            }
+            int valueStart = nameEnd;
+            while (valueStart < end && text[valueStart] != '"' && text[valueStart] != '\n') {
+                valueStart++;
+            }
+            valueStart++;
+            int valueEnd = valueStart;
+            while (valueEnd < end && text[valueEnd] != '"' && text[valueEnd] != '\n') {
+                if (text[valueEnd] == '\\') {
+                    valueEnd++;
+                }
+                valueEnd++;
+            }
+            if (valueEnd < end && text[valueEnd] == '"') {
+                game.addTag(nameStart, nameEnd, valueStart, valueEnd);
+            }
+            i = skipLine(text, i, end);
+        }
+        return i;
+    }
+    
+    private static boolean isNumber(byte[] text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text[i] < '0' || text[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int tokenEnd(byte[] text, int i, int end) {
+        while (i < end) {
+            byte c = text[i];
+            if (c <= ' ' || c == '{' || c == '(' || c == ')' || c == ';' || c == '$') {
+                return i;
+            }
+            // A dot ends a move number but never appears in SAN
+            if (c == '.') {
+                return i;
+            }
+            i++;
+        }
+        return i;
+    }
+    
+    private static int skipComment(byte[] text, int i, int end) {
+        while (i < end && text[i] != '}') {
+            i++;
+        }
+        return i + 1;
+    }
+    
+    private static int skipLine(byte[] text, int i, int end) {
+        while (i < end && text[i] != '\n') {
+            i++;
+        }
+        return i + 1;
+    }
+    
+    /**
+     * Skip a variation, including nested variations and comments that contain parentheses
+     */
+    private static int skipVariation(byte[] text, int i, int end) {
+        int depth = 0;
+        while (i < end) {
+            byte c = text[i];
+            if (c == '{') {
+                i = skipComment(text, i, end);
+                continue;
+            }
+            if (c == ';') {
+                i = skipLine(text, i, end);
+                continue;
+            }
+            i++;
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return i;
+    }
+}
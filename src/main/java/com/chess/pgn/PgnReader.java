@@ -0,0 +1,324 @@
+package com.chess.pgn;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Streaming import of PGN archives of any size.
+ *
+ * The calling thread reads the files in fixed chunks through a FileChannel and
+ * cuts them into games at tag sections, copying their text into batches. Each
+ * batch becomes a fork/join task that splits down to a few games per subtask,
+ * so idle workers steal games from busy ones; every game is parsed, replayed on
+ * a board and passed to the handler. A fixed pool of batches circulates between
+ * the reader and the workers, so memory use depends on the parallelism, not on
+ * the size of the input, and a slow handler throttles the reader instead of
+ * letting text pile up.
+ *
+ * Files ending in .fen or .epd hold one position per line instead; each line is
+ * handed to the handler as a game without moves.
+ */
+public final class PgnReader {
+    public static final int DEFAULT_BATCH_GAMES = 256;
+    
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final int BATCH_BYTES = 1 << 19;
+    /** Subtasks stop splitting at this many games */
+    private static final int LEAF_GAMES = 8;
+    
+    private final List<Path> files;
+    private final ForkJoinPool pool;
+    private final boolean ownPool;
+    private final int batchGames;
+    private final ThreadLocal<PgnParser> parsers = ThreadLocal.withInitial(PgnParser::new);
+    private final ThreadLocal<PgnGame> workerGames = ThreadLocal.withInitial(PgnGame::new);
+    
+    public PgnReader(Path file) {
+        this(file, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_GAMES);
+    }
+    
+    /**
+     * Read one file with a pool of its own that is shut down after the import
+     */
+    public PgnReader(Path file, int threads, int batchGames) {
+        this(Collections.singletonList(file), new ForkJoinPool(Math.max(1, threads)), true, batchGames);
+    }
+    
+    /**
+     * Read several files, one after the other, on a shared pool
+     */
+    public PgnReader(List<Path> files, ForkJoinPool pool, int batchGames) {
+        this(files, pool, false, batchGames);
+    }
+    
+    private PgnReader(List<Path> files, ForkJoinPool pool, boolean ownPool, int batchGames) {
+        this.files = files;
+        this.pool = pool;
+        this.ownPool = ownPool;
+        this.batchGames = Math.max(1, batchGames);
+    }
+    
+    /**
+     * Read every game. The handler is called from the pool's worker threads, so it
+     * must be thread-safe, and it must not keep the PgnGame it is given. An
+     * exception thrown by the handler stops the import and is rethrown here.
+     */
+    public PgnStats read(Consumer<PgnGame> handler) throws IOException {
+        Import job = new Import(handler, pool.getParallelism() * 2 + 1);
+        long start = System.nanoTime();
+        long bytes = 0;
+        try {
+            try {
+                for (int i = 0; i < files.size(); i++) {
+                    if (job.failure.get() != null) {
+                        break;
+                    }
+                    bytes += job.split(i);
+                }
+            } finally {
+                job.flush();
+                job.awaitBatches();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("PGN import interrupted");
+        } finally {
+            if (ownPool) {
+                pool.shutdown();
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        
+        Throwable error = job.failure.get();
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        return new PgnStats(job.games.sum(), job.invalid.sum(), job.moves.sum(), bytes, nanos);
+    }
+    
+    /**
+     * State of one read() call: the batch pool, the splitter's position in the
+     * current file and the totals collected by the tasks
+     */
+    private final class Import {
+        final Consumer<PgnGame> handler;
+        final int batchCount;
+        final BlockingQueue<GameBatch> free;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final LongAdder games = new LongAdder();
+        final LongAdder invalid = new LongAdder();
+        final LongAdder moves = new LongAdder();
+        final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES);
+        
+        GameBatch batch;
+        int gameStart;
+        long gameOffset;
+        int copyFrom;
+        
+        Import(Consumer<PgnGame> handler, int batchCount) {
+            this.handler = handler;
+            this.batchCount = batchCount;
+            this.free = new ArrayBlockingQueue<>(batchCount);
+            for (int i = 0; i < batchCount; i++) {
+                free.add(new GameBatch(BATCH_BYTES, batchGames));
+            }
+        }
+        
+        /**
+         * Cut one file into games and queue them in batches, returning the bytes read.
+         * In a PGN file a game starts at a tag line ('[' at the start of a line,
+         * outside a comment) that follows move text, or at the first non-blank text.
+         */
+        long split(int file) throws IOException, InterruptedException {
+            String name = files.get(file).getFileName().toString().toLowerCase();
+            boolean positions = name.endsWith(".fen") || name.endsWith(".epd");
+            byte[] buffer = chunk.array();
+            long position = 0;
+            if (batch == null) {
+                batch = free.take();
+            }
+            gameStart = -1;
+            boolean lineStart = true;
+            boolean inComment = false;
+            boolean skipLine = false;
+            boolean sawMoves = false;
+            
+            try (FileChannel channel = FileChannel.open(files.get(file), StandardOpenOption.READ)) {
+                int read;
+                while ((read = channel.read(chunk)) >= 0 && failure.get() == null) {
+                    copyFrom = 0;
+                    for (int p = 0; p < read; p++) {
+                        byte c = buffer[p];
+                        if (positions) {
+                            if (c == '\n' && gameStart >= 0) {
+                                endGame(buffer, p, file);
+                            } else if (c > ' ' && gameStart < 0) {
+                                startGame(p, position);
+                            }
+                            continue;
+                        }
+                        if (inComment) {
+                            inComment = c != '}';
+                            continue;
+                        }
+                        if (c == '\n') {
+                            lineStart = true;
+                            skipLine = false;
+                            continue;
+                        }
+                        if (skipLine || c <= ' ') {
+                            continue;
+                        }
+                        if (lineStart && c == '[') {
+                            if (sawMoves) {
+                                endGame(buffer, p, file);
+                                sawMoves = false;
+                            }
+                            if (gameStart < 0) {
+                                startGame(p, position);
+                            }
+                            lineStart = false;
+                            skipLine = true;
+                            continue;
+                        }
+                        if (gameStart < 0) {
+                            startGame(p, position);
+                        }
+                        lineStart = false;
+                        sawMoves = true;
+                        if (c == '{') {
+                            inComment = true;
+                        } else if (c == ';' || c == '%') {
+                            skipLine = true;
+                        }
+                    }
+                    if (gameStart >= 0) {
+                        batch.append(buffer, copyFrom, read - copyFrom);
+                    }
+                    position += read;
+                    chunk.clear();
+                }
+            }
+            if (gameStart >= 0) {
+                endGame(buffer, copyFrom, file);
+            }
+            return position;
+        }
+        
+        private void startGame(int p, long chunkPosition) {
+            gameStart = batch.length;
+            gameOffset = chunkPosition + p;
+            copyFrom = p;
+        }
+        
+        /**
+         * Close the game being assembled at position p of the chunk, submitting the batch when it is full
+         */
+        private void endGame(byte[] buffer, int p, int file) throws InterruptedException {
+            batch.append(buffer, copyFrom, p - copyFrom);
+            batch.addGame(gameStart, file, gameOffset);
+            gameStart = -1;
+            if (batch.isFull()) {
+                // Cleared first, so an interrupted take leaves nothing for flush to submit again
+                GameBatch full = batch;
+                batch = null;
+                submit(full);
+                batch = free.take();
+            }
+        }
+        
+        void flush() {
+            if (batch != null && batch.count > 0) {
+                submit(batch);
+            } else if (batch != null) {
+                free.add(batch);
+            }
+            batch = null;
+        }
+        
+        private void submit(GameBatch full) {
+            pool.execute(new BatchTask(this, full, 0, full.count));
+        }
+        
+        /**
+         * Wait until every batch has come back from the workers
+         */
+        void awaitBatches() throws InterruptedException {
+            for (int i = 0; i < batchCount; i++) {
+                free.take();
+            }
+        }
+        
+        void process(GameBatch batch, int index) {
+            PgnGame game = workerGames.get();
+            parsers.get().parse(batch.data, batch.starts[index], batch.ends[index], batch.offsets[index], game);
+            game.file = files.get(batch.files[index]);
+            games.increment();
+            moves.add(game.getMoveCount());
+            if (!game.isValid()) {
+                invalid.increment();
+            }
+            handler.accept(game);
+        }
+    }
+    
+    /**
+     * Processes a range of games of a batch, forking halves until the range is small.
+     * The task for the whole batch hands it back to the reader when every game is done.
+     */
+    private static final class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Import job;
+        private final transient GameBatch batch;
+        private final int from;
+        private final int to;
+        
+        BatchTask(Import job, GameBatch batch, int from, int to) {
+            this.job = job;
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            boolean root = from == 0 && to == batch.count;
+            try {
+                if (job.failure.get() != null) {
+                    return;
+                }
+                if (to - from <= LEAF_GAMES) {
+                    for (int i = from; i < to; i++) {
+                        job.process(batch, i);
+                    }
+                } else {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new BatchTask(job, batch, from, middle), new BatchTask(job, batch, middle, to));
+                }
+            } catch (Throwable e) {
+                job.failure.compareAndSet(null, e);
+            } finally {
+                if (root) {
+                    batch.clear();
+                    job.free.add(batch);
+                }
+            }
+        }
+    }
+}
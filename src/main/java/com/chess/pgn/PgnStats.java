@@ -0,0 +1,57 @@
+package com.chess.pgn;
+
+/**
+ * Totals and throughput of one PGN import
+ */
+public final class PgnStats {
+    private final long games;
+    private final long invalidGames;
+    private final long moves;
+    private final long bytes;
+    private final long nanos;
+    
+    public PgnStats(long games, long invalidGames, long moves, long bytes, long nanos) {
+        this.games = games;
+        this.invalidGames = invalidGames;
+        this.moves = moves;
+        this.bytes = bytes;
+        this.nanos = nanos;
+    }
+    
+    public long getGames() {
+        return games;
+    }
+    
+    /**
+     * Games with a malformed tag section, bad FEN or an illegal move
+     */
+    public long getInvalidGames() {
+        return invalidGames;
+    }
+    
+    public long getMoves() {
+        return moves;
+    }
+    
+    public long getBytes() {
+        return bytes;
+    }
+    
+    public long getMillis() {
+        return nanos / 1_000_000;
+    }
+    
+    public double getGamesPerSecond() {
+        return games * 1e9 / Math.max(1, nanos);
+    }
+    
+    public double getMovesPerSecond() {
+        return moves * 1e9 / Math.max(1, nanos);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%d games (%d invalid), %d moves, %.1f MB in %.2f s: %.0f games/s, %.0f moves/s",
+                games, invalidGames, moves, bytes / 1e6, nanos / 1e9, getGamesPerSecond(), getMovesPerSecond());
+    }
+}
@@ -0,0 +1,67 @@
+package com.chess.registry;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spill store writing each compact game to a file of its own, so evicted games
+ * take no heap beyond an index entry. Only ids in the index are ever turned
+ * into paths, so request parameters cannot reach other files.
+ */
+public final class FileSpillStore implements SpillStore {
+    private static final String SUFFIX = ".game";
+    
+    private final Path directory;
+    private final ConcurrentHashMap<String, Integer> index = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    
+    /**
+     * Use a directory for spilled games, deleting games left by an earlier run,
+     * whose sessions are gone
+     */
+    public FileSpillStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stale) {
+                Files.delete(file);
+            }
+        }
+    }
+    
+    @Override
+    public void put(String id, byte[] game) throws IOException {
+        Files.write(directory.resolve(id + SUFFIX), game);
+        Integer previous = index.put(id, game.length);
+        bytes.addAndGet(game.length - (previous == null ? 0 : previous));
+    }
+    
+    @Override
+    public byte[] read(String id) throws IOException {
+        return index.containsKey(id) ? Files.readAllBytes(directory.resolve(id + SUFFIX)) : null;
+    }
+    
+    @Override
+    public boolean remove(String id) throws IOException {
+        Integer length = index.remove(id);
+        if (length == null) {
+            return false;
+        }
+        bytes.addAndGet(-length);
+        Files.deleteIfExists(directory.resolve(id + SUFFIX));
+        return true;
+    }
+    
+    @Override
+    public int size() {
+        return index.size();
+    }
+    
+    @Override
+    public long sizeBytes() {
+        return bytes.get();
+    }
+}
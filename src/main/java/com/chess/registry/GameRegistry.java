@@ -0,0 +1,343 @@
+package com.chess.registry;
+
+import com.chess.controller.ChessGame;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Games of the node by id. At most a fixed number are kept live as ChessGame
+ * objects; the least recently used beyond that, and any left idle too long, are
+ * written to a spill store in compact form and rebuilt on their next request.
+ * Heap use is therefore bounded by the live limit plus a few hundred bytes per
+ * spilled game, or only an index entry with a file store.
+ *
+ * Work on a game goes through withGame, which holds one of a fixed set of
+ * striped locks chosen by the game id. Requests on one game therefore apply one
+ * at a time, while games on other stripes proceed in parallel. Eviction only
+ * tries those locks and skips games that are in use, so it never waits on a
+ * request and never encodes a game halfway through a change.
+ *
+ * The registry lock only covers the live map. Encoding, replaying and the
+ * spill store's I/O run under the stripe lock of the game concerned, so a
+ * request never waits on another game's disk access unless they share a
+ * stripe. A game being spilled is out of the live map but not yet in the
+ * store; its stripe lock stays held until the write is done, and lookups that
+ * miss the map take that lock before reading the store. Games pushed out by a
+ * restore are written after the requested game's stripe lock is released, so
+ * requests on that stripe do not wait on them either. A restored game leaves
+ * the store only once it is rebuilt.
+ */
+public final class GameRegistry {
+    /** Lock stripes; a power of two well above the number of cores */
+    private static final int STRIPES = 1024;
+    
+    private final int maxLive;
+    private final long idleMillis;
+    private final SpillStore spill;
+    private final Consumer<ChessGame> restored;
+    /** Access order, so iteration starts at the least recently used game */
+    private final LinkedHashMap<String, Entry> live = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ReentrantLock registryLock = new ReentrantLock();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder restores = new LongAdder();
+    
+    private static final class Entry {
+        final ChessGame game;
+        long lastAccess;
+        
+        Entry(ChessGame game, long lastAccess) {
+            this.game = game;
+            this.lastAccess = lastAccess;
+        }
+    }
+    
+    /**
+     * Create a registry keeping up to maxLive games live and spilling games not
+     * used for idleMillis; restored is applied to every game rebuilt from the
+     * spill store, to attach node resources such as tablebases
+     */
+    public GameRegistry(int maxLive, long idleMillis, SpillStore spill, Consumer<ChessGame> restored) {
+        if (maxLive < 1) {
+            throw new IllegalArgumentException("At least one live game required");
+        }
+        this.maxLive = maxLive;
+        this.idleMillis = idleMillis;
+        this.spill = spill;
+        this.restored = restored;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+    
+    private ReentrantLock lockFor(String id) {
+        int hash = id.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+    
+    /**
+     * Run an action on a game while holding its lock, so that concurrent actions
+     * on one game are serialized and each sees the effects of the ones before.
+     * Returns the action's result, which must not be null, or an empty Optional
+     * if the id is unknown.
+     */
+    public <T> Optional<T> withGame(String id, Function<ChessGame, T> action) throws IOException {
+        List<Map.Entry<String, Entry>> victims = new ArrayList<>();
+        try {
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                ChessGame game = load(id, victims);
+                if (game == null) {
+                    return Optional.empty();
+                }
+                return Optional.of(Objects.requireNonNull(action.apply(game), "Game action returned null"));
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            // Games a restore pushed out are written once this game's stripe is free again
+            spill(victims);
+        }
+    }
+    
+    /**
+     * Add a game under a new random id, returning the id
+     */
+    public String register(ChessGame game) throws IOException {
+        List<Map.Entry<String, Entry>> victims;
+        String id = UUID.randomUUID().toString();
+        registryLock.lock();
+        try {
+            live.put(id, new Entry(game, System.currentTimeMillis()));
+            victims = takeOverflow(id);
+        } finally {
+            registryLock.unlock();
+        }
+        spill(victims);
+        return id;
+    }
+    
+    /**
+     * The game with this id, rebuilt from the spill store if it was evicted,
+     * or null if the id is unknown. The game is not locked; callers that change
+     * it while other threads may use it should go through withGame.
+     */
+    public ChessGame get(String id) throws IOException {
+        List<Map.Entry<String, Entry>> victims = new ArrayList<>();
+        try {
+            return load(id, victims);
+        } finally {
+            spill(victims);
+        }
+    }
+    
+    /**
+     * Find or restore a game, adding the games its restore pushes out of the
+     * live map to victims, with their stripe locks held, for the caller to spill
+     */
+    private ChessGame load(String id, List<Map.Entry<String, Entry>> victims) throws IOException {
+        ChessGame game = getLive(id);
+        if (game != null) {
+            return game;
+        }
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            // Restored, or spill finished, while this thread waited for the lock
+            game = getLive(id);
+            if (game != null) {
+                return game;
+            }
+            byte[] compact = spill.read(id);
+            if (compact == null) {
+                return null;
+            }
+            // Leaves the store only once rebuilt, so a failed read or replay can be retried
+            game = ChessGame.fromCompact(compact);
+            restored.accept(game);
+            spill.remove(id);
+            restores.increment();
+            registryLock.lock();
+            try {
+                live.put(id, new Entry(game, System.currentTimeMillis()));
+                victims.addAll(takeOverflow(id));
+            } finally {
+                registryLock.unlock();
+            }
+            return game;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private ChessGame getLive(String id) {
+        registryLock.lock();
+        try {
+            Entry entry = live.get(id);
+            if (entry == null) {
+                return null;
+            }
+            entry.lastAccess = System.currentTimeMillis();
+            return entry.game;
+        } finally {
+            registryLock.unlock();
+        }
+    }
+    
+    /**
+     * Forget a game, live or spilled
+     */
+    public boolean remove(String id) throws IOException {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            boolean wasLive;
+            registryLock.lock();
+            try {
+                wasLive = live.remove(id) != null;
+            } finally {
+                registryLock.unlock();
+            }
+            return wasLive | spill.remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Spill every live game not used for the idle time, returning how many
+     */
+    public int evictIdle() throws IOException {
+        List<Map.Entry<String, Entry>> victims = new ArrayList<>();
+        registryLock.lock();
+        try {
+            long cutoff = System.currentTimeMillis() - idleMillis;
+            Iterator<Map.Entry<String, Entry>> entries = live.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Entry> eldest = entries.next();
+                // Not break: a game put back after a failed spill sits behind fresher ones
+                if (eldest.getValue().lastAccess > cutoff) {
+                    continue;
+                }
+                if (lockFor(eldest.getKey()).tryLock()) {
+                    victims.add(Map.entry(eldest.getKey(), eldest.getValue()));
+                    entries.remove();
+                }
+            }
+        } finally {
+            registryLock.unlock();
+        }
+        spill(victims);
+        return victims.size();
+    }
+    
+    /**
+     * Take least recently used games out of the map until the live limit holds
+     * again, never the game just added, and return them with their stripe locks
+     * held. Games in use stay live, so the limit may be exceeded briefly.
+     * Called under the registry lock.
+     */
+    private List<Map.Entry<String, Entry>> takeOverflow(String added) {
+        List<Map.Entry<String, Entry>> victims = new ArrayList<>();
+        Iterator<Map.Entry<String, Entry>> entries = live.entrySet().iterator();
+        while (live.size() > maxLive && entries.hasNext()) {
+            Map.Entry<String, Entry> eldest = entries.next();
+            // A stripe held by this thread means another game on it, which is not being changed
+            if (!eldest.getKey().equals(added) && lockFor(eldest.getKey()).tryLock()) {
+                victims.add(Map.entry(eldest.getKey(), eldest.getValue()));
+                entries.remove();
+            }
+        }
+        return victims;
+    }
+    
+    /**
+     * Write games taken out of the map to the spill store, outside the registry
+     * lock, releasing their stripe locks. A game that fails to write goes back
+     * into the map and the first failure is thrown once all are handled.
+     */
+    private void spill(List<Map.Entry<String, Entry>> victims) throws IOException {
+        IOException failure = null;
+        for (Map.Entry<String, Entry> victim : victims) {
+            try {
+                spill.put(victim.getKey(), victim.getValue().game.toCompact());
+                evictions.increment();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+                registryLock.lock();
+                try {
+                    live.put(victim.getKey(), victim.getValue());
+                } finally {
+                    registryLock.unlock();
+                }
+            } finally {
+                lockFor(victim.getKey()).unlock();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    public int getLiveGames() {
+        registryLock.lock();
+        try {
+            return live.size();
+        } finally {
+            registryLock.unlock();
+        }
+    }
+    
+    public int getSpilledGames() {
+        return spill.size();
+    }
+    
+    /**
+     * Estimated heap held by the live games
+     */
+    public long getLiveBytes() {
+        registryLock.lock();
+        try {
+            long bytes = 0;
+            for (Entry entry : live.values()) {
+                bytes += entry.game.estimatedBytes();
+            }
+            return bytes;
+        } finally {
+            registryLock.unlock();
+        }
+    }
+    
+    /**
+     * Compact game data held by the spill store
+     */
+    public long getSpilledBytes() {
+        return spill.sizeBytes();
+    }
+    
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    public long getRestores() {
+        return restores.sum();
+    }
+    
+    public int getMaxLive() {
+        return maxLive;
+    }
+}
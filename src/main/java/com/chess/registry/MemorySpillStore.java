@@ -0,0 +1,42 @@
+package com.chess.registry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spill store keeping compact games on the heap, a few hundred bytes each
+ */
+public final class MemorySpillStore implements SpillStore {
+    private final ConcurrentHashMap<String, byte[]> games = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    
+    @Override
+    public void put(String id, byte[] game) {
+        byte[] previous = games.put(id, game);
+        bytes.addAndGet(game.length - (previous == null ? 0 : previous.length));
+    }
+    
+    @Override
+    public byte[] read(String id) {
+        return games.get(id);
+    }
+    
+    @Override
+    public boolean remove(String id) {
+        byte[] game = games.remove(id);
+        if (game != null) {
+            bytes.addAndGet(-game.length);
+        }
+        return game != null;
+    }
+    
+    @Override
+    public int size() {
+        return games.size();
+    }
+    
+    @Override
+    public long sizeBytes() {
+        return bytes.get();
+    }
+}
@@ -0,0 +1,37 @@
+package com.chess.registry;
+
+import java.io.IOException;
+
+/**
+ * Where the game registry keeps evicted games in compact form until they are
+ * requested again. Implementations must be safe for concurrent use.
+ */
+public interface SpillStore {
+    
+    /**
+     * Store a compact game under its id, replacing any earlier one
+     */
+    void put(String id, byte[] game) throws IOException;
+    
+    /**
+     * Return a game, still keeping it, or null if the store does not hold it.
+     * The registry removes it only once the game is rebuilt, so a failed read
+     * or replay loses nothing.
+     */
+    byte[] read(String id) throws IOException;
+    
+    /**
+     * Drop a game, returning whether it was stored
+     */
+    boolean remove(String id) throws IOException;
+    
+    /**
+     * Number of games held
+     */
+    int size();
+    
+    /**
+     * Bytes of compact game data held
+     */
+    long sizeBytes();
+}
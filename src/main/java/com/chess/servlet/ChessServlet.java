@@ -1,26 +1,159 @@
 package com.chess.servlet;
 
+import com.chess.book.OpeningBook;
 import com.chess.controller.ChessGame;
+import com.chess.engine.Engine;
+import com.chess.engine.PawnTable;
+import com.chess.engine.SearchLimits;
+import com.chess.engine.SearchPool;
+import com.chess.engine.SearchResult;
+import com.chess.model.Bitboard;
+import com.chess.model.Move;
+import com.chess.model.San;
+import com.chess.registry.FileSpillStore;
+import com.chess.registry.GameRegistry;
+import com.chess.registry.MemorySpillStore;
+import com.chess.registry.SpillStore;
+import com.chess.tablebase.Tablebases;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionBindingEvent;
+import jakarta.servlet.http.HttpSessionBindingListener;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
 
 /**
  * Main servlet handling chess game HTTP requests
  */
-@WebServlet("/chess/*")
+@WebServlet(value = "/chess/*", asyncSupported = true)
 public class ChessServlet extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final long DEFAULT_MOVE_TIME = 1000;
+    private static final long MAX_MOVE_TIME = 30000;
+    private static final int DEFAULT_SEARCH_QUEUE = 16;
+    private static final int DEFAULT_MAX_LIVE_GAMES = 10000;
+    private static final int DEFAULT_IDLE_MINUTES = 30;
+    private static final String GAME_ATTRIBUTE = "chessGame";
+    private static final String REGISTRY_ATTRIBUTE = GameRegistry.class.getName();
+    private static final String BROADCASTER_ATTRIBUTE = GameBroadcaster.class.getName();
+    private static final long HEARTBEAT_SECONDS = 15;
+    /** Session lock stripes for binding games; a power of two well above the number of cores */
+    private static final int SESSION_STRIPES = 256;
     private Gson gson = new Gson();
+    private transient Engine engine;
+    private transient SearchPool searchPool;
+    private transient OpeningBook book;
+    private transient Tablebases tablebases;
+    private transient GameRegistry games;
+    private transient ScheduledExecutorService sweeper;
+    private transient GameBroadcaster broadcaster;
+    private transient ReentrantLock[] sessionLocks;
+    
+    @Override
+    public void init() throws ServletException {
+        searchPool = new SearchPool(getIntProperty("chess.engine.search-threads", Runtime.getRuntime().availableProcessors()),
+                getIntProperty("chess.engine.search-queue", DEFAULT_SEARCH_QUEUE));
+        // Helpers share the pool's budget, so searches and helpers never outnumber its threads
+        engine = new Engine(getIntProperty("chess.engine.hash-mb", Engine.DEFAULT_HASH_MB),
+                getIntProperty("chess.engine.max-threads", Runtime.getRuntime().availableProcessors()),
+                searchPool.getThreadBudget());
+        String bookPath = getStringProperty("chess.book.path");
+        if (bookPath != null && !bookPath.isEmpty()) {
+            try {
+                book = OpeningBook.open(Paths.get(bookPath));
+                engine.setBook(book);
+            } catch (IOException e) {
+                log("Opening book not loaded: " + e.getMessage());
+            }
+        }
+        String tablebasePath = getStringProperty("chess.tablebase.path");
+        if (tablebasePath != null && !tablebasePath.isEmpty()) {
+            try {
+                tablebases = Tablebases.open(Paths.get(tablebasePath));
+                engine.setTablebases(tablebases);
+            } catch (IOException e) {
+                log("Tablebases not loaded: " + e.getMessage());
+            }
+        }
+        
+        SpillStore spill = new MemorySpillStore();
+        String spillPath = getStringProperty("chess.games.spill-dir");
+        if (spillPath != null && !spillPath.isEmpty()) {
+            try {
+                spill = new FileSpillStore(Paths.get(spillPath));
+            } catch (IOException e) {
+                log("Game spill directory not usable, spilling to memory: " + e.getMessage());
+            }
+        }
+        long idleMillis = TimeUnit.MINUTES.toMillis(getIntProperty("chess.games.idle-minutes", DEFAULT_IDLE_MINUTES));
+        games = new GameRegistry(getIntProperty("chess.games.max-live", DEFAULT_MAX_LIVE_GAMES), idleMillis, spill,
+                this::attachTablebases);
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleMillis / 4);
+        sweeper.scheduleWithFixedDelay(this::evictIdleGames, period, period, TimeUnit.MILLISECONDS);
+        broadcaster = new GameBroadcaster();
+        sessionLocks = new ReentrantLock[SESSION_STRIPES];
+        for (int i = 0; i < SESSION_STRIPES; i++) {
+            sessionLocks[i] = new ReentrantLock();
+        }
+        sweeper.scheduleWithFixedDelay(broadcaster::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        // Game handles find these at unbind time, including handles restored with a persisted session
+        getServletContext().setAttribute(REGISTRY_ATTRIBUTE, games);
+        getServletContext().setAttribute(BROADCASTER_ATTRIBUTE, broadcaster);
+    }
+    
+    private void evictIdleGames() {
+        try {
+            games.evictIdle();
+        } catch (IOException | RuntimeException e) {
+            log("Idle games not evicted: " + e.getMessage());
+        }
+    }
+    
+    private void attachTablebases(ChessGame game) {
+        if (tablebases != null) {
+            game.setTablebases(tablebases);
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        getServletContext().removeAttribute(REGISTRY_ATTRIBUTE);
+        getServletContext().removeAttribute(BROADCASTER_ATTRIBUTE);
+        sweeper.shutdownNow();
+        broadcaster.shutdown();
+        searchPool.shutdown();
+        engine.shutdown();
+    }
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
@@ -36,16 +169,31 @@ public class ChessServlet extends HttpServlet {
         
         switch (pathInfo) {
             case "/board":
-                getBoardState(request, response);
+                respondWithGame(request, response, this::getBoardState);
                 break;
             case "/info":
-                getGameInfo(request, response);
+                respondWithGame(request, response, ChessGame::getGameInfo);
                 break;
             case "/moves":
-                getValidMoves(request, response);
+                respondWithGame(request, response, game -> getValidMoves(request, game));
                 break;
             case "/history":
-                getMoveHistory(request, response);
+                respondWithGame(request, response, this::getMoveHistory);
+                break;
+            case "/fen":
+                respondWithGame(request, response, this::getFen);
+                break;
+            case "/engine/stats":
+                getEngineStats(response);
+                break;
+            case "/book":
+                getBookMoves(request, response);
+                break;
+            case "/games/stats":
+                getGameStats(response);
+                break;
+            case "/stream":
+                streamGame(request, response);
                 break;
             default:
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
@@ -67,14 +215,20 @@ public class ChessServlet extends HttpServlet {
         
         switch (pathInfo) {
             case "/move":
-                makeMove(request, response);
+                respondWithChange(request, response, "move", game -> makeMove(request, game));
                 break;
             case "/reset":
-                resetGame(request, response);
+                respondWithChange(request, response, "reset", this::resetGame);
+                break;
+            case "/undo":
+                respondWithChange(request, response, "undo", this::undoMove);
                 break;
             case "/new":
                 newGame(request, response);
                 break;
+            case "/engine/bestmove":
+                findBestMove(request, response);
+                break;
             default:
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 break;
@@ -84,46 +238,89 @@ public class ChessServlet extends HttpServlet {
     /**
      * Get current board state
      */
-    private void getBoardState(HttpServletRequest request, HttpServletResponse response) 
-            throws IOException {
-        ChessGame game = getOrCreateGame(request);
-        String[][] boardState = game.getBoardState();
-        
+    private JsonObject getBoardState(ChessGame game) {
         JsonObject jsonResponse = new JsonObject();
-        jsonResponse.add("board", gson.toJsonTree(boardState));
+        jsonResponse.add("board", gson.toJsonTree(game.getBoardState()));
+        return jsonResponse;
+    }
+    
+    /**
+     * Get valid moves for a piece
+     */
+    private JsonObject getValidMoves(HttpServletRequest request, ChessGame game) {
+        String position = request.getParameter("position");
         
-        PrintWriter out = response.getWriter();
-        out.print(gson.toJson(jsonResponse));
-        out.flush();
+        JsonObject jsonResponse = new JsonObject();
+        if (position != null) {
+            jsonResponse.add("validMoves", gson.toJsonTree(game.getValidMoves(position)));
+            jsonResponse.add("losingCaptures", gson.toJsonTree(game.getLosingCaptures(position)));
+        } else {
+            jsonResponse.addProperty("error", "Position parameter required");
+        }
+        return jsonResponse;
+    }
+    
+    /**
+     * Get move history
+     */
+    private JsonObject getMoveHistory(ChessGame game) {
+        JsonObject jsonResponse = new JsonObject();
+        jsonResponse.add("history", gson.toJsonTree(game.getMoveHistory()));
+        return jsonResponse;
+    }
+    
+    /**
+     * Get the current position as FEN
+     */
+    private JsonObject getFen(ChessGame game) {
+        JsonObject jsonResponse = new JsonObject();
+        jsonResponse.addProperty("fen", game.getFen());
+        return jsonResponse;
     }
     
     /**
-     * Get game information
+     * Get the opening book moves for the current position
      */
-    private void getGameInfo(HttpServletRequest request, HttpServletResponse response) 
+    private void getBookMoves(HttpServletRequest request, HttpServletResponse response) 
             throws IOException {
-        ChessGame game = getOrCreateGame(request);
-        Map<String, Object> gameInfo = game.getGameInfo();
+        if (book != null) {
+            respondWithGame(request, response, game -> {
+                List<Map<String, Object>> moves = game.getBookMoves(book);
+                JsonObject jsonResponse = new JsonObject();
+                jsonResponse.addProperty("available", true);
+                jsonResponse.addProperty("inBook", !moves.isEmpty());
+                jsonResponse.add("moves", gson.toJsonTree(moves));
+                return jsonResponse;
+            });
+            return;
+        }
+        JsonObject jsonResponse = new JsonObject();
+        jsonResponse.addProperty("available", false);
         
         PrintWriter out = response.getWriter();
-        out.print(gson.toJson(gameInfo));
+        out.print(gson.toJson(jsonResponse));
         out.flush();
     }
     
     /**
-     * Get valid moves for a piece
+     * Get shared engine table usage
      */
-    private void getValidMoves(HttpServletRequest request, HttpServletResponse response) 
-            throws IOException {
-        ChessGame game = getOrCreateGame(request);
-        String position = request.getParameter("position");
+    private void getEngineStats(HttpServletResponse response) throws IOException {
+        PawnTable pawnTable = engine.getPawnTable();
         
         JsonObject jsonResponse = new JsonObject();
-        if (position != null) {
-            jsonResponse.add("validMoves", gson.toJsonTree(game.getValidMoves(position)));
-        } else {
-            jsonResponse.addProperty("error", "Position parameter required");
-        }
+        jsonResponse.addProperty("hashBytes", engine.getTable().sizeBytes());
+        jsonResponse.addProperty("hashfull", engine.getTable().hashfull());
+        jsonResponse.addProperty("maxThreads", engine.getMaxThreads());
+        jsonResponse.addProperty("pawnTableEntries", pawnTable.capacity());
+        jsonResponse.addProperty("pawnProbes", pawnTable.getProbes());
+        jsonResponse.addProperty("pawnHits", pawnTable.getHits());
+        jsonResponse.addProperty("pawnHitRate", pawnTable.getHitRate());
+        jsonResponse.addProperty("searchThreads", searchPool.getThreads());
+        jsonResponse.addProperty("searchQueueLimit", searchPool.getQueueLimit());
+        jsonResponse.addProperty("searchesActive", searchPool.getActive());
+        jsonResponse.addProperty("searchesQueued", searchPool.getQueued());
+        jsonResponse.addProperty("searchesRejected", searchPool.getRejected());
         
         PrintWriter out = response.getWriter();
         out.print(gson.toJson(jsonResponse));
@@ -131,14 +328,18 @@ public class ChessServlet extends HttpServlet {
     }
     
     /**
-     * Get move history
+     * Get game registry usage
      */
-    private void getMoveHistory(HttpServletRequest request, HttpServletResponse response) 
-            throws IOException {
-        ChessGame game = getOrCreateGame(request);
-        
+    private void getGameStats(HttpServletResponse response) throws IOException {
         JsonObject jsonResponse = new JsonObject();
-        jsonResponse.add("history", gson.toJsonTree(game.getMoveHistory()));
+        jsonResponse.addProperty("liveGames", games.getLiveGames());
+        jsonResponse.addProperty("maxLiveGames", games.getMaxLive());
+        jsonResponse.addProperty("liveBytes", games.getLiveBytes());
+        jsonResponse.addProperty("spilledGames", games.getSpilledGames());
+        jsonResponse.addProperty("spilledBytes", games.getSpilledBytes());
+        jsonResponse.addProperty("evictions", games.getEvictions());
+        jsonResponse.addProperty("restores", games.getRestores());
+        jsonResponse.addProperty("streamSubscribers", broadcaster.getSubscribers());
         
         PrintWriter out = response.getWriter();
         out.print(gson.toJson(jsonResponse));
@@ -148,16 +349,16 @@ public class ChessServlet extends HttpServlet {
     /**
      * Make a move
      */
-    private void makeMove(HttpServletRequest request, HttpServletResponse response) 
-            throws IOException {
-        ChessGame game = getOrCreateGame(request);
+    private JsonObject makeMove(HttpServletRequest request, ChessGame game) {
         String from = request.getParameter("from");
         String to = request.getParameter("to");
+        String promotion = request.getParameter("promotion");
+        String san = request.getParameter("san");
         
         JsonObject jsonResponse = new JsonObject();
         
-        if (from != null && to != null) {
-            boolean success = game.makeMove(from, to);
+        if (san != null || from != null && to != null) {
+            boolean success = san != null ? game.makeMove(san) : game.makeMove(from, to, promotion);
             jsonResponse.addProperty("success", success);
             if (success) {
                 jsonResponse.add("board", gson.toJsonTree(game.getBoardState()));
@@ -166,7 +367,80 @@ public class ChessServlet extends HttpServlet {
                 jsonResponse.addProperty("error", "Invalid move");
             }
         } else {
-            jsonResponse.addProperty("error", "From and to parameters required");
+            jsonResponse.addProperty("error", "From and to parameters, or a san parameter, required");
+        }
+        return jsonResponse;
+    }
+    
+    /**
+     * Take back the last move
+     */
+    private JsonObject undoMove(ChessGame game) {
+        JsonObject jsonResponse = new JsonObject();
+        boolean success = game.undoMove();
+        jsonResponse.addProperty("success", success);
+        if (success) {
+            jsonResponse.add("board", gson.toJsonTree(game.getBoardState()));
+            jsonResponse.add("gameInfo", gson.toJsonTree(game.getGameInfo()));
+        } else {
+            jsonResponse.addProperty("error", "No move to undo");
+        }
+        return jsonResponse;
+    }
+    
+    /**
+     * Search the current position with the engine
+     */
+    private void findBestMove(HttpServletRequest request, HttpServletResponse response) 
+            throws IOException {
+        JsonObject jsonResponse = new JsonObject();
+        try {
+            long moveTime = parseLong(request.getParameter("movetime"), DEFAULT_MOVE_TIME);
+            moveTime = Math.max(1, Math.min(moveTime, MAX_MOVE_TIME));
+            String depthParam = request.getParameter("depth");
+            long threadParam = parseLong(request.getParameter("threads"), 1);
+            int threads = (int) Math.max(1, Math.min(threadParam, engine.getMaxThreads()));
+            SearchLimits limits = depthParam != null
+                    ? new SearchLimits(Integer.parseInt(depthParam), moveTime / 2, moveTime, threads)
+                    : SearchLimits.moveTime(moveTime).withThreads(threads);
+            
+            // Search a copy, so the game's lock is not held for the whole search
+            Bitboard position = withGame(request, ChessGame::copyPosition);
+            SearchResult result = searchPool.search(engine, position, limits);
+            if (result.getBestMove() != Move.NONE) {
+                jsonResponse.addProperty("success", true);
+                jsonResponse.addProperty("bestMove", Move.toCoordinate(result.getBestMove()));
+                List<String> pvSan = San.toSan(position, result.getPv());
+                jsonResponse.addProperty("bestMoveSan", pvSan.isEmpty()
+                        ? San.toSan(position, result.getBestMove()) : pvSan.get(0));
+                jsonResponse.addProperty("score", result.getScore());
+                jsonResponse.addProperty("mate", result.isMate());
+                jsonResponse.addProperty("book", result.isBook());
+                jsonResponse.addProperty("tablebase", result.isTablebase());
+                jsonResponse.addProperty("depth", result.getDepth());
+                jsonResponse.addProperty("nodes", result.getNodes());
+                jsonResponse.addProperty("nps", result.getNodesPerSecond());
+                jsonResponse.addProperty("timeMs", result.getMillis());
+                jsonResponse.addProperty("hashfull", engine.getTable().hashfull());
+                jsonResponse.add("pv", gson.toJsonTree(result.getPvMoves()));
+                jsonResponse.add("pvSan", gson.toJsonTree(pvSan));
+            } else {
+                jsonResponse.addProperty("success", false);
+                jsonResponse.addProperty("error", "No legal moves");
+            }
+        } catch (NumberFormatException e) {
+            jsonResponse.addProperty("success", false);
+            jsonResponse.addProperty("error", "Invalid movetime, depth or threads parameter");
+        } catch (RejectedExecutionException e) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            jsonResponse.addProperty("success", false);
+            jsonResponse.addProperty("error", "Engine busy, try again shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            jsonResponse.addProperty("success", false);
+            jsonResponse.addProperty("error", "Search interrupted");
         }
         
         PrintWriter out = response.getWriter();
@@ -174,35 +448,74 @@ public class ChessServlet extends HttpServlet {
         out.flush();
     }
     
+    /**
+     * Read a setting from application.properties, falling back when running outside Spring Boot
+     */
+    private int getIntProperty(String name, int defaultValue) {
+        WebApplicationContext context = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
+        if (context == null) {
+            return defaultValue;
+        }
+        return context.getEnvironment().getProperty(name, Integer.class, defaultValue);
+    }
+    
+    private String getStringProperty(String name) {
+        WebApplicationContext context = WebApplicationContextUtils.getWebApplicationContext(getServletContext());
+        return context == null ? null : context.getEnvironment().getProperty(name);
+    }
+    
+    private static long parseLong(String value, long defaultValue) {
+        return value == null || value.isEmpty() ? defaultValue : Long.parseLong(value);
+    }
+    
     /**
      * Reset current game
      */
-    private void resetGame(HttpServletRequest request, HttpServletResponse response) 
-            throws IOException {
-        ChessGame game = getOrCreateGame(request);
+    private JsonObject resetGame(ChessGame game) {
         game.resetGame();
         
         JsonObject jsonResponse = new JsonObject();
         jsonResponse.addProperty("success", true);
         jsonResponse.add("board", gson.toJsonTree(game.getBoardState()));
         jsonResponse.add("gameInfo", gson.toJsonTree(game.getGameInfo()));
-        
-        PrintWriter out = response.getWriter();
-        out.print(gson.toJson(jsonResponse));
-        out.flush();
+        return jsonResponse;
     }
     
     /**
-     * Create new game
+     * Create new game, from the standard start or from the position in the fen parameter
      */
     private void newGame(HttpServletRequest request, HttpServletResponse response) 
             throws IOException {
+        String fen = request.getParameter("fen");
+        ChessGame game;
+        try {
+            game = fen == null || fen.isBlank() ? new ChessGame() : new ChessGame(fen);
+        } catch (IllegalArgumentException e) {
+            JsonObject jsonResponse = new JsonObject();
+            jsonResponse.addProperty("success", false);
+            jsonResponse.addProperty("error", e.getMessage());
+            
+            PrintWriter out = response.getWriter();
+            out.print(gson.toJson(jsonResponse));
+            out.flush();
+            return;
+        }
+        attachTablebases(game);
+        String gameId = games.register(game);
         HttpSession session = request.getSession();
-        ChessGame game = new ChessGame();
-        session.setAttribute("chessGame", game);
+        ReentrantLock lock = sessionLock(session);
+        lock.lock();
+        try {
+            // Replacing the attribute unbinds the previous game, which drops it from the registry
+            session.setAttribute(GAME_ATTRIBUTE, new GameHandle(gameId));
+        } finally {
+            lock.unlock();
+        }
         
         JsonObject jsonResponse = new JsonObject();
         jsonResponse.addProperty("success", true);
+        jsonResponse.addProperty("gameId", gameId);
+        jsonResponse.addProperty("fen", game.getFen());
         jsonResponse.add("board", gson.toJsonTree(game.getBoardState()));
         jsonResponse.add("gameInfo", gson.toJsonTree(game.getGameInfo()));
         
@@ -212,17 +525,188 @@ public class ChessServlet extends HttpServlet {
     }
     
     /**
-     * Get or create chess game from session
+     * Run an action on the session's game while holding the game's lock, creating
+     * a game if the session has none. Concurrent requests on one game, from
+     * double clicks or several tabs, apply one at a time.
+     */
+    private <T> T withGame(HttpServletRequest request, Function<ChessGame, T> action) throws IOException {
+        return withGameId(request, (gameId, game) -> action.apply(game));
+    }
+    
+    /**
+     * Like withGame, for actions that also need the game's id
      */
-    private ChessGame getOrCreateGame(HttpServletRequest request) {
+    private <T> T withGameId(HttpServletRequest request, BiFunction<String, ChessGame, T> action) throws IOException {
         HttpSession session = request.getSession();
-        ChessGame game = (ChessGame) session.getAttribute("chessGame");
+        while (true) {
+            Object handle = session.getAttribute(GAME_ATTRIBUTE);
+            if (handle instanceof GameHandle) {
+                String gameId = ((GameHandle) handle).gameId;
+                Optional<T> result = games.withGame(gameId, game -> action.apply(gameId, game));
+                if (result.isPresent()) {
+                    return result.get();
+                }
+            }
+            // No game yet, or the game was dropped. A new game started concurrently
+            // may have replaced the handle meanwhile, and must not be overwritten.
+            ReentrantLock lock = sessionLock(session);
+            lock.lock();
+            try {
+                if (session.getAttribute(GAME_ATTRIBUTE) == handle) {
+                    ChessGame game = new ChessGame();
+                    attachTablebases(game);
+                    session.setAttribute(GAME_ATTRIBUTE, new GameHandle(games.register(game)));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Lock serializing changes to a session's game attribute, so a game created
+     * for a request never replaces one bound by a concurrent new game
+     */
+    private ReentrantLock sessionLock(HttpSession session) {
+        int hash = session.getId().hashCode();
+        return sessionLocks[(hash ^ (hash >>> 16)) & (SESSION_STRIPES - 1)];
+    }
+    
+    /**
+     * Write the JSON of a handler's result, rendered under the game's lock
+     */
+    private void respondWithGame(HttpServletRequest request, HttpServletResponse response,
+            Function<ChessGame, Object> handler) throws IOException {
+        String json = withGame(request, game -> gson.toJson(handler.apply(game)));
         
-        if (game == null) {
-            game = new ChessGame();
-            session.setAttribute("chessGame", game);
+        PrintWriter out = response.getWriter();
+        out.print(json);
+        out.flush();
+    }
+    
+    /**
+     * Like respondWithGame for handlers that change the game: when the response
+     * reports success, the change is pushed to the game's stream subscribers as
+     * the squares that changed and the new game info, still under the lock so
+     * that every subscriber sees the changes in order
+     */
+    private void respondWithChange(HttpServletRequest request, HttpServletResponse response, String event,
+            Function<ChessGame, JsonObject> handler) throws IOException {
+        String json = withGameId(request, (gameId, game) -> {
+            // Subscribing takes the same lock, so nobody can join between the check and the publish
+            boolean watched = broadcaster.hasSubscribers(gameId);
+            String[][] before = watched ? game.getBoardState() : null;
+            JsonObject result = handler.apply(game);
+            if (watched && result.has("success") && result.get("success").getAsBoolean()) {
+                broadcaster.publish(gameId, event, gson.toJson(GameEvents.change(before, game)));
+            }
+            return gson.toJson(result);
+        });
+        
+        PrintWriter out = response.getWriter();
+        out.print(json);
+        out.flush();
+    }
+    
+    /**
+     * Hold the request open as a server-sent event stream of a game's changes:
+     * a snapshot event first, then move, undo and reset events as they happen.
+     * A finished game keeps its stream, since an undo or reset resumes play; a
+     * closed event ends it when the session drops the game for a new one or
+     * expires. The stream follows the session's game, or the game named by the
+     * gameId parameter for spectators.
+     */
+    private void streamGame(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String gameId = request.getParameter("gameId");
+        AsyncContext context = request.startAsync();
+        context.setTimeout(0);
+        response.setContentType("text/event-stream");
+        response.setHeader("Cache-Control", "no-cache");
+        // Disables buffering in nginx, which would otherwise hold the events back
+        response.setHeader("X-Accel-Buffering", "no");
+        
+        GameBroadcaster.Sink sink = new GameBroadcaster.Sink() {
+            @Override
+            public void write(String frame) throws IOException {
+                PrintWriter out = context.getResponse().getWriter();
+                out.write(frame);
+                out.flush();
+                if (out.checkError()) {
+                    throw new IOException("Stream client disconnected");
+                }
+            }
+            
+            @Override
+            public void close() {
+                try {
+                    context.complete();
+                } catch (IllegalStateException e) {
+                    // Already completed by the container
+                }
+            }
+        };
+        BiFunction<String, ChessGame, Runnable> subscribe = (id, game) -> broadcaster.subscribe(id, sink,
+                "snapshot", gson.toJson(GameEvents.snapshot(id, game)));
+        Optional<Runnable> subscription = gameId == null || gameId.isEmpty()
+                ? Optional.of(withGameId(request, subscribe))
+                : games.withGame(gameId, game -> subscribe.apply(gameId, game));
+        if (subscription.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            context.complete();
+            return;
+        }
+        Runnable unsubscribe = subscription.get();
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                unsubscribe.run();
+            }
+            
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                unsubscribe.run();
+            }
+            
+            @Override
+            public void onError(AsyncEvent event) {
+                unsubscribe.run();
+            }
+            
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+    
+    /**
+     * Session attribute naming the session's game, which drops the game from
+     * the registry and ends its streams when the session ends or gets another game.
+     * Only the id is serialized; the registry and broadcaster are looked up in the
+     * servlet context, so a handle restored from a persisted session still cleans up.
+     */
+    private static final class GameHandle implements HttpSessionBindingListener, Serializable {
+        private static final long serialVersionUID = 2L;
+        private final String gameId;
+        
+        GameHandle(String gameId) {
+            this.gameId = gameId;
         }
         
-        return game;
+        @Override
+        public void valueUnbound(HttpSessionBindingEvent event) {
+            ServletContext context = event.getSession().getServletContext();
+            GameRegistry registry = (GameRegistry) context.getAttribute(REGISTRY_ATTRIBUTE);
+            GameBroadcaster broadcaster = (GameBroadcaster) context.getAttribute(BROADCASTER_ATTRIBUTE);
+            if (registry == null || broadcaster == null) {
+                // The servlet is not running, and its registry went with it
+                return;
+            }
+            broadcaster.close(gameId, "closed", "{}");
+            try {
+                registry.remove(gameId);
+            } catch (IOException e) {
+                context.log("Game " + gameId + " not removed: " + e.getMessage());
+            }
+        }
     }
 }
@@ -0,0 +1,228 @@
+package com.chess.servlet;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-sent event subscribers of each game. Open connections are only
+ * entries in a set; publishing appends a frame to each subscriber's queue and,
+ * if no write is in flight for it, starts one on a virtual thread that drains
+ * the queue. The publisher never blocks on a client, no thread is held per
+ * connection, and each subscriber receives a game's events in publishing order.
+ * Subscribers that fall too far behind or fail a write are dropped; their
+ * EventSource reconnects and starts again from a snapshot.
+ */
+public final class GameBroadcaster {
+    /** Frames a subscriber may have waiting before it is dropped */
+    public static final int MAX_PENDING = 256;
+    
+    private static final String PING = ": ping\n\n";
+    
+    private final ConcurrentHashMap<String, Set<Subscriber>> games = new ConcurrentHashMap<>();
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+    
+    /**
+     * Where a subscriber's frames go, such as an async servlet response
+     */
+    public interface Sink {
+        /** Write and flush one complete frame */
+        void write(String frame) throws IOException;
+        
+        /** End the connection; called once, after which no more frames are written */
+        void close();
+    }
+    
+    /**
+     * One connection. Only the writer, the drain running on a virtual thread,
+     * touches the sink, since servlet responses are not thread-safe; other
+     * threads close a subscriber by flagging it and waking the writer, which
+     * closes the sink once any write in progress returns.
+     */
+    private final class Subscriber {
+        final String gameId;
+        final Sink sink;
+        final Queue<String> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pendingCount = new AtomicInteger();
+        final AtomicBoolean writing = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        /** Close once the frames already queued are written */
+        volatile boolean closing;
+        /** Only read and written by the writer, which the writing flag keeps to one thread at a time */
+        boolean sinkClosed;
+        
+        Subscriber(String gameId, Sink sink) {
+            this.gameId = gameId;
+            this.sink = sink;
+        }
+        
+        void offer(String frame) {
+            if (closed.get()) {
+                return;
+            }
+            if (pendingCount.incrementAndGet() > MAX_PENDING) {
+                close();
+                return;
+            }
+            pending.add(frame);
+            startWriter();
+        }
+        
+        void closeWhenWritten() {
+            closing = true;
+            startWriter();
+        }
+        
+        /**
+         * Stop sending: drop the queued frames and have the writer close the sink
+         */
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                remove(this);
+                pending.clear();
+                startWriter();
+            }
+        }
+        
+        private void startWriter() {
+            if (writing.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+        
+        private void drain() {
+            do {
+                String frame;
+                while (!closed.get() && (frame = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    try {
+                        sink.write(frame);
+                    } catch (IOException | RuntimeException e) {
+                        close();
+                    }
+                }
+                if (closing && pending.isEmpty()) {
+                    close();
+                }
+                if (closed.get() && !sinkClosed) {
+                    sinkClosed = true;
+                    pending.clear();
+                    sink.close();
+                }
+                writing.set(false);
+                // Work queued after the last poll but before the flag was cleared needs a writer
+            } while (hasWork() && writing.compareAndSet(false, true));
+        }
+        
+        private boolean hasWork() {
+            return closed.get() ? !sinkClosed : !pending.isEmpty() || closing;
+        }
+    }
+    
+    /**
+     * Add a subscriber to a game and send it a first event, normally a snapshot
+     * of the game. To miss no event, call this under the game's lock.
+     * Returns a handle that unsubscribes when run.
+     */
+    public Runnable subscribe(String gameId, Sink sink, String event, String json) {
+        Subscriber subscriber = new Subscriber(gameId, sink);
+        // Added inside the mapping, so a remove emptying the set cannot unmap it in between
+        games.compute(gameId, (id, subscribers) -> {
+            subscribers = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+            subscribers.add(subscriber);
+            return subscribers;
+        });
+        subscriber.offer(frame(event, json));
+        return subscriber::close;
+    }
+    
+    private void remove(Subscriber subscriber) {
+        games.computeIfPresent(subscriber.gameId, (id, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+    
+    /**
+     * Check whether a game has subscribers, to skip building events nobody reads
+     */
+    public boolean hasSubscribers(String gameId) {
+        return games.containsKey(gameId);
+    }
+    
+    /**
+     * Send an event to every subscriber of a game. Events of one game must be
+     * published under the game's lock, so all subscribers see them in one order.
+     */
+    public void publish(String gameId, String event, String json) {
+        Set<Subscriber> subscribers = games.get(gameId);
+        if (subscribers == null) {
+            return;
+        }
+        String frame = frame(event, json);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(frame);
+        }
+    }
+    
+    /**
+     * Send a last event to a game's subscribers and end their connections
+     */
+    public void close(String gameId, String event, String json) {
+        Set<Subscriber> subscribers = games.remove(gameId);
+        if (subscribers == null) {
+            return;
+        }
+        String frame = frame(event, json);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(frame);
+            subscriber.closeWhenWritten();
+        }
+    }
+    
+    /**
+     * Write a comment to every subscriber, which keeps idle connections open
+     * through proxies and finds clients that went away
+     */
+    public void heartbeat() {
+        for (Set<Subscriber> subscribers : games.values()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(PING);
+            }
+        }
+    }
+    
+    private static String frame(String event, String json) {
+        return "event: " + event + "\ndata: " + json + "\n\n";
+    }
+    
+    /**
+     * Number of open subscriptions over all games
+     */
+    public int getSubscribers() {
+        int count = 0;
+        for (Set<Subscriber> subscribers : games.values()) {
+            count += subscribers.size();
+        }
+        return count;
+    }
+    
+    /**
+     * Close every subscriber; writes in progress finish before their sinks close
+     */
+    public void shutdown() {
+        for (String gameId : games.keySet()) {
+            Set<Subscriber> subscribers = games.remove(gameId);
+            if (subscribers != null) {
+                subscribers.forEach(Subscriber::close);
+            }
+        }
+        writers.shutdown();
+    }
+}
@@ -0,0 +1,48 @@
+package com.chess.servlet;
+
+import com.chess.controller.ChessGame;
+import com.chess.model.Position;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * Bodies of the events pushed to game streams
+ */
+public final class GameEvents {
+    private static final Gson GSON = new Gson();
+    
+    private GameEvents() {
+    }
+    
+    /**
+     * Full state of a game, sent to new stream subscribers
+     */
+    public static JsonObject snapshot(String gameId, ChessGame game) {
+        JsonObject snapshot = new JsonObject();
+        snapshot.addProperty("gameId", gameId);
+        snapshot.add("board", GSON.toJsonTree(game.getBoardState()));
+        snapshot.add("gameInfo", GSON.toJsonTree(game.getGameInfo()));
+        return snapshot;
+    }
+    
+    /**
+     * Squares whose piece changed since the board before, with "" for squares
+     * left empty, and the game info
+     */
+    public static JsonObject change(String[][] before, ChessGame game) {
+        String[][] after = game.getBoardState();
+        JsonObject squares = new JsonObject();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                String piece = after[row][col];
+                if (piece == null ? before[row][col] != null : !piece.equals(before[row][col])) {
+                    squares.addProperty(new Position(row, col).toAlgebraic(), piece == null ? "" : piece);
+                }
+            }
+        }
+        JsonObject change = new JsonObject();
+        change.add("squares", squares);
+        change.add("gameInfo", GSON.toJsonTree(game.getGameInfo()));
+        return change;
+    }
+}
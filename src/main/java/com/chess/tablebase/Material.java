@@ -0,0 +1,197 @@
+package com.chess.tablebase;
+
+import com.chess.model.Bitboard;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Material signature of an endgame such as KRKP: the white pieces after the
+ * first K, the black pieces after the second, strongest first. Signatures are
+ * kept in one orientation, with the stronger side as white; positions with the
+ * colours the other way round are looked up with the board flipped.
+ */
+public final class Material {
+    private static final String LETTERS = "PNBRQ";
+    private static final int[] VALUES = {1, 3, 3, 5, 9};
+    
+    private final String name;
+    private final int[] colors;
+    private final int[] types;
+    private final int key;
+    
+    private Material(int[] colors, int[] types) {
+        this.colors = colors;
+        this.types = types;
+        int key = 0;
+        for (int i = 0; i < types.length; i++) {
+            key += 1 << shift(colors[i], types[i]);
+        }
+        this.key = key;
+        this.name = without(-1);
+    }
+    
+    /**
+     * Parse a signature such as KQK or KPKR, turning it round if black is the stronger side
+     */
+    public static Material parse(String name) {
+        int second = name.indexOf('K', 1);
+        if (name.isEmpty() || name.charAt(0) != 'K' || second < 0 || name.indexOf('K', second + 1) >= 0) {
+            throw new IllegalArgumentException("Invalid material signature: " + name);
+        }
+        int[] white = types(name, 1, second);
+        int[] black = types(name, second + 1, name.length());
+        if (compare(white, black) < 0) {
+            int[] swap = white;
+            white = black;
+            black = swap;
+        }
+        return of(white, black);
+    }
+    
+    private static int[] types(String name, int start, int end) {
+        int[] types = new int[end - start];
+        for (int i = start; i < end; i++) {
+            int type = LETTERS.indexOf(name.charAt(i));
+            if (type < 0) {
+                throw new IllegalArgumentException("Invalid material signature: " + name);
+            }
+            types[i - start] = type;
+        }
+        // Strongest first, so every spelling of the same material gets one name
+        Arrays.sort(types);
+        for (int i = 0, j = types.length - 1; i < j; i++, j--) {
+            int swap = types[i];
+            types[i] = types[j];
+            types[j] = swap;
+        }
+        return types;
+    }
+    
+    /**
+     * Order sides by material value, then by their strongest pieces
+     */
+    private static int compare(int[] white, int[] black) {
+        int difference = value(white) - value(black);
+        if (difference != 0) {
+            return difference;
+        }
+        for (int i = 0; i < Math.min(white.length, black.length); i++) {
+            if (white[i] != black[i]) {
+                return white[i] - black[i];
+            }
+        }
+        return white.length - black.length;
+    }
+    
+    private static int value(int[] types) {
+        int value = 0;
+        for (int type : types) {
+            value += VALUES[type];
+        }
+        return value;
+    }
+    
+    private static Material of(int[] white, int[] black) {
+        int[] colors = new int[white.length + black.length];
+        int[] types = new int[colors.length];
+        for (int i = 0; i < white.length; i++) {
+            colors[i] = Bitboard.WHITE;
+            types[i] = white[i];
+        }
+        for (int i = 0; i < black.length; i++) {
+            colors[white.length + i] = Bitboard.BLACK;
+            types[white.length + i] = black[i];
+        }
+        return new Material(colors, types);
+    }
+    
+    /**
+     * Key of the material on a board: three bits counting each piece type of each colour, kings excluded
+     */
+    static int key(Bitboard board) {
+        int key = 0;
+        for (int color = Bitboard.WHITE; color <= Bitboard.BLACK; color++) {
+            for (int type = Bitboard.PAWN; type < Bitboard.KING; type++) {
+                key += Long.bitCount(board.pieces(color, type)) << shift(color, type);
+            }
+        }
+        return key;
+    }
+    
+    /**
+     * The key of the same material with the colours exchanged
+     */
+    static int flip(int key) {
+        return (key >>> 15) | (key & 0x7FFF) << 15;
+    }
+    
+    private static int shift(int color, int type) {
+        return color * 15 + type * 3;
+    }
+    
+    /**
+     * Signatures reached by a capture or a promotion, which must be solved first
+     */
+    List<Material> successors() {
+        List<Material> successors = new ArrayList<>();
+        for (int i = 0; i < types.length; i++) {
+            successors.add(parse(without(i)));
+            if (types[i] == Bitboard.PAWN) {
+                for (int promotion = Bitboard.KNIGHT; promotion <= Bitboard.QUEEN; promotion++) {
+                    successors.add(parse(replaced(i, promotion)));
+                }
+            }
+        }
+        return successors;
+    }
+    
+    private String without(int index) {
+        StringBuilder signature = new StringBuilder("K");
+        for (int color = Bitboard.WHITE; color <= Bitboard.BLACK; color++) {
+            if (color == Bitboard.BLACK) {
+                signature.append('K');
+            }
+            for (int i = 0; i < types.length; i++) {
+                if (colors[i] == color && i != index) {
+                    signature.append(LETTERS.charAt(types[i]));
+                }
+            }
+        }
+        return signature.toString();
+    }
+    
+    private String replaced(int index, int type) {
+        String signature = without(index);
+        int at = colors[index] == Bitboard.WHITE ? 1 : signature.length();
+        return signature.substring(0, at) + LETTERS.charAt(type) + signature.substring(at);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Number of pieces including both kings
+     */
+    public int getPieceCount() {
+        return types.length + 2;
+    }
+    
+    int getKey() {
+        return key;
+    }
+    
+    int colorOf(int piece) {
+        return colors[piece];
+    }
+    
+    int typeOf(int piece) {
+        return types[piece];
+    }
+    
+    @Override
+    public String toString() {
+        return name;
+    }
+}
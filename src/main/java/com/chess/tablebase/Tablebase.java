@@ -0,0 +1,136 @@
+package com.chess.tablebase;
+
+import com.chess.engine.Search;
+import com.chess.model.Bitboard;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Distance-to-mate table for one material signature, mapped from a file.
+ *
+ * The file is a 16-byte header (magic, material key, longest mate in moves)
+ * followed by one byte per index. The index packs the side to move, the white
+ * king, the black king and the other pieces in signature order, six bits per
+ * square; the board is mirrored so the white king stands on files a-d, which
+ * halves the table. Identical pieces are indexed in ascending square order.
+ *
+ * Value bytes: 0 draw, odd n the side to move mates in n plies, even n >= 2 the
+ * side to move is mated in n - 2 plies, 255 an index that is not a legal position.
+ * Castling rights and en passant are not represented.
+ */
+public final class Tablebase {
+    static final long MAGIC = 0x4348455353544231L;
+    static final int HEADER_BYTES = 16;
+    
+    static final int DRAW = 0;
+    static final int UNRESOLVED = 254;
+    static final int INVALID = 255;
+    static final int MAX_PLIES = 250;
+    
+    private final Material material;
+    private final MappedByteBuffer values;
+    private final int longestMate;
+    
+    private Tablebase(Material material, MappedByteBuffer values, int longestMate) {
+        this.material = material;
+        this.values = values;
+        this.longestMate = longestMate;
+    }
+    
+    /**
+     * Map a table file, named after its signature as in KRKP.tb
+     */
+    static Tablebase open(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        Material material = Material.parse(name.substring(0, name.length() - ".tb".length()));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_BYTES + size(material)) {
+                throw new IOException("Invalid tablebase (size " + channel.size() + "): " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getLong(0) != MAGIC || header.getInt(8) != material.getKey()) {
+                throw new IOException("Invalid tablebase (header): " + file);
+            }
+            MappedByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, size(material));
+            return new Tablebase(material, values, header.getInt(12));
+        }
+    }
+    
+    /**
+     * Number of indexes of a table for this material
+     */
+    static int size(Material material) {
+        return 2 * 32 * 64 << (6 * (material.getPieceCount() - 2));
+    }
+    
+    /**
+     * Index of a position with this material; with flip set the board is read
+     * upside down with the colours exchanged, for material stored the other way round
+     */
+    static int index(Material material, Bitboard board, boolean flip) {
+        int flipColor = flip ? 1 : 0;
+        int flipSquare = flip ? 56 : 0;
+        int whiteKing = board.kingSquare(Bitboard.WHITE ^ flipColor) ^ flipSquare;
+        int mirror = (whiteKing & 7) > 3 ? 7 : 0;
+        whiteKing ^= mirror;
+        int transform = flipSquare ^ mirror;
+        
+        int index = (board.sideToMove() ^ flipColor) * 32 + (whiteKing >>> 3) * 4 + (whiteKing & 7);
+        index = index * 64 + (board.kingSquare(Bitboard.BLACK ^ flipColor) ^ transform);
+        int count = material.getPieceCount() - 2;
+        for (int i = 0; i < count; i++) {
+            long pieces = board.pieces(material.colorOf(i) ^ flipColor, material.typeOf(i));
+            int square = Long.numberOfTrailingZeros(pieces) ^ transform;
+            if (i + 1 < count && material.colorOf(i + 1) == material.colorOf(i)
+                    && material.typeOf(i + 1) == material.typeOf(i)) {
+                int other = (63 - Long.numberOfLeadingZeros(pieces)) ^ transform;
+                index = (index * 64 + Math.min(square, other)) * 64 + Math.max(square, other);
+                i++;
+            } else {
+                index = index * 64 + square;
+            }
+        }
+        return index;
+    }
+    
+    /**
+     * Search score of the position for the side to move: Search.MATE minus the plies
+     * to mate for a win, the negation for a loss, 0 for a draw
+     */
+    int score(Bitboard board, boolean flip) {
+        return score(values.get(index(material, board, flip)) & 0xFF);
+    }
+    
+    static int score(int value) {
+        if (value == DRAW || value >= UNRESOLVED) {
+            return 0;
+        }
+        return (value & 1) != 0 ? Search.MATE - value : -(Search.MATE - (value - 2));
+    }
+    
+    static int win(int plies) {
+        return plies;
+    }
+    
+    static int loss(int plies) {
+        return plies + 2;
+    }
+    
+    static boolean isWin(int value) {
+        return (value & 1) != 0 && value != INVALID;
+    }
+    
+    public Material getMaterial() {
+        return material;
+    }
+    
+    /**
+     * Longest forced mate of the table in moves, 0 when no position is won
+     */
+    public int getLongestMate() {
+        return longestMate;
+    }
+}
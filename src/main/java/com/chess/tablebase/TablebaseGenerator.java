@@ -0,0 +1,399 @@
+package com.chess.tablebase;
+
+import com.chess.engine.Search;
+import com.chess.model.Attacks;
+import com.chess.model.Bitboard;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Solves endgames of up to four pieces by retrograde analysis and writes their
+ * tables into a directory, solving the tables reached by captures and
+ * promotions first.
+ *
+ * Every index is first decoded and given its moves: mates and stalemates are
+ * final, and moves that change the material are scored from the tables already
+ * solved. Then positions are resolved in order of distance to mate. Pass n
+ * takes the positions resolved at n - 1, walks their moves backwards to find
+ * predecessors and marks them: after a loss every predecessor is won in n, after
+ * a win a predecessor is lost in n once all of its moves are checked to lose.
+ * Positions still open when nothing changes are draws. Each pass is split over
+ * a fork/join pool by index range.
+ */
+public final class TablebaseGenerator {
+    public static final int MAX_PIECES = 4;
+    
+    /** Indexes per subtask */
+    private static final int GRAIN = 1 << 14;
+    
+    private final Path directory;
+    private final ForkJoinPool pool;
+    private final Tablebases tablebases;
+    private final Consumer<String> progress;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+    
+    /**
+     * Create a generator writing into a directory, reusing the tables already in it
+     */
+    public TablebaseGenerator(Path directory, int threads, Consumer<String> progress) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+        this.tablebases = Tablebases.open(directory);
+        this.progress = progress;
+    }
+    
+    /**
+     * Solve an endgame such as KRKP and everything it converts into, skipping
+     * tables that already exist. Returns the tables of the directory.
+     */
+    public Tablebases generate(String signature) throws IOException {
+        Material material = Material.parse(signature);
+        if (material.getPieceCount() > MAX_PIECES) {
+            throw new IllegalArgumentException("At most " + MAX_PIECES + " pieces: " + signature);
+        }
+        generate(material);
+        return tablebases;
+    }
+    
+    private void generate(Material material) throws IOException {
+        if (material.getPieceCount() < 3 || tablebases.contains(material)) {
+            return;
+        }
+        for (Material successor : material.successors()) {
+            generate(successor);
+        }
+        long start = System.nanoTime();
+        int longest = new Job(material).solve();
+        tablebases.add(Tablebase.open(directory.resolve(material.getName() + ".tb")));
+        progress.accept(material.getName() + ": longest mate " + longest + " moves, "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+    
+    public void shutdown() {
+        pool.shutdown();
+    }
+    
+    /**
+     * Board and move buffer each pool thread reuses
+     */
+    private static final class Worker {
+        final Bitboard board = new Bitboard();
+        final int[] moves = new int[MoveGenerator.MAX_MOVES];
+        final int[] squares = new int[MAX_PIECES];
+    }
+    
+    private interface RangeBody {
+        void run(int from, int to, Worker worker);
+    }
+    
+    /**
+     * Solving state of one table
+     */
+    private final class Job {
+        final Material material;
+        final int size;
+        final int pieces;
+        final byte[] values;
+        /** Distance of the best conversion by capture or promotion, used to wake positions */
+        final byte[] exitPlies;
+        final byte[] candidates;
+        
+        Job(Material material) {
+            this.material = material;
+            this.size = Tablebase.size(material);
+            this.pieces = material.getPieceCount() - 2;
+            this.values = new byte[size];
+            this.exitPlies = new byte[size];
+            this.candidates = new byte[size];
+        }
+        
+        int solve() throws IOException {
+            LongAdder resolved = new LongAdder();
+            int[] longestExit = new int[1];
+            parallel((from, to, worker) -> {
+                int longest = 0;
+                for (int i = from; i < to; i++) {
+                    longest = Math.max(longest, initialize(i, worker));
+                }
+                synchronized (longestExit) {
+                    longestExit[0] = Math.max(longestExit[0], longest);
+                }
+            });
+            
+            int quiet = 0;
+            for (int plies = 1; plies <= Tablebase.MAX_PLIES && (quiet < 2 || plies <= longestExit[0]); plies++) {
+                int previous = (plies & 1) != 0 ? Tablebase.loss(plies - 1) : Tablebase.win(plies - 1);
+                int current = plies;
+                parallel((from, to, worker) -> {
+                    for (int i = from; i < to; i++) {
+                        if ((values[i] & 0xFF) == previous && decode(i, worker)) {
+                            markPredecessors(worker.board);
+                        }
+                    }
+                });
+                resolved.reset();
+                parallel((from, to, worker) -> {
+                    for (int i = from; i < to; i++) {
+                        if (resolve(i, current, worker)) {
+                            resolved.increment();
+                        }
+                    }
+                });
+                quiet = resolved.sum() == 0 ? quiet + 1 : 0;
+            }
+            
+            int longest = 0;
+            for (int i = 0; i < size; i++) {
+                int value = values[i] & 0xFF;
+                if (value == Tablebase.UNRESOLVED) {
+                    values[i] = Tablebase.DRAW;
+                } else if (value != Tablebase.INVALID && value != Tablebase.DRAW) {
+                    longest = Math.max(longest, Tablebase.isWin(value) ? (value + 1) / 2 : (value - 2) / 2);
+                }
+            }
+            write(longest);
+            return longest;
+        }
+        
+        /**
+         * Classify an index, returning the plies of its best conversion or 0
+         */
+        private int initialize(int index, Worker worker) {
+            Bitboard board = worker.board;
+            if (!decode(index, worker)) {
+                values[index] = (byte) Tablebase.INVALID;
+                return 0;
+            }
+            int count = MoveGenerator.generateLegal(board, worker.moves, 0);
+            if (count == 0) {
+                values[index] = (byte) (MoveGenerator.isInCheck(board) ? Tablebase.loss(0) : Tablebase.DRAW);
+                return 0;
+            }
+            values[index] = (byte) Tablebase.UNRESOLVED;
+            
+            int fastestWin = Integer.MAX_VALUE;
+            int slowestLoss = 0;
+            boolean canDraw = false;
+            for (int m = 0; m < count; m++) {
+                int move = worker.moves[m];
+                if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                    continue;
+                }
+                int child = probeConversion(board, move);
+                if (child < 0) {
+                    fastestWin = Math.min(fastestWin, Search.MATE + child + 1);
+                } else if (child > 0) {
+                    slowestLoss = Math.max(slowestLoss, Search.MATE - child + 1);
+                } else {
+                    canDraw = true;
+                }
+            }
+            int exit = fastestWin != Integer.MAX_VALUE ? fastestWin : canDraw ? 0 : slowestLoss;
+            exitPlies[index] = (byte) exit;
+            return exit;
+        }
+        
+        private int probeConversion(Bitboard board, int move) {
+            board.make(move);
+            int score = tablebases.probe(board);
+            board.unmake();
+            if (score == Tablebases.UNKNOWN) {
+                throw new IllegalStateException("No table for a conversion from " + material);
+            }
+            return score;
+        }
+        
+        /**
+         * Mark the positions one move before this one, with the other side to move
+         */
+        private void markPredecessors(Bitboard board) {
+            int mover = board.sideToMove() ^ 1;
+            long occupied = board.occupied();
+            board.setSideToMove(mover);
+            long movers = board.occupancy(mover);
+            while (movers != 0) {
+                int to = Long.numberOfTrailingZeros(movers);
+                movers &= movers - 1;
+                long origins = origins(board, mover, to, occupied);
+                while (origins != 0) {
+                    int from = Long.numberOfTrailingZeros(origins);
+                    origins &= origins - 1;
+                    board.movePiece(to, from);
+                    if (!board.isAttacked(board.kingSquare(mover ^ 1), mover)) {
+                        candidates[Tablebase.index(material, board, false)] = 1;
+                    }
+                    board.movePiece(from, to);
+                }
+            }
+            board.setSideToMove(mover ^ 1);
+        }
+        
+        /**
+         * Empty squares the piece on a square could have come from without capturing or promoting
+         */
+        private long origins(Bitboard board, int mover, int to, long occupied) {
+            switch (Bitboard.typeOf(board.pieceAt(to))) {
+                case Bitboard.PAWN:
+                    int step = mover == Bitboard.WHITE ? -8 : 8;
+                    int single = to + step;
+                    int rank = single >>> 3;
+                    if (rank == 0 || rank == 7 || (occupied & (1L << single)) != 0) {
+                        return 0L;
+                    }
+                    long origins = 1L << single;
+                    int doubleRank = mover == Bitboard.WHITE ? 3 : 4;
+                    if (to >>> 3 == doubleRank && (occupied & (1L << (single + step))) == 0) {
+                        origins |= 1L << (single + step);
+                    }
+                    return origins;
+                case Bitboard.KNIGHT:
+                    return Attacks.knight(to) & ~occupied;
+                case Bitboard.BISHOP:
+                    return Attacks.bishop(to, occupied) & ~occupied;
+                case Bitboard.ROOK:
+                    return Attacks.rook(to, occupied) & ~occupied;
+                case Bitboard.QUEEN:
+                    return Attacks.queen(to, occupied) & ~occupied;
+                default:
+                    return Attacks.king(to) & ~occupied;
+            }
+        }
+        
+        /**
+         * Settle an open position in pass n if it was marked or its best conversion is n plies away
+         */
+        private boolean resolve(int index, int plies, Worker worker) {
+            boolean marked = candidates[index] != 0;
+            candidates[index] = 0;
+            if ((values[index] & 0xFF) != Tablebase.UNRESOLVED || !marked && (exitPlies[index] & 0xFF) != plies) {
+                return false;
+            }
+            if ((plies & 1) != 0) {
+                values[index] = (byte) Tablebase.win(plies);
+                return true;
+            }
+            if (!decode(index, worker) || !allMovesLose(worker.board, worker.moves, plies)) {
+                return false;
+            }
+            values[index] = (byte) Tablebase.loss(plies);
+            return true;
+        }
+        
+        /**
+         * Check that every move loses within the plies of this pass; a conversion
+         * that loses more slowly settles the position in its own, later pass
+         */
+        private boolean allMovesLose(Bitboard board, int[] moves, int plies) {
+            int count = MoveGenerator.generateLegal(board, moves, 0);
+            for (int m = 0; m < count; m++) {
+                int move = moves[m];
+                if (Move.isCapture(move) || Move.isPromotion(move)) {
+                    int child = probeConversion(board, move);
+                    if (child <= 0 || Search.MATE - child + 1 > plies) {
+                        return false;
+                    }
+                    continue;
+                }
+                board.make(move);
+                int child = values[Tablebase.index(material, board, false)] & 0xFF;
+                board.unmake();
+                if (!Tablebase.isWin(child)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Set up the position of an index, returning false if it is not a legal
+         * position in canonical form
+         */
+        private boolean decode(int index, Worker worker) {
+            Bitboard board = worker.board;
+            int[] squares = worker.squares;
+            board.clear();
+            for (int i = pieces - 1; i >= 0; i--) {
+                squares[i] = index & 63;
+                index >>>= 6;
+            }
+            int blackKing = index & 63;
+            int kingIndex = (index >>> 6) & 31;
+            int whiteKing = (kingIndex >>> 2) * 8 + (kingIndex & 3);
+            int side = index >>> 11;
+            if (whiteKing == blackKing || (Attacks.king(whiteKing) & (1L << blackKing)) != 0) {
+                return false;
+            }
+            board.addPiece(Bitboard.piece(Bitboard.WHITE, Bitboard.KING), whiteKing);
+            board.addPiece(Bitboard.piece(Bitboard.BLACK, Bitboard.KING), blackKing);
+            for (int i = 0; i < pieces; i++) {
+                int square = squares[i];
+                int type = material.typeOf(i);
+                if ((board.occupied() & (1L << square)) != 0
+                        || type == Bitboard.PAWN && (square >>> 3 == 0 || square >>> 3 == 7)
+                        || i > 0 && type == material.typeOf(i - 1) && material.colorOf(i) == material.colorOf(i - 1)
+                                && square < squares[i - 1]) {
+                    return false;
+                }
+                board.addPiece(Bitboard.piece(material.colorOf(i), type), square);
+            }
+            board.setSideToMove(side);
+            return !board.isAttacked(board.kingSquare(side ^ 1), side);
+        }
+        
+        private void write(int longest) throws IOException {
+            Path file = directory.resolve(material.getName() + ".tb");
+            ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES);
+            header.putLong(Tablebase.MAGIC).putInt(material.getKey()).putInt(longest).flip();
+            ByteBuffer body = ByteBuffer.wrap(values);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (body.hasRemaining()) {
+                    channel.write(body);
+                }
+            }
+        }
+        
+        private void parallel(RangeBody body) {
+            pool.invoke(new RangeTask(body, 0, size));
+        }
+    }
+    
+    /**
+     * Runs a range of indexes, splitting it in halves down to the grain size
+     */
+    private final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient RangeBody body;
+        private final int from;
+        private final int to;
+        
+        RangeTask(RangeBody body, int from, int to) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                body.run(from, to, workers.get());
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(body, from, middle), new RangeTask(body, middle, to));
+            }
+        }
+    }
+}
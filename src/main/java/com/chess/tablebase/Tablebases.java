@@ -0,0 +1,153 @@
+package com.chess.tablebase;
+
+import com.chess.model.Attacks;
+import com.chess.model.Bitboard;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The endgame tables available on the node, looked up by the material on the
+ * board. A probe is a material count, a linear scan over the few tables and one
+ * byte read from a mapping, so it allocates nothing and can run inside the
+ * search; bare kings are always a draw without a table.
+ */
+public final class Tablebases {
+    /** Probe result for positions no table covers */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    
+    private volatile Tablebase[] tables = new Tablebase[0];
+    private volatile int maxPieces;
+    
+    /**
+     * Map every .tb file of a directory; a missing directory gives no tables
+     */
+    public static Tablebases open(Path directory) throws IOException {
+        Tablebases tablebases = new Tablebases();
+        if (!Files.isDirectory(directory)) {
+            return tablebases;
+        }
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(directory)) {
+            files = paths.filter(path -> path.getFileName().toString().endsWith(".tb"))
+                    .sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            tablebases.add(Tablebase.open(file));
+        }
+        return tablebases;
+    }
+    
+    synchronized void add(Tablebase table) {
+        Tablebase[] grown = Arrays.copyOf(tables, tables.length + 1);
+        grown[tables.length] = table;
+        tables = grown;
+        maxPieces = Math.max(maxPieces, table.getMaterial().getPieceCount());
+    }
+    
+    /**
+     * Score of the position for the side to move in the search's mate scale:
+     * Search.MATE minus the plies to mate for a win, the negation for a loss,
+     * 0 for a draw, or UNKNOWN. Positions with castling rights or an en passant
+     * capture available are UNKNOWN, since the tables do not hold those rights.
+     */
+    public int probe(Bitboard board) {
+        int count = Long.bitCount(board.occupied());
+        if (count > 2 && count > maxPieces || board.castlingRights() != 0) {
+            return UNKNOWN;
+        }
+        int side = board.sideToMove();
+        int ep = board.epSquare();
+        if (ep != Bitboard.NO_SQUARE && (Attacks.pawn(side ^ 1, ep) & board.pieces(side, Bitboard.PAWN)) != 0) {
+            return UNKNOWN;
+        }
+        int key = Material.key(board);
+        if (key == 0) {
+            return 0;
+        }
+        Tablebase table = find(key);
+        if (table != null) {
+            return table.score(board, false);
+        }
+        table = find(Material.flip(key));
+        return table != null ? table.score(board, true) : UNKNOWN;
+    }
+    
+    /**
+     * The move that mates fastest, or when lost resists longest, or Move.NONE if
+     * the position or one of its successors is not covered. The moves buffer is
+     * scratch space; the board is left unchanged.
+     */
+    public int bestMove(Bitboard board, int[] moves) {
+        if (probe(board) == UNKNOWN) {
+            return Move.NONE;
+        }
+        int count = MoveGenerator.generateLegal(board, moves, 0);
+        int best = Move.NONE;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            board.make(moves[i]);
+            int child = probe(board);
+            board.unmake();
+            if (child == UNKNOWN) {
+                return Move.NONE;
+            }
+            // One ply further from mate than the position after the move
+            int score = child > 0 ? -(child - 1) : child < 0 ? -(child + 1) : 0;
+            if (score > bestScore) {
+                bestScore = score;
+                best = moves[i];
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Longest forced mate in moves with the material on the board, 0 when no
+     * position with it can be won, or -1 when no table covers it
+     */
+    public int longestMate(Bitboard board) {
+        int key = Material.key(board);
+        if (key == 0) {
+            return 0;
+        }
+        Tablebase table = find(key);
+        if (table == null) {
+            table = find(Material.flip(key));
+        }
+        return table != null ? table.getLongestMate() : -1;
+    }
+    
+    /**
+     * Check whether a table for this material is available, in either orientation
+     */
+    public boolean contains(Material material) {
+        return find(material.getKey()) != null;
+    }
+    
+    private Tablebase find(int key) {
+        for (Tablebase table : tables) {
+            if (table.getMaterial().getKey() == key) {
+                return table;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Most pieces, kings included, of any available table
+     */
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+    
+    public int size() {
+        return tables.length;
+    }
+}
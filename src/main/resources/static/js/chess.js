@@ -10,6 +10,9 @@ class ChessUI {
         this.validMoves = [];
         this.currentPlayer = 'WHITE';
         this.gameActive = true;
+        this.ply = 0;
+        this.gameId = null;
+        this.stream = null;
         
         this.pieceSymbols = {
             'WK': '♔', 'WQ': '♕', 'WR': '♖', 'WB': '♗', 'WN': '♘', 'WP': '♙',
@@ -26,6 +29,63 @@ class ChessUI {
         this.createBoard();
         this.setupEventListeners();
         this.loadGameState();
+        this.openStream();
+    }
+    
+    /**
+     * Follow the game's changes pushed by the server, so that moves made in
+     * another tab or by another player show up without polling. Every event
+     * carries the move count, which tells whether this page already has the
+     * change, from its own request, or missed one and must reload.
+     */
+    openStream() {
+        if (this.stream) {
+            this.stream.close();
+        }
+        if (!window.EventSource) return;
+        
+        this.stream = new EventSource('chess/stream');
+        this.stream.addEventListener('snapshot', (e) => {
+            const data = JSON.parse(e.data);
+            if (data.gameId !== this.gameId) {
+                this.gameId = data.gameId;
+                this.clearMoveHistory();
+            }
+            this.updateBoard(data.board);
+            this.updateGameInfo(data.gameInfo);
+        });
+        this.stream.addEventListener('move', (e) => {
+            const data = JSON.parse(e.data);
+            const ply = data.gameInfo.moveCount;
+            if (ply <= this.ply) return;
+            if (ply !== this.ply + 1) {
+                this.loadGameState();
+                return;
+            }
+            this.applySquares(data.squares);
+            this.updateGameInfo(data.gameInfo);
+            this.addMoveToHistory(data.gameInfo.lastMove);
+        });
+        this.stream.addEventListener('undo', (e) => {
+            const data = JSON.parse(e.data);
+            const ply = data.gameInfo.moveCount || 0;
+            if (ply >= this.ply) return;
+            if (ply !== this.ply - 1) {
+                this.loadGameState();
+                return;
+            }
+            this.applySquares(data.squares);
+            this.updateGameInfo(data.gameInfo);
+            this.removeLastMoveFromHistory();
+        });
+        this.stream.addEventListener('reset', (e) => {
+            const data = JSON.parse(e.data);
+            this.applySquares(data.squares);
+            this.updateGameInfo(data.gameInfo);
+            this.clearMoveHistory();
+        });
+        // The session moved to another game; follow it
+        this.stream.addEventListener('closed', () => this.openStream());
     }
     
     /**
@@ -55,6 +115,8 @@ class ChessUI {
      */
     setupEventListeners() {
         document.getElementById('newGameBtn').addEventListener('click', () => this.newGame());
+        document.getElementById('engineMoveBtn').addEventListener('click', () => this.engineMove());
+        document.getElementById('undoBtn').addEventListener('click', () => this.undoMove());
         document.getElementById('resetGameBtn').addEventListener('click', () => this.resetGame());
     }
     
@@ -131,7 +193,7 @@ class ChessUI {
             
             if (data.validMoves) {
                 this.validMoves = data.validMoves;
-                this.highlightValidMoves();
+                this.highlightValidMoves(data.losingCaptures || []);
             }
         } catch (error) {
             console.error('Error fetching valid moves:', error);
@@ -139,14 +201,18 @@ class ChessUI {
     }
     
     /**
-     * Highlight valid move squares
+     * Highlight valid move squares, marking captures that lose material
      */
-    highlightValidMoves() {
+    highlightValidMoves(losingCaptures) {
         this.validMoves.forEach(move => {
             const { row, col } = this.getRowCol(move);
             const square = document.querySelector(`[data-row="${row}"][data-col="${col}"]`);
             if (square) {
                 square.classList.add('valid-move');
+                if (losingCaptures.includes(move)) {
+                    square.classList.add('losing-capture');
+                    square.title = 'This capture loses material';
+                }
             }
         });
     }
@@ -156,15 +222,16 @@ class ChessUI {
      */
     clearValidMoves() {
         document.querySelectorAll('.valid-move').forEach(square => {
-            square.classList.remove('valid-move');
+            square.classList.remove('valid-move', 'losing-capture');
+            square.removeAttribute('title');
         });
         this.validMoves = [];
     }
     
     /**
-     * Make a move
+     * Make a move, with the piece letter for a promotion (the server defaults to a queen)
      */
-    async makeMove(from, to) {
+    async makeMove(from, to, promotion) {
         this.showLoading(true);
         
         try {
@@ -173,15 +240,19 @@ class ChessUI {
                 headers: {
                     'Content-Type': 'application/x-www-form-urlencoded',
                 },
-                body: `from=${from}&to=${to}`
+                body: `from=${from}&to=${to}` + (promotion ? `&promotion=${promotion}` : '')
             });
             
             const data = await response.json();
             
             if (data.success) {
+                // The pushed move may have arrived first
+                const added = data.gameInfo.moveCount > this.ply;
                 this.updateBoard(data.board);
                 this.updateGameInfo(data.gameInfo);
-                this.addMoveToHistory(from + '-' + to);
+                if (added) {
+                    this.addMoveToHistory(data.gameInfo.lastMove || from + '-' + to);
+                }
                 this.showMessage('Move successful!', 1000);
             } else {
                 this.showMessage(data.error || 'Invalid move!', 2000);
@@ -203,21 +274,37 @@ class ChessUI {
         squares.forEach(square => {
             const row = parseInt(square.dataset.row);
             const col = parseInt(square.dataset.col);
-            const piece = boardState[row][col];
-            
-            square.innerHTML = '';
-            
-            if (piece) {
-                const pieceElement = document.createElement('span');
-                pieceElement.className = `piece ${piece.charAt(0) === 'W' ? 'white' : 'black'}`;
-                pieceElement.textContent = this.pieceSymbols[piece] || '?';
-                square.appendChild(pieceElement);
-            }
+            this.renderPiece(square, boardState[row][col]);
         });
         
         this.board = boardState;
     }
     
+    /**
+     * Update only the squares a pushed change lists, '' meaning empty
+     */
+    applySquares(changes) {
+        Object.entries(changes).forEach(([position, piece]) => {
+            const { row, col } = this.getRowCol(position);
+            this.board[row][col] = piece || null;
+            this.renderPiece(document.querySelector(`[data-position="${position}"]`), piece);
+        });
+    }
+    
+    /**
+     * Show a piece, or nothing, on a square element
+     */
+    renderPiece(square, piece) {
+        square.innerHTML = '';
+        
+        if (piece) {
+            const pieceElement = document.createElement('span');
+            pieceElement.className = `piece ${piece.charAt(0) === 'W' ? 'white' : 'black'}`;
+            pieceElement.textContent = this.pieceSymbols[piece] || '?';
+            square.appendChild(pieceElement);
+        }
+    }
+    
     /**
      * Update game information display
      */
@@ -228,6 +315,7 @@ class ChessUI {
         document.getElementById('lastMove').textContent = gameInfo.lastMove || '-';
         
         this.currentPlayer = gameInfo.currentPlayer || 'WHITE';
+        this.ply = gameInfo.moveCount || 0;
         this.gameActive = gameInfo.gameState === 'ACTIVE';
     }
     
@@ -308,6 +396,66 @@ class ChessUI {
         }
     }
     
+    /**
+     * Ask the engine for a move and play it
+     */
+    async engineMove() {
+        if (!this.gameActive) return;
+        this.showLoading(true);
+        
+        let bestMove = null;
+        try {
+            const response = await fetch('chess/engine/bestmove?movetime=1000', { method: 'POST' });
+            const data = await response.json();
+            
+            if (data.success) {
+                bestMove = data.bestMove;
+            } else {
+                this.showMessage(data.error || 'Engine found no move', 2000);
+            }
+        } catch (error) {
+            console.error('Error requesting engine move:', error);
+            this.showMessage('Error requesting engine move. Please try again.', 2000);
+        } finally {
+            this.showLoading(false);
+        }
+        
+        if (bestMove) {
+            this.deselectSquare();
+            // Coordinate moves carry the promotion piece as a fifth letter, e.g. e7e8n
+            await this.makeMove(bestMove.substring(0, 2), bestMove.substring(2, 4), bestMove.substring(4, 5));
+        }
+    }
+    
+    /**
+     * Take back the last move
+     */
+    async undoMove() {
+        this.showLoading(true);
+        
+        try {
+            const response = await fetch('chess/undo', { method: 'POST' });
+            const data = await response.json();
+            
+            if (data.success) {
+                const removed = (data.gameInfo.moveCount || 0) < this.ply;
+                this.updateBoard(data.board);
+                this.updateGameInfo(data.gameInfo);
+                if (removed) {
+                    this.removeLastMoveFromHistory();
+                }
+                this.deselectSquare();
+            } else {
+                this.showMessage(data.error || 'Nothing to undo!', 1500);
+            }
+        } catch (error) {
+            console.error('Error undoing move:', error);
+            this.showMessage('Error undoing move. Please try again.', 2000);
+        } finally {
+            this.showLoading(false);
+        }
+    }
+    
     /**
      * Reset current game
      */
@@ -333,6 +481,16 @@ class ChessUI {
         }
     }
     
+    /**
+     * Remove the last entry from the move history display
+     */
+    removeLastMoveFromHistory() {
+        const historyList = document.getElementById('moveHistoryList');
+        if (historyList.lastElementChild) {
+            historyList.removeChild(historyList.lastElementChild);
+        }
+    }
+    
     /**
      * Clear move history display
      */
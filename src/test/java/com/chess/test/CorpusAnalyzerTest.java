@@ -0,0 +1,71 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+
+import com.chess.CorpusAnalyzer;
+import com.chess.pgn.CorpusStats;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+
+/**
+ * Corpus audit over a directory of PGN and FEN files
+ */
+public class CorpusAnalyzerTest {
+    
+    private static Path corpus() throws IOException {
+        Path directory = Files.createTempDirectory("corpus");
+        Path nested = Files.createDirectory(directory.resolve("nested"));
+        Files.write(directory.resolve("games.pgn"), (
+                "[Event \"Scholar\"]\n[Result \"1-0\"]\n\n1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6 4. Qxf7# 1-0\n\n"
+                + "[Event \"Wrong result\"]\n[Result \"1/2-1/2\"]\n\n1. f3 e5 2. g4 Qh4# 1/2-1/2\n\n"
+                + "[Event \"Hanging queen\"]\n[Result \"0-1\"]\n\n1. e4 e5 2. Qh5 Nc6 3. Qxf7+ Kxf7 0-1\n\n"
+                + "[Event \"Illegal\"]\n\n1. e4 e5 2. Nf6 *\n\n").getBytes(StandardCharsets.US_ASCII));
+        Files.write(nested.resolve("positions.epd"), (
+                "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - bm Bb5; id \"ruy\";\n"
+                + "4k3/8/8/8/8/8/8/4K3 w - - 0 1\n"
+                + "4k3/8/8/8/8/8/8/8 w - - 0 1\n").getBytes(StandardCharsets.US_ASCII));
+        Files.write(directory.resolve("notes.txt"), "ignored".getBytes(StandardCharsets.US_ASCII));
+        return directory;
+    }
+    
+    @Test
+    public void auditsGamesAndPositions() throws IOException {
+        CorpusAnalyzer analyzer = new CorpusAnalyzer(3, 0, CorpusAnalyzer.DEFAULT_BLUNDER_CENTIPAWNS, 1);
+        try {
+            CorpusStats stats = analyzer.analyze(corpus());
+            
+            assertEquals(3, stats.getGames());
+            assertEquals(1, stats.getInvalidGames());
+            assertEquals(1, stats.getWhiteWins());
+            assertEquals(1, stats.getBlackWins());
+            assertEquals(1, stats.getDraws());
+            assertEquals(1, stats.getResultMismatches());
+            assertEquals((7 + 4 + 6) / 2.0 / 3, stats.getAverageMoves(), 1e-9);
+            assertEquals(2, stats.getPositions());
+            assertEquals(1, stats.getInvalidPositions());
+            assertEquals(2, stats.getSampledErrors().size());
+            assertEquals(0, stats.getEvaluatedPositions());
+        } finally {
+            analyzer.shutdown();
+        }
+    }
+    
+    @Test
+    public void countsBlundersWithTheEngine() throws IOException {
+        CorpusAnalyzer analyzer = new CorpusAnalyzer(2, 3, CorpusAnalyzer.DEFAULT_BLUNDER_CENTIPAWNS, 4);
+        try {
+            CorpusStats stats = analyzer.analyze(corpus());
+            
+            // Every position of the valid games plus the two valid positions
+            assertEquals(8 + 5 + 7 + 2, stats.getEvaluatedPositions());
+            // 2. g4 allows mate and 3. Qxf7+ gives the queen away; 3... Nf6 allows Qxf7#
+            assertEquals(2, stats.getWhiteBlunders());
+            assertEquals(1, stats.getBlackBlunders());
+        } finally {
+            analyzer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.chess.Perft;
+import com.chess.engine.Evaluator;
+import com.chess.engine.PawnStructure;
+import com.chess.engine.PawnTable;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+import com.chess.model.PieceSquareTables;
+import com.chess.model.Position;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Incrementally maintained piece-square evaluation
+ */
+public class EvaluatorTest {
+    private final Evaluator evaluator = new Evaluator();
+    
+    @Test
+    public void incrementalScoreMatchesFullRescan() {
+        Random random = new Random(12345);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (Object[] reference : Perft.REFERENCE_POSITIONS) {
+            Bitboard board = new Bitboard();
+            Fen.load(board, (String) reference[1]);
+            int before = evaluator.evaluate(board);
+            int played = 0;
+            for (int i = 0; i < 60; i++) {
+                int count = MoveGenerator.generateLegal(board, moves, 0);
+                if (count == 0) {
+                    break;
+                }
+                board.make(moves[random.nextInt(count)]);
+                played++;
+                assertEquals(evaluator.evaluateFromScratch(board), evaluator.evaluate(board));
+            }
+            while (played-- > 0) {
+                board.unmake();
+            }
+            assertEquals(before, evaluator.evaluate(board));
+        }
+    }
+    
+    @Test
+    public void mirroredPositionsScoreTheSame() {
+        Bitboard white = new Bitboard();
+        Fen.load(white, "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+        Bitboard black = new Bitboard();
+        Fen.load(black, "rnbqkb1r/pppp1ppp/5n2/4p3/4P3/2N5/PPPP1PPP/R1BQKBNR b KQkq - 2 3");
+        
+        assertEquals(evaluator.evaluate(white), evaluator.evaluate(black));
+    }
+    
+    @Test
+    public void phaseTracksRemainingPieces() {
+        Bitboard board = new Bitboard();
+        Fen.load(board, Fen.START_POSITION);
+        assertEquals(PieceSquareTables.MAX_PHASE, board.phase());
+        
+        Fen.load(board, "4k3/pppppppp/8/8/8/8/PPPPPPPP/4K3 w - - 0 1");
+        assertEquals(0, board.phase());
+        assertTrue(evaluator.evaluate(board) > -50 && evaluator.evaluate(board) < 50);
+    }
+    
+    @Test
+    public void pawnStructurePenaltiesAndBonuses() {
+        Bitboard board = new Bitboard();
+        Fen.load(board, "4k3/8/8/2P5/8/8/8/4K3 w - - 0 1");
+        long isolated = PawnStructure.evaluate(board);
+        Fen.load(board, "4k3/8/8/2P5/2P5/8/8/4K3 w - - 0 1");
+        long doubled = PawnStructure.evaluate(board);
+        Fen.load(board, "4k3/1p6/8/2P5/8/8/8/4K3 w - - 0 1");
+        long blocked = PawnStructure.evaluate(board);
+        
+        // A lone pawn is isolated but passed; doubling it loses the passer on the back pawn
+        assertTrue(PawnStructure.endgame(doubled) < 2 * PawnStructure.endgame(isolated));
+        assertTrue(PawnStructure.endgame(blocked) < PawnStructure.endgame(isolated));
+    }
+    
+    @Test
+    public void pawnTableCachesByPawnKey() {
+        PawnTable table = new PawnTable(1024);
+        Evaluator cached = new Evaluator(table);
+        Bitboard board = new Bitboard();
+        Fen.load(board, "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3");
+        
+        int first = cached.evaluate(board);
+        // Moving a knight keeps the pawn key, so both later probes hit
+        board.make(Move.encode(new Position("b1").getSquare(),
+                new Position("c3").getSquare(), Move.QUIET));
+        cached.evaluate(board);
+        board.unmake();
+        
+        assertEquals(first, cached.evaluate(board));
+        assertEquals(evaluator.evaluateFromScratch(board), first);
+        assertEquals(3, table.getProbes());
+        assertEquals(2, table.getHits());
+    }
+}
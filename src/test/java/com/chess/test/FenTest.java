@@ -0,0 +1,107 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.chess.Perft;
+import com.chess.controller.ChessGame;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.Position;
+import com.chess.model.Zobrist;
+import org.junit.Test;
+
+/**
+ * FEN parsing, serialization and rejection of malformed positions
+ */
+public class FenTest {
+    
+    @Test
+    public void referencePositionsRoundTrip() {
+        Bitboard board = new Bitboard();
+        for (Object[] reference : Perft.REFERENCE_POSITIONS) {
+            String fen = (String) reference[1];
+            Fen.load(board, fen);
+            
+            assertEquals(fen, Fen.toFen(board));
+            assertEquals(Zobrist.compute(board), board.hash());
+        }
+    }
+    
+    @Test
+    public void loadsOneRecordOfALargerBuffer() {
+        StringBuilder buffer = new StringBuilder("8/8/8/8/8/8/8/K6k w - -\n")
+                .append("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 12\r\n");
+        Bitboard board = new Bitboard();
+        int start = buffer.indexOf("\n") + 1;
+        Fen.load(board, buffer, start, buffer.length());
+        
+        assertEquals("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 12", Fen.toFen(board));
+        
+        Fen.load(board, buffer, 0, start);
+        assertEquals("8/8/8/8/8/8/8/K6k w - - 0 1", Fen.toFen(board));
+    }
+    
+    @Test
+    public void castlingRightsWithoutTheirRookAreDropped() {
+        Bitboard board = new Bitboard();
+        Fen.load(board, "4k3/8/8/8/8/8/8/4K2R w KQkq - 0 1");
+        
+        assertEquals(Bitboard.WHITE_KING_SIDE, board.castlingRights());
+    }
+    
+    @Test
+    public void rejectsMalformedPositions() {
+        String[] invalid = {
+            "",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNRR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkx - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e4 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - x 1",
+            "rnbq1bnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQ - 0 1",
+            "P3k3/8/8/8/8/8/8/4K3 w - - 0 1",
+            "4k3/4Q3/8/8/8/8/8/4K3 w - - 0 1",
+            // En passant squares with a knight, or nothing, on the victim square
+            "4k3/8/8/3nP3/8/8/8/4K3 w - d6 0 1",
+            "4k3/8/8/4P3/8/8/8/4K3 w - d6 0 1",
+            // Counters beyond what the board can hold, or wrapping an int
+            "4k3/8/8/8/8/8/8/4K3 w - - 10000 1",
+            "4k3/8/8/8/8/8/8/4K3 w - - 0 99999999999"
+        };
+        Bitboard board = new Bitboard();
+        for (String fen : invalid) {
+            try {
+                Fen.load(board, fen);
+                fail("Accepted " + fen);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().startsWith("Invalid FEN"));
+            }
+        }
+    }
+    
+    @Test
+    public void keepsCapturableEnPassantSquaresAndLargeClocks() {
+        Bitboard board = new Bitboard();
+        Fen.load(board, "4k3/8/8/3pP3/8/8/8/4K3 w - d6 9999 1");
+        assertEquals(new Position("d6").getSquare(), board.epSquare());
+        assertEquals(9999, board.halfmoveClock());
+        Fen.load(board, "4k3/8/8/8/3Pp3/8/8/4K3 b - d3 0 1");
+        assertEquals(new Position("d3").getSquare(), board.epSquare());
+    }
+    
+    @Test
+    public void gameStartsFromFen() {
+        ChessGame game = new ChessGame("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        
+        assertEquals("STALEMATE", game.getGameInfo().get("gameState"));
+        assertEquals("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1", game.getFen());
+        
+        game = new ChessGame("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1");
+        assertTrue(game.makeMove("e2", "e4"));
+        assertEquals("4k3/8/8/8/4P3/8/8/4K3 b - e3 0 1", game.getFen());
+    }
+}
@@ -0,0 +1,167 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.chess.servlet.GameBroadcaster;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * Game event fan-out: order per subscriber, dropping failed and stalled
+ * clients, a last event before closing, and reconnects racing departures
+ */
+public class GameBroadcasterTest {
+    
+    /** Records frames; closing counts down the latch */
+    private static class RecordingSink implements GameBroadcaster.Sink {
+        final List<String> frames = new CopyOnWriteArrayList<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+        
+        @Override
+        public void write(String frame) throws IOException {
+            frames.add(frame);
+        }
+        
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+        
+        boolean awaitClose() throws InterruptedException {
+            return closed.await(5, TimeUnit.SECONDS);
+        }
+    }
+    
+    @Test
+    public void sendsEveryEventInOrderToEverySubscriber() throws Exception {
+        GameBroadcaster broadcaster = new GameBroadcaster();
+        RecordingSink first = new RecordingSink();
+        RecordingSink second = new RecordingSink();
+        RecordingSink other = new RecordingSink();
+        broadcaster.subscribe("game", first, "snapshot", "{}");
+        broadcaster.subscribe("game", second, "snapshot", "{}");
+        broadcaster.subscribe("other", other, "snapshot", "{}");
+        for (int i = 1; i <= 100; i++) {
+            broadcaster.publish("game", "move", "{\"ply\":" + i + "}");
+        }
+        broadcaster.close("game", "closed", "{}");
+        assertTrue(first.awaitClose());
+        assertTrue(second.awaitClose());
+        
+        for (RecordingSink sink : new RecordingSink[] { first, second }) {
+            assertEquals(102, sink.frames.size());
+            assertEquals("event: snapshot\ndata: {}\n\n", sink.frames.get(0));
+            for (int i = 1; i <= 100; i++) {
+                assertEquals("event: move\ndata: {\"ply\":" + i + "}\n\n", sink.frames.get(i));
+            }
+            assertEquals("event: closed\ndata: {}\n\n", sink.frames.get(101));
+        }
+        assertEquals(1, other.frames.size());
+        assertEquals(1, broadcaster.getSubscribers());
+        broadcaster.shutdown();
+    }
+    
+    @Test
+    public void dropsSubscribersThatFailOrFallBehind() throws Exception {
+        GameBroadcaster broadcaster = new GameBroadcaster();
+        RecordingSink failing = new RecordingSink() {
+            @Override
+            public void write(String frame) throws IOException {
+                if (frame.startsWith("event: move")) {
+                    throw new IOException("Broken pipe");
+                }
+                super.write(frame);
+            }
+        };
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch entered = new CountDownLatch(1);
+        AtomicBoolean inWrite = new AtomicBoolean();
+        AtomicBoolean closedDuringWrite = new AtomicBoolean();
+        RecordingSink stalled = new RecordingSink() {
+            @Override
+            public void write(String frame) throws IOException {
+                inWrite.set(true);
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                } finally {
+                    inWrite.set(false);
+                }
+                super.write(frame);
+            }
+            
+            @Override
+            public void close() {
+                closedDuringWrite.compareAndSet(false, inWrite.get());
+                super.close();
+            }
+        };
+        broadcaster.subscribe("game", failing, "snapshot", "{}");
+        broadcaster.subscribe("game", stalled, "snapshot", "{}");
+        
+        // The stalled client is stuck on its snapshot while the moves queue up
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i <= GameBroadcaster.MAX_PENDING; i++) {
+            broadcaster.publish("game", "move", "{}");
+        }
+        assertTrue(failing.awaitClose());
+        assertEquals(0, broadcaster.getSubscribers());
+        // The response is only closed once the write blocking on it returns
+        assertFalse(stalled.closed.await(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(stalled.awaitClose());
+        assertFalse(closedDuringWrite.get());
+        assertEquals(1, stalled.frames.size());
+        
+        RecordingSink healthy = new RecordingSink();
+        broadcaster.subscribe("game", healthy, "snapshot", "{}");
+        broadcaster.publish("game", "move", "{}");
+        assertEquals(1, broadcaster.getSubscribers());
+        broadcaster.close("game", "closed", "{}");
+        assertTrue(healthy.awaitClose());
+        assertEquals(3, healthy.frames.size());
+        broadcaster.shutdown();
+    }
+    
+    @Test
+    public void subscriberJoiningWhileTheLastLeavesStaysSubscribed() throws Exception {
+        GameBroadcaster broadcaster = new GameBroadcaster();
+        CyclicBarrier start = new CyclicBarrier(2);
+        for (int i = 0; i < 2000; i++) {
+            String gameId = "game" + i;
+            Runnable leaving = broadcaster.subscribe(gameId, new RecordingSink(), "snapshot", "{}");
+            RecordingSink joining = new RecordingSink();
+            // A page reload: the old stream closes as the new one subscribes
+            Thread leaver = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                leaving.run();
+            });
+            leaver.start();
+            start.await();
+            Runnable joined = broadcaster.subscribe(gameId, joining, "snapshot", "{}");
+            leaver.join();
+            
+            assertTrue(broadcaster.hasSubscribers(gameId));
+            broadcaster.close(gameId, "closed", "{}");
+            assertTrue(joining.awaitClose());
+            assertEquals(2, joining.frames.size());
+            joined.run();
+        }
+        assertEquals(0, broadcaster.getSubscribers());
+        broadcaster.shutdown();
+    }
+}
@@ -0,0 +1,138 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.chess.controller.ChessGame;
+import com.chess.registry.GameRegistry;
+import com.chess.registry.MemorySpillStore;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * Concurrent requests on shared and separate games through the registry's per-game locks
+ */
+public class GameConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final String START = new ChessGame().getFen();
+    private static final String[] SHUFFLE = {"Nf3", "Nf6", "Ng1", "Ng8"};
+    
+    private static void runAll(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void actionsOnOneGameAreSerialized() throws Exception {
+        GameRegistry registry = new GameRegistry(16, Long.MAX_VALUE, new MemorySpillStore(), game -> { });
+        String id = registry.register(new ChessGame());
+        
+        // Each action moves and takes the move back, so every action must start
+        // from the initial position unless another one interleaves with it
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    String error = registry.withGame(id, game -> {
+                        if (!START.equals(game.getFen())) {
+                            return "saw a move in progress: " + game.getFen();
+                        }
+                        if (!game.makeMove("e4") || !game.undoMove()) {
+                            return "move or undo rejected";
+                        }
+                        return "";
+                    }).orElse("game missing");
+                    assertEquals("", error);
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+        
+        ChessGame game = registry.get(id);
+        assertEquals(START, game.getFen());
+        assertTrue(game.getMoveHistory().isEmpty());
+        assertEquals(0, game.getGameInfo().get("moveCount"));
+    }
+    
+    @Test
+    public void separateGamesProceedWhileEvictionRuns() throws Exception {
+        GameRegistry registry = new GameRegistry(THREADS, 0, new MemorySpillStore(), game -> { });
+        int gamesPerThread = 8;
+        int rounds = 100;
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < THREADS * gamesPerThread; i++) {
+            ids.add(registry.register(new ChessGame()));
+        }
+        
+        AtomicBoolean playing = new AtomicBoolean(true);
+        Thread sweeper = new Thread(() -> {
+            while (playing.get()) {
+                try {
+                    registry.evictIdle();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        sweeper.start();
+        
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            List<String> own = ids.subList(t * gamesPerThread, (t + 1) * gamesPerThread);
+            tasks.add(() -> {
+                for (int round = 0; round < rounds; round++) {
+                    for (String id : own) {
+                        int ply = round;
+                        assertTrue(registry.withGame(id, game -> game.makeMove(SHUFFLE[ply % SHUFFLE.length])).orElse(false));
+                    }
+                }
+                return null;
+            });
+        }
+        try {
+            runAll(tasks);
+        } finally {
+            playing.set(false);
+            sweeper.join();
+        }
+        
+        // Every move survived being spilled and restored in between
+        for (String id : ids) {
+            ChessGame game = registry.get(id);
+            assertEquals(rounds, game.getGameInfo().get("moveCount"));
+            assertEquals(START.split(" ")[0], game.getFen().split(" ")[0]);
+        }
+        assertTrue(registry.getEvictions() > 0);
+    }
+    
+    @Test
+    public void unknownGamesAreReportedApartFromResults() throws IOException {
+        GameRegistry registry = new GameRegistry(16, Long.MAX_VALUE, new MemorySpillStore(), game -> { });
+        String id = registry.register(new ChessGame());
+        assertEquals(Optional.of(START), registry.withGame(id, ChessGame::getFen));
+        assertFalse(registry.withGame("unknown", ChessGame::getFen).isPresent());
+        try {
+            registry.withGame(id, game -> null);
+            fail("Null result accepted");
+        } catch (NullPointerException e) {
+            // The game is still known; a null result must not read as a missing game
+        }
+    }
+}
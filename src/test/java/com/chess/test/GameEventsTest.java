@@ -0,0 +1,76 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.chess.controller.ChessGame;
+import com.chess.servlet.GameEvents;
+import com.google.gson.JsonObject;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.Test;
+
+/**
+ * Stream event bodies: the squares a move, castling, en passant or undo changes
+ */
+public class GameEventsTest {
+    
+    /** Make a move and return the squares its change event lists */
+    private static Map<String, String> squaresAfter(ChessGame game, String san) {
+        String[][] before = game.getBoardState();
+        assertTrue(san, game.makeMove(san));
+        return squares(GameEvents.change(before, game));
+    }
+    
+    private static Map<String, String> squares(JsonObject change) {
+        Map<String, String> squares = new TreeMap<>();
+        change.getAsJsonObject("squares").entrySet()
+                .forEach(entry -> squares.put(entry.getKey(), entry.getValue().getAsString()));
+        return squares;
+    }
+    
+    private static Map<String, String> map(String... squaresAndPieces) {
+        Map<String, String> map = new TreeMap<>();
+        for (int i = 0; i < squaresAndPieces.length; i += 2) {
+            map.put(squaresAndPieces[i], squaresAndPieces[i + 1]);
+        }
+        return map;
+    }
+    
+    @Test
+    public void changeListsMovedAndEmptiedSquares() {
+        ChessGame game = new ChessGame();
+        assertEquals(map("e2", "", "e4", "WP"), squaresAfter(game, "e4"));
+        
+        String[][] before = game.getBoardState();
+        game.makeMove("e5");
+        JsonObject change = GameEvents.change(before, game);
+        assertEquals(map("e7", "", "e5", "BP"), squares(change));
+        assertEquals(2, change.getAsJsonObject("gameInfo").get("moveCount").getAsInt());
+        assertEquals("e5", change.getAsJsonObject("gameInfo").get("lastMove").getAsString());
+        
+        before = game.getBoardState();
+        assertTrue(game.undoMove());
+        assertEquals(map("e5", "", "e7", "BP"), squares(GameEvents.change(before, game)));
+    }
+    
+    @Test
+    public void changeCoversCastlingAndEnPassant() {
+        ChessGame castling = new ChessGame("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertEquals(map("e1", "", "f1", "WR", "g1", "WK", "h1", ""), squaresAfter(castling, "O-O"));
+        assertEquals(map("a8", "", "c8", "BK", "d8", "BR", "e8", ""), squaresAfter(castling, "O-O-O"));
+        
+        ChessGame enPassant = new ChessGame("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1");
+        assertEquals(map("d5", "", "d6", "WP", "e5", ""), squaresAfter(enPassant, "exd6"));
+    }
+    
+    @Test
+    public void snapshotHoldsTheWholeGame() {
+        ChessGame game = new ChessGame();
+        game.makeMove("d4");
+        JsonObject snapshot = GameEvents.snapshot("id", game);
+        assertEquals("id", snapshot.get("gameId").getAsString());
+        assertEquals("WP", snapshot.getAsJsonArray("board").get(4).getAsJsonArray().get(3).getAsString());
+        assertEquals(1, snapshot.getAsJsonObject("gameInfo").get("moveCount").getAsInt());
+    }
+}
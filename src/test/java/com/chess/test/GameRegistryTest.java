@@ -0,0 +1,282 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.chess.controller.ChessGame;
+import com.chess.registry.FileSpillStore;
+import com.chess.registry.GameRegistry;
+import com.chess.registry.MemorySpillStore;
+import com.chess.registry.SpillStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Compact game encoding and the registry's eviction to and restore from spill stores
+ */
+public class GameRegistryTest {
+    
+    private static ChessGame played(String fen, String... moves) {
+        ChessGame game = fen == null ? new ChessGame() : new ChessGame(fen);
+        for (String move : moves) {
+            assertTrue(move, game.makeMove(move));
+        }
+        return game;
+    }
+    
+    @Test
+    public void compactGamesReplayToTheSamePosition() {
+        // Castling, en passant and an under-promotion from a custom start
+        ChessGame game = played("4k3/1P6/8/8/8/8/8/R3K3 w Q - 0 1", "O-O-O", "Kf7", "b8=N");
+        ChessGame copy = ChessGame.fromCompact(game.toCompact());
+        assertEquals(game.getFen(), copy.getFen());
+        assertEquals(game.getGameInfo(), copy.getGameInfo());
+        
+        game = played(null, "e4", "a6", "e5", "d5", "exd6");
+        byte[] compact = game.toCompact();
+        assertEquals(5 + 2 * 5, compact.length);
+        copy = ChessGame.fromCompact(compact);
+        assertEquals(game.getFen(), copy.getFen());
+        assertEquals("exd6", copy.getGameInfo().get("lastMove"));
+        assertTrue(copy.undoMove());
+        assertEquals(played(null, "e4", "a6", "e5", "d5").getFen(), copy.getFen());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCorruptCompactGames() {
+        byte[] compact = played(null, "e4").toCompact();
+        compact[compact.length - 1] ^= 0x3F;
+        ChessGame.fromCompact(compact);
+    }
+    
+    @Test
+    public void spillsLeastRecentlyUsedGamesBeyondCapacity() throws IOException {
+        MemorySpillStore spill = new MemorySpillStore();
+        AtomicInteger restored = new AtomicInteger();
+        GameRegistry registry = new GameRegistry(2, Long.MAX_VALUE, spill, game -> restored.incrementAndGet());
+        ChessGame first = played(null, "d4", "Nf6");
+        String firstId = registry.register(first);
+        String secondId = registry.register(new ChessGame());
+        registry.get(firstId);
+        String thirdId = registry.register(new ChessGame());
+        
+        // The second game was used least recently
+        assertEquals(2, registry.getLiveGames());
+        assertEquals(1, registry.getSpilledGames());
+        assertEquals(5, registry.getSpilledBytes());
+        assertSame(first, registry.get(firstId));
+        
+        ChessGame second = registry.get(secondId);
+        assertEquals(new ChessGame().getFen(), second.getFen());
+        assertEquals(1, restored.get());
+        assertEquals(2, registry.getEvictions());
+        assertEquals(1, registry.getRestores());
+        
+        assertTrue(registry.remove(thirdId));
+        assertTrue(registry.remove(firstId));
+        assertFalse(registry.remove(thirdId));
+        assertNull(registry.get("unknown"));
+        assertEquals(0, registry.getSpilledGames());
+    }
+    
+    /** Memory store whose writes wait for a latch */
+    private static final class SlowSpillStore implements SpillStore {
+        final MemorySpillStore store = new MemorySpillStore();
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        
+        @Override
+        public void put(String id, byte[] game) throws IOException {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            store.put(id, game);
+        }
+        
+        @Override
+        public byte[] read(String id) {
+            return store.read(id);
+        }
+        
+        @Override
+        public boolean remove(String id) {
+            return store.remove(id);
+        }
+        
+        @Override
+        public int size() {
+            return store.size();
+        }
+        
+        @Override
+        public long sizeBytes() {
+            return store.sizeBytes();
+        }
+    }
+    
+    @Test
+    public void spillWritesOnlyHoldTheirOwnGame() throws Exception {
+        SlowSpillStore spill = new SlowSpillStore();
+        GameRegistry registry = new GameRegistry(2, Long.MAX_VALUE, spill, game -> { });
+        String firstId = registry.register(played(null, "e4"));
+        String secondId = registry.register(new ChessGame());
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> third = pool.submit(() -> registry.register(new ChessGame()));
+            assertTrue(spill.writing.await(5, TimeUnit.SECONDS));
+            
+            // The first game is being written; other games are not held up by it
+            assertEquals(new ChessGame().getFen(), registry.get(secondId).getFen());
+            assertEquals(2, registry.getLiveGames());
+            Future<ChessGame> first = pool.submit(() -> registry.get(firstId));
+            Thread.sleep(50);
+            assertFalse(first.isDone());
+            
+            spill.release.countDown();
+            assertEquals(played(null, "e4").getFen(), first.get(5, TimeUnit.SECONDS).getFen());
+            assertTrue(registry.remove(third.get(5, TimeUnit.SECONDS)));
+            assertEquals(1, registry.getRestores());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void failedRestoreKeepsTheSpilledGame() throws IOException {
+        AtomicInteger failures = new AtomicInteger(1);
+        MemorySpillStore memory = new MemorySpillStore();
+        SpillStore flaky = new SpillStore() {
+            @Override
+            public void put(String id, byte[] game) {
+                memory.put(id, game);
+            }
+            
+            @Override
+            public byte[] read(String id) throws IOException {
+                if (failures.getAndDecrement() > 0) {
+                    throw new IOException("Read failed");
+                }
+                return memory.read(id);
+            }
+            
+            @Override
+            public boolean remove(String id) {
+                return memory.remove(id);
+            }
+            
+            @Override
+            public int size() {
+                return memory.size();
+            }
+            
+            @Override
+            public long sizeBytes() {
+                return memory.sizeBytes();
+            }
+        };
+        GameRegistry registry = new GameRegistry(1, Long.MAX_VALUE, flaky, game -> { });
+        String firstId = registry.register(played(null, "e4"));
+        registry.register(new ChessGame());
+        assertEquals(1, registry.getSpilledGames());
+        
+        try {
+            registry.withGame(firstId, ChessGame::getFen);
+            fail("Read failure not reported");
+        } catch (IOException e) {
+            assertEquals(1, registry.getSpilledGames());
+        }
+        assertEquals(played(null, "e4").getFen(), registry.withGame(firstId, ChessGame::getFen).get());
+        assertEquals(1, registry.getRestores());
+        // The restore pushed the other game out
+        assertEquals(1, registry.getSpilledGames());
+    }
+    
+    @Test
+    public void failedSpillIsRetriedBehindFresherGames() throws Exception {
+        AtomicInteger failures = new AtomicInteger(1);
+        MemorySpillStore memory = new MemorySpillStore();
+        SpillStore flaky = new SpillStore() {
+            @Override
+            public void put(String id, byte[] game) throws IOException {
+                if (failures.getAndDecrement() > 0) {
+                    throw new IOException("Write failed");
+                }
+                memory.put(id, game);
+            }
+            
+            @Override
+            public byte[] read(String id) {
+                return memory.read(id);
+            }
+            
+            @Override
+            public boolean remove(String id) {
+                return memory.remove(id);
+            }
+            
+            @Override
+            public int size() {
+                return memory.size();
+            }
+            
+            @Override
+            public long sizeBytes() {
+                return memory.sizeBytes();
+            }
+        };
+        GameRegistry registry = new GameRegistry(100, 500, flaky, game -> { });
+        String idle = registry.register(played(null, "e4"));
+        Thread.sleep(600);
+        String fresh = registry.register(new ChessGame());
+        
+        try {
+            registry.evictIdle();
+            fail("Write failure not reported");
+        } catch (IOException e) {
+            assertEquals(2, registry.getLiveGames());
+        }
+        // The idle game went back in after the fresh one, and is still found
+        assertEquals(1, registry.evictIdle());
+        assertEquals(1, registry.getLiveGames());
+        assertTrue(memory.read(idle) != null);
+        assertNull(memory.read(fresh));
+    }
+    
+    @Test
+    public void spillsIdleGamesToFiles() throws IOException {
+        Path directory = Files.createTempDirectory("games");
+        GameRegistry registry = new GameRegistry(100, 0, new FileSpillStore(directory), game -> { });
+        ChessGame game = played(null, "e4", "c5", "Nf3");
+        String id = registry.register(game);
+        assertTrue(registry.getLiveBytes() > 0);
+        
+        assertEquals(1, registry.evictIdle());
+        assertEquals(0, registry.getLiveGames());
+        assertEquals(0, registry.getLiveBytes());
+        assertEquals(1, registry.getSpilledGames());
+        assertTrue(Files.exists(directory.resolve(id + ".game")));
+        
+        ChessGame restored = registry.get(id);
+        assertNotSame(game, restored);
+        assertEquals(game.getFen(), restored.getFen());
+        assertFalse(Files.exists(directory.resolve(id + ".game")));
+        assertTrue(registry.remove(id));
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,114 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.chess.book.BookBuilder;
+import com.chess.book.OpeningBook;
+import com.chess.controller.ChessGame;
+import com.chess.engine.Engine;
+import com.chess.engine.SearchLimits;
+import com.chess.engine.SearchResult;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+import com.chess.model.San;
+import com.chess.pgn.PgnReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Building, mapping and probing the opening book
+ */
+public class OpeningBookTest {
+    
+    private static Path book(int minGames) throws IOException {
+        Path pgn = Files.createTempFile("openings", ".pgn");
+        pgn.toFile().deleteOnExit();
+        Files.write(pgn, (
+                "[Result \"1-0\"]\n\n1. e4 e5 2. Nf3 Nc6 1-0\n\n"
+                + "[Result \"1/2-1/2\"]\n\n1. e4 c5 2. Nf3 1/2-1/2\n\n"
+                + "[Result \"0-1\"]\n\n1. d4 d5 0-1\n\n"
+                + "[Result \"1-0\"]\n\n1. e4 e5 2. Bc4 1-0\n\n").getBytes(StandardCharsets.US_ASCII));
+        
+        BookBuilder builder = new BookBuilder(BookBuilder.DEFAULT_MAX_PLIES, minGames);
+        new PgnReader(pgn, 2, 1).read(builder::add);
+        Path file = Files.createTempFile("book", ".bin");
+        file.toFile().deleteOnExit();
+        builder.write(file);
+        return file;
+    }
+    
+    @Test
+    public void weightsMovesByResultForTheMover() throws IOException {
+        OpeningBook book = OpeningBook.open(book(1));
+        Bitboard board = new Bitboard();
+        Fen.load(board, Fen.START_POSITION);
+        int[] moves = new int[8];
+        int[] weights = new int[8];
+        
+        // e4 scored 2 + 1 + 2 for White; d4 lost and is left out
+        assertEquals(1, book.probe(board.hash(), moves, weights));
+        assertEquals("e4", San.toSan(board, moves[0]));
+        assertEquals(5, weights[0]);
+        
+        // For Black, e5 lost both games and c5 drew
+        board.make(moves[0]);
+        assertEquals(1, book.probe(board.hash(), moves, weights));
+        assertEquals("c5", San.toSan(board, moves[0]));
+        assertEquals(1, weights[0]);
+    }
+    
+    @Test
+    public void dropsRareMovesAndAnswersUnknownPositions() throws IOException {
+        OpeningBook book = OpeningBook.open(book(2));
+        Bitboard board = new Bitboard();
+        Fen.load(board, "4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        
+        assertEquals(Move.NONE, book.pick(board, new Random(1), new int[MoveGenerator.MAX_MOVES]));
+        Fen.load(board, Fen.START_POSITION);
+        board.make(San.parse(board, "e4"));
+        board.make(San.parse(board, "e5"));
+        assertEquals(0, book.probe(board.hash(), new int[8], new int[8]));
+        assertEquals(1, book.size());
+    }
+    
+    @Test
+    public void engineAndGamePlayFromTheBook() throws IOException {
+        OpeningBook book = OpeningBook.open(book(1));
+        Engine engine = new Engine(1, 1);
+        try {
+            engine.setBook(book);
+            ChessGame game = new ChessGame();
+            SearchResult result = game.findBestMove(engine, SearchLimits.depth(4));
+            
+            assertTrue(result.isBook());
+            assertEquals("e2e4", Move.toCoordinate(result.getBestMove()));
+            List<Map<String, Object>> moves = game.getBookMoves(book);
+            assertEquals("e4", moves.get(0).get("san"));
+            assertEquals(1.0, (Double) moves.get(0).get("share"), 1e-9);
+            
+            assertTrue(game.makeMove("a4"));
+            assertTrue(game.getBookMoves(book).isEmpty());
+            assertFalse(game.findBestMove(engine, SearchLimits.depth(2)).isBook());
+        } finally {
+            engine.shutdown();
+        }
+    }
+    
+    @Test(expected = IOException.class)
+    public void rejectsFilesThatAreNotBooks() throws IOException {
+        Path file = Files.createTempFile("book", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, new byte[32]);
+        OpeningBook.open(file);
+    }
+}
@@ -0,0 +1,85 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+
+import com.chess.Perft;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.MoveGenerator;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Move generation correctness against the published perft reference counts
+ */
+public class PerftTest {
+    private static final int[] DEPTHS = {4, 3, 5, 4, 3, 3};
+    
+    @Test
+    public void referencePositionsMatchKnownCounts() {
+        for (int i = 0; i < Perft.REFERENCE_POSITIONS.length; i++) {
+            Object[] reference = Perft.REFERENCE_POSITIONS[i];
+            long[] expected = (long[]) reference[2];
+            Bitboard board = new Bitboard();
+            Fen.load(board, (String) reference[1]);
+            Perft perft = new Perft(board);
+            
+            for (int depth = 1; depth <= DEPTHS[i]; depth++) {
+                assertEquals(reference[0] + " depth " + depth, expected[depth - 1], perft.perft(depth));
+            }
+        }
+    }
+    
+    @Test
+    public void perftLeavesBoardUnchanged() {
+        Bitboard board = new Bitboard();
+        Fen.load(board, (String) Perft.REFERENCE_POSITIONS[1][1]);
+        long occupied = board.occupied();
+        int rights = board.castlingRights();
+        
+        new Perft(board).perft(3);
+        
+        assertEquals(occupied, board.occupied());
+        assertEquals(rights, board.castlingRights());
+        assertEquals(0, board.ply());
+    }
+    
+    @Test
+    public void stagedGenerationCoversEveryLegalMoveOnce() {
+        for (Object[] reference : Perft.REFERENCE_POSITIONS) {
+            Bitboard board = new Bitboard();
+            Fen.load(board, (String) reference[1]);
+            checkStages(board, 2);
+        }
+    }
+    
+    private static void checkStages(Bitboard board, int depth) {
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, legal, 0);
+        int[] staged = new int[MoveGenerator.MAX_MOVES];
+        int stagedCount = MoveGenerator.generateTactical(board, staged, 0);
+        stagedCount = MoveGenerator.generateQuiet(board, staged, stagedCount);
+        int[] bySquare = new int[MoveGenerator.MAX_MOVES];
+        int bySquareCount = 0;
+        for (int square = 0; square < 64; square++) {
+            bySquareCount = MoveGenerator.generateFrom(board, square, bySquare, bySquareCount);
+        }
+        
+        int[] expected = Arrays.copyOf(legal, count);
+        Arrays.sort(expected);
+        int[] actual = Arrays.copyOf(staged, stagedCount);
+        Arrays.sort(actual);
+        assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+        actual = Arrays.copyOf(bySquare, bySquareCount);
+        Arrays.sort(actual);
+        assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+        
+        if (depth > 1) {
+            for (int i = 0; i < count; i++) {
+                board.make(legal[i]);
+                checkStages(board, depth - 1);
+                board.unmake();
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.chess.model.Fen;
+import com.chess.pgn.PgnReader;
+import com.chess.pgn.PgnStats;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+/**
+ * Splitting, parsing and replaying of PGN archives
+ */
+public class PgnReaderTest {
+    
+    private static final String ANNOTATED_GAME =
+            "[Event \"Annotated\"]\n"
+            + "[White \"Morphy\"]\n"
+            + "[Black \"Duke and Count\"]\n"
+            + "[Result \"1-0\"]\n"
+            + "\n"
+            + "1. e4 e5 2. Nf3 d6 {Philidor\n[not a tag]} 3. d4 Bg4?! 4. dxe5 Bxf3 5. Qxf3 dxe5\n"
+            + "6. Bc4 Nf6 7. Qb3 (7. Qg3 $2 (7. Nc3)) 7... Qe7 8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5\n"
+            + "11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7\n"
+            + "; the finish\n"
+            + "16. Qb8+ Nxb8 17. Rd8# 1-0\n"
+            + "\n";
+    
+    private static final String SETUP_GAME =
+            "[Event \"Setup\"]\n"
+            + "[SetUp \"1\"]\n"
+            + "[FEN \"4k3/P7/8/8/8/8/8/4K2R w K - 0 1\"]\n"
+            + "\n"
+            + "1. a8=Q+ Kd7 2. 0-0 *\n"
+            + "\n";
+    
+    private static final String ILLEGAL_GAME =
+            "[Event \"Broken\"]\n"
+            + "\n"
+            + "1. e4 e5 2. Ke3 1/2-1/2\n"
+            + "\n";
+    
+    private static Path write(String text) throws IOException {
+        Path file = Files.createTempFile("games", ".pgn");
+        file.toFile().deleteOnExit();
+        Files.write(file, text.getBytes(StandardCharsets.ISO_8859_1));
+        return file;
+    }
+    
+    @Test
+    public void replaysTagsCommentsVariationsAndSetup() throws IOException {
+        Path file = write(ANNOTATED_GAME + SETUP_GAME + ILLEGAL_GAME);
+        Map<String, String> summaries = new ConcurrentHashMap<>();
+        
+        PgnStats stats = new PgnReader(file, 2, 1).read(game -> summaries.put(game.tag("Event"),
+                game.getMoveCount() + " " + game.getResult() + " " + Fen.toFen(game.getBoard())
+                + " " + game.getError()));
+        
+        assertEquals(3, stats.getGames());
+        assertEquals(1, stats.getInvalidGames());
+        assertEquals(33 + 3 + 2, stats.getMoves());
+        assertEquals("33 1-0 1n1Rkb1r/p4ppp/4q3/4p1B1/4P3/8/PPP2PPP/2K5 b k - 1 17 null",
+                summaries.get("Annotated"));
+        assertEquals("3 * Q7/3k4/8/8/8/8/8/5RK1 b - - 2 2 null", summaries.get("Setup"));
+        assertTrue(summaries.get("Broken").endsWith("Illegal or ambiguous move Ke3 at ply 3"));
+    }
+    
+    @Test
+    public void largeArchiveIsSplitIntoEveryGame() throws IOException {
+        StringBuilder text = new StringBuilder();
+        int copies = 3000;
+        for (int i = 0; i < copies; i++) {
+            text.append(ANNOTATED_GAME).append(SETUP_GAME);
+        }
+        Path file = write(text.toString());
+        AtomicLong plies = new AtomicLong();
+        List<String> errors = new CopyOnWriteArrayList<>();
+        
+        PgnStats stats = new PgnReader(file, 3, 7).read(game -> {
+            plies.addAndGet(game.getMoveCount());
+            if (game.getError() != null) {
+                errors.add(game.getError());
+            }
+        });
+        
+        assertTrue(Files.size(file) > (1 << 20));
+        assertEquals(copies * 2L, stats.getGames());
+        assertEquals(copies * 36L, stats.getMoves());
+        assertEquals(copies * 36L, plies.get());
+        assertEquals(Files.size(file), stats.getBytes());
+        assertTrue(errors.isEmpty());
+        assertTrue(stats.getMovesPerSecond() > 0);
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void handlerFailureStopsTheImport() throws IOException {
+        Path file = write(ANNOTATED_GAME + SETUP_GAME);
+        new PgnReader(file, 2, 1).read(game -> {
+            throw new IllegalStateException("handler failed");
+        });
+    }
+    
+    @Test
+    public void emptyFileHasNoGames() throws IOException {
+        PgnStats stats = new PgnReader(write("\n\n"), 2, 4).read(game -> assertNull(game));
+        
+        assertEquals(0, stats.getGames());
+    }
+}
@@ -0,0 +1,113 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.chess.Perft;
+import com.chess.controller.ChessGame;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+import com.chess.model.San;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * Writing and reading standard algebraic notation
+ */
+public class SanTest {
+    
+    private static String san(String fen, String coordinate) {
+        Bitboard board = new Bitboard();
+        Fen.load(board, fen);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(board, moves, 0);
+        for (int i = 0; i < count; i++) {
+            if (Move.toCoordinate(moves[i]).equals(coordinate)) {
+                return San.toSan(board, moves[i]);
+            }
+        }
+        throw new AssertionError("No legal move " + coordinate);
+    }
+    
+    @Test
+    public void everyLegalMoveRoundTripsUniquely() {
+        Bitboard board = new Bitboard();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (Object[] reference : Perft.REFERENCE_POSITIONS) {
+            Fen.load(board, (String) reference[1]);
+            long hash = board.hash();
+            int count = MoveGenerator.generateLegal(board, moves, 0);
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                String san = San.toSan(board, moves[i]);
+                assertTrue(san, seen.add(san));
+                assertEquals(san, moves[i], San.parse(board, san));
+            }
+            assertEquals(hash, board.hash());
+        }
+    }
+    
+    @Test
+    public void disambiguatesByFileThenRankThenBoth() {
+        assertEquals("Nbd7", san("r1bqkb1r/ppp1pppp/1n3n2/3p4/8/8/PPPPPPPP/RNBQKBNR b KQkq - 0 1", "b6d7"));
+        assertEquals("R1a3", san("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1", "a1a3"));
+        assertEquals("Qh1e4", san("K1k5/8/8/8/7Q/8/8/4Q2Q w - - 0 1", "h1e4"));
+    }
+    
+    @Test
+    public void pinnedRivalNeedsNoDisambiguation() {
+        // The knight on e2 is pinned against the king on e1, so Nc3 is unambiguous
+        assertEquals("Nc3", san("4r1k1/8/8/8/8/8/4N3/1N2K3 w - - 0 1", "b1c3"));
+    }
+    
+    @Test
+    public void writesCapturesPromotionsCastlingAndMate() {
+        assertEquals("exd8=Q+", san("3r4/4P3/8/8/7k/8/8/4K3 w - - 0 1", "e7d8q"));
+        assertEquals("O-O-O", san("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1", "e1c1"));
+        assertEquals("Ra8#", san("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", "a1a8"));
+        assertEquals("exd6", san("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6"));
+    }
+    
+    @Test
+    public void readsLooseNotation() {
+        Bitboard board = new Bitboard();
+        Fen.load(board, Fen.START_POSITION);
+        
+        assertEquals("g1f3", Move.toCoordinate(San.parse(board, "Ng1-f3")));
+        assertEquals("g1f3", Move.toCoordinate(San.parse(board, "g1f3")));
+        assertEquals("e2e4", Move.toCoordinate(San.parse(board, "e2e4")));
+        assertEquals("e2e4", Move.toCoordinate(San.parse(board, "e2-e4")));
+        assertEquals(Move.NONE, San.parse(board, "e7e5"));
+        assertEquals("e2e4", Move.toCoordinate(San.parse(board, "e4!?")));
+        assertEquals(Move.NONE, San.parse(board, "e5"));
+        assertEquals(Move.NONE, San.parse(board, "Nd2"));
+        assertEquals(Move.NONE, San.parse(board, "O-O"));
+        
+        Fen.load(board, "k7/4P3/8/8/8/8/8/4K3 w - - 0 1");
+        assertEquals("e7e8q", Move.toCoordinate(San.parse(board, "e7e8q")));
+    }
+    
+    @Test
+    public void gameAcceptsAndReportsSan() {
+        ChessGame game = new ChessGame();
+        assertTrue(game.makeMove("e4"));
+        assertTrue(game.makeMove("e5"));
+        assertTrue(game.makeMove("Nf3"));
+        
+        assertEquals("Nf3", game.getGameInfo().get("lastMove"));
+        assertEquals("Nf3", game.getMoveHistory().get(2).getSan());
+        
+        Bitboard board = new Bitboard();
+        Fen.load(board, game.getFen());
+        int[] line = {San.parse(board, "Nc6"), Move.NONE};
+        board.make(line[0]);
+        line[1] = San.parse(board, "Bb5");
+        List<String> sans = game.toSan(line);
+        assertEquals(Arrays.asList("Nc6", "Bb5"), sans);
+    }
+}
@@ -0,0 +1,124 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import com.chess.engine.Engine;
+import com.chess.engine.SearchLimits;
+import com.chess.engine.SearchPool;
+import com.chess.engine.SearchResult;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.Move;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+
+/**
+ * Bounded engine pool: searches run on it, the overflow is refused, and
+ * helper threads come out of the same budget
+ */
+public class SearchPoolTest {
+    
+    private static Bitboard start() {
+        Bitboard board = new Bitboard();
+        Fen.load(board, Fen.START_POSITION);
+        return board;
+    }
+    
+    @Test
+    public void refusesSearchesBeyondThreadsAndQueue() throws Exception {
+        Engine engine = new Engine(1, 1);
+        SearchPool pool = new SearchPool(1, 1);
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            SearchLimits slow = SearchLimits.moveTime(400);
+            Future<SearchResult> running = callers.submit(() -> pool.search(engine, start(), slow));
+            Future<SearchResult> queued = callers.submit(() -> pool.search(engine, start(), slow));
+            while (pool.getActive() + pool.getQueued() < 2) {
+                Thread.sleep(1);
+            }
+            try {
+                pool.search(engine, start(), SearchLimits.depth(1));
+                fail("Search accepted with the pool and queue full");
+            } catch (RejectedExecutionException e) {
+                assertEquals(1, pool.getRejected());
+            }
+            
+            assertNotEquals(Move.NONE, running.get().getBestMove());
+            assertNotEquals(Move.NONE, queued.get().getBestMove());
+            assertNotEquals(Move.NONE, pool.search(engine, start(), SearchLimits.depth(2)).getBestMove());
+            assertEquals(0, pool.getQueued());
+        } finally {
+            callers.shutdownNow();
+            pool.shutdown();
+            engine.shutdown();
+        }
+    }
+    
+    @Test
+    public void interruptedCallerCancelsItsSearch() throws Exception {
+        Engine engine = new Engine(1, 1);
+        SearchPool pool = new SearchPool(1, 1);
+        try {
+            Thread caller = Thread.ofVirtual().start(() -> {
+                try {
+                    pool.search(engine, start(), SearchLimits.moveTime(30_000));
+                } catch (InterruptedException e) {
+                    // Expected
+                }
+            });
+            while (pool.getActive() == 0) {
+                Thread.sleep(1);
+            }
+            caller.interrupt();
+            caller.join(5_000);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (pool.getActive() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, pool.getActive());
+        } finally {
+            pool.shutdown();
+            engine.shutdown();
+        }
+    }
+    
+    @Test
+    public void helpersShareThePoolsThreadBudget() throws Exception {
+        SearchPool pool = new SearchPool(2, 4);
+        Semaphore budget = pool.getThreadBudget();
+        Engine engine = new Engine(1, 2, budget);
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<SearchResult> helped = callers.submit(() -> pool.search(engine, start(),
+                    SearchLimits.moveTime(1000).withThreads(2)));
+            while (budget.availablePermits() > 0) {
+                Thread.sleep(1);
+            }
+            // The second pool thread is lent to the helper, so this search waits for it
+            Future<SearchResult> waiting = callers.submit(() -> pool.search(engine, start(), SearchLimits.depth(1)));
+            try {
+                waiting.get(200, TimeUnit.MILLISECONDS);
+                fail("Search ran while its thread was lent to a helper");
+            } catch (TimeoutException e) {
+                assertFalse(helped.isDone());
+            }
+            
+            assertNotEquals(Move.NONE, helped.get().getBestMove());
+            assertNotEquals(Move.NONE, waiting.get().getBestMove());
+            assertEquals(2, budget.availablePermits());
+        } finally {
+            callers.shutdownNow();
+            pool.shutdown();
+            engine.shutdown();
+        }
+    }
+}
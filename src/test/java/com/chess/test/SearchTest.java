@@ -0,0 +1,71 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.chess.engine.Engine;
+import com.chess.engine.Search;
+import com.chess.engine.SearchLimits;
+import com.chess.engine.SearchResult;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.Move;
+import org.junit.Test;
+
+/**
+ * Alpha-beta search on known tactical positions
+ */
+public class SearchTest {
+    
+    private static SearchResult search(String fen, int depth) {
+        Bitboard board = new Bitboard();
+        Fen.load(board, fen);
+        long hash = board.hash();
+        SearchResult result = new Search().search(board, SearchLimits.depth(depth));
+        assertEquals(hash, board.hash());
+        return result;
+    }
+    
+    @Test
+    public void findsMateInTwo() {
+        SearchResult result = search("r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1", 4);
+        
+        assertEquals("d5f6", Move.toCoordinate(result.getBestMove()));
+        assertTrue(result.isMate());
+        assertEquals(Search.MATE - 3, result.getScore());
+    }
+    
+    @Test
+    public void winsHangingQueen() {
+        SearchResult result = search("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1", 3);
+        
+        assertEquals("d2d5", Move.toCoordinate(result.getBestMove()));
+        assertTrue(result.getScore() > 300);
+    }
+    
+    @Test
+    public void parallelSearchFindsTheSameMate() {
+        Engine engine = new Engine(4, 4);
+        try {
+            Bitboard board = new Bitboard();
+            Fen.load(board, "r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1");
+            SearchLimits limits = SearchLimits.depth(4).withThreads(8);
+            
+            for (int i = 0; i < 3; i++) {
+                SearchResult result = engine.search(board, limits);
+                assertEquals("d5f6", Move.toCoordinate(result.getBestMove()));
+                assertEquals(Search.MATE - 3, result.getScore());
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+    
+    @Test
+    public void stalematedSideHasNoMove() {
+        SearchResult result = search("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1", 3);
+        
+        assertEquals(Move.NONE, result.getBestMove());
+        assertEquals(0, result.getScore());
+    }
+}
@@ -0,0 +1,54 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.Move;
+import com.chess.model.Position;
+import org.junit.Test;
+
+/**
+ * Static exchange evaluation on the bitboard
+ */
+public class StaticExchangeTest {
+    
+    private static int see(String fen, String from, String to, int flags) {
+        Bitboard board = new Bitboard();
+        Fen.load(board, fen);
+        long hash = board.hash();
+        int move = Move.encode(new Position(from).getSquare(), new Position(to).getSquare(), flags);
+        int score = board.see(move, new int[Bitboard.SEE_BUFFER]);
+        assertEquals(hash, board.hash());
+        return score;
+    }
+    
+    @Test
+    public void undefendedPawnIsWon() {
+        assertEquals(100, see("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "e1", "e5", Move.CAPTURE));
+    }
+    
+    @Test
+    public void knightForPawnLosesTheExchange() {
+        assertEquals(-220, see("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", "d3", "e5", Move.CAPTURE));
+    }
+    
+    @Test
+    public void rookBehindRookJoinsTheExchange() {
+        assertEquals(100, see("3rk3/8/8/3p4/8/8/3R4/3R2K1 w - - 0 1", "d2", "d5", Move.CAPTURE));
+        assertEquals(-400, see("3rk3/8/8/3p4/8/8/3R4/6K1 w - - 0 1", "d2", "d5", Move.CAPTURE));
+    }
+    
+    @Test
+    public void bishopBehindPawnRecaptures() {
+        // After exd4 Qxd4 the bishop on f2 sees d4 through the square the pawn left
+        assertEquals(100, see("4k3/8/8/2q5/3p4/4P3/5B2/4K3 w - - 0 1", "e3", "d4", Move.CAPTURE));
+    }
+    
+    @Test
+    public void enPassantAndQuietMoves() {
+        assertEquals(100, see("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5", "d6", Move.EN_PASSANT));
+        // Moving a knight onto a square guarded by a pawn hangs it
+        assertEquals(-320, see("4k3/8/4p3/8/8/4N3/8/4K3 w - - 0 1", "e3", "d5", Move.QUIET));
+    }
+}
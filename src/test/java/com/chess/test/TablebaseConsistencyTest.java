@@ -0,0 +1,111 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.chess.engine.Search;
+import com.chess.model.Attacks;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.MoveGenerator;
+import com.chess.tablebase.TablebaseGenerator;
+import com.chess.tablebase.Tablebases;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks every KRKP position against a negamax over its children. The defender
+ * can promote, so losses may run through a slower conversion. Generating the
+ * table and its successors takes about a minute, so this only runs with the
+ * tablebases profile: mvn -Ptablebases test
+ */
+public class TablebaseConsistencyTest {
+    private static Tablebases krkp;
+    
+    @BeforeClass
+    public static void generate() throws IOException {
+        Assume.assumeTrue("Run with -Ptablebases", Boolean.getBoolean("chess.tablebases.exhaustive"));
+        Path directory = Files.createTempDirectory("tablebases");
+        TablebaseGenerator generator = new TablebaseGenerator(directory,
+                Runtime.getRuntime().availableProcessors(), message -> { });
+        try {
+            krkp = generator.generate("KRKP");
+        } finally {
+            generator.shutdown();
+        }
+        try (var files = Files.list(directory)) {
+            files.forEach(file -> file.toFile().deleteOnExit());
+        }
+        directory.toFile().deleteOnExit();
+    }
+    
+    private static int probe(String fen) {
+        Bitboard board = new Bitboard();
+        Fen.load(board, fen);
+        return krkp.probe(board);
+    }
+    
+    /**
+     * Score a position from its children, as the table should hold it
+     */
+    private static int negamax(Bitboard board, int[] moves) {
+        int count = MoveGenerator.generateLegal(board, moves, 0);
+        if (count == 0) {
+            return MoveGenerator.isInCheck(board) ? -Search.MATE : 0;
+        }
+        int best = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            board.make(moves[i]);
+            int child = krkp.probe(board);
+            board.unmake();
+            best = Math.max(best, child > 0 ? -(child - 1) : child < 0 ? -(child + 1) : 0);
+        }
+        return best;
+    }
+    
+    @Test
+    public void spotPositionsHaveKnownDistances() {
+        // Promoting to a knight holds out longer than the quick loss after a king move
+        assertEquals(-(Search.MATE - 34), probe("8/8/8/8/8/8/1R3p2/K1k5 b - - 0 1"));
+        assertEquals(Search.MATE - 1, probe("k7/8/1K6/8/8/8/7p/2R5 w - - 0 1"));
+        assertEquals(-Search.MATE, probe("k1R5/8/1K6/8/8/8/7p/8 b - - 0 1"));
+    }
+    
+    @Test
+    public void storedScoresAgreeWithTheirChildren() {
+        Bitboard board = new Bitboard();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int checked = 0;
+        for (int pawn = 8; pawn < 56; pawn++) {
+            for (int whiteKing = 0; whiteKing < 64; whiteKing++) {
+                for (int blackKing = 0; blackKing < 64; blackKing++) {
+                    for (int rook = 0; rook < 64; rook++) {
+                        if (pawn == whiteKing || pawn == blackKing || pawn == rook || rook == whiteKing
+                                || rook == blackKing || (Attacks.king(whiteKing) & (1L << blackKing)) != 0
+                                || whiteKing == blackKing) {
+                            continue;
+                        }
+                        for (int side = Bitboard.WHITE; side <= Bitboard.BLACK; side++) {
+                            board.clear();
+                            board.addPiece(Bitboard.piece(Bitboard.WHITE, Bitboard.KING), whiteKing);
+                            board.addPiece(Bitboard.piece(Bitboard.BLACK, Bitboard.KING), blackKing);
+                            board.addPiece(Bitboard.piece(Bitboard.WHITE, Bitboard.ROOK), rook);
+                            board.addPiece(Bitboard.piece(Bitboard.BLACK, Bitboard.PAWN), pawn);
+                            board.setSideToMove(side);
+                            if (board.isAttacked(board.kingSquare(side ^ 1), side)) {
+                                continue;
+                            }
+                            assertEquals(Fen.toFen(board), negamax(board, moves), krkp.probe(board));
+                            checked++;
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(checked > 10_000_000);
+    }
+}
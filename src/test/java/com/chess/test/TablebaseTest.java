@@ -0,0 +1,129 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.chess.controller.ChessGame;
+import com.chess.engine.Engine;
+import com.chess.engine.Search;
+import com.chess.engine.SearchLimits;
+import com.chess.engine.SearchResult;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import com.chess.model.Move;
+import com.chess.model.MoveGenerator;
+import com.chess.tablebase.Material;
+import com.chess.tablebase.TablebaseGenerator;
+import com.chess.tablebase.Tablebases;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Generating the three-piece tables and probing them from the engine and the game
+ */
+public class TablebaseTest {
+    private static Tablebases tablebases;
+    
+    @BeforeClass
+    public static void generate() throws IOException {
+        Path directory = Files.createTempDirectory("tablebases");
+        TablebaseGenerator generator = new TablebaseGenerator(directory, 2, message -> { });
+        try {
+            for (String signature : new String[] {"KQK", "KRK", "KBK", "KNK", "KPK"}) {
+                tablebases = generator.generate(signature);
+            }
+        } finally {
+            generator.shutdown();
+        }
+        try (var files = Files.list(directory)) {
+            files.forEach(file -> file.toFile().deleteOnExit());
+        }
+        directory.toFile().deleteOnExit();
+    }
+    
+    private static int probe(String fen) {
+        Bitboard board = new Bitboard();
+        Fen.load(board, fen);
+        return tablebases.probe(board);
+    }
+    
+    @Test
+    public void longestMatesMatchKnownValues() {
+        Bitboard board = new Bitboard();
+        Fen.load(board, "4k3/8/8/8/8/8/8/Q3K3 w - - 0 1");
+        assertEquals(10, tablebases.longestMate(board));
+        Fen.load(board, "4k3/8/8/8/8/8/8/R3K3 w - - 0 1");
+        assertEquals(16, tablebases.longestMate(board));
+        Fen.load(board, "4k3/8/8/8/8/8/8/B3K3 w - - 0 1");
+        assertEquals(0, tablebases.longestMate(board));
+        assertEquals(5, tablebases.size());
+    }
+    
+    @Test
+    public void probesScoreWinsLossesAndDraws() {
+        // Mate in one for either colour holding the queen, and mated after the only king move
+        assertEquals(Search.MATE - 1, probe("k7/7Q/1K6/8/8/8/8/8 w - - 0 1"));
+        assertEquals(Search.MATE - 1, probe("K7/7q/1k6/8/8/8/8/8 b - - 0 1"));
+        assertEquals(-(Search.MATE - 2), probe("k7/8/2K5/8/8/8/8/1Q6 b - - 0 1"));
+        // Rook's pawn with the defending king in front, and a pawn the defender catches
+        assertEquals(0, probe("k7/8/8/8/P7/8/8/1K6 w - - 0 1"));
+        assertTrue(probe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1") < 0);
+        assertEquals(Tablebases.UNKNOWN, probe("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1"));
+        assertEquals(Tablebases.UNKNOWN, probe("4k3/8/8/8/8/8/8/RR2K3 w - - 0 1"));
+        assertEquals(0, probe("4k3/8/8/8/8/8/8/4K3 w - - 0 1"));
+        assertTrue(tablebases.contains(Material.parse("KKP")));
+    }
+    
+    @Test
+    public void bestMoveMatesFastest() {
+        Bitboard board = new Bitboard();
+        Fen.load(board, "k7/7Q/1K6/8/8/8/8/8 w - - 0 1");
+        int move = tablebases.bestMove(board, new int[MoveGenerator.MAX_MOVES]);
+        board.make(move);
+        assertTrue(MoveGenerator.isInCheck(board));
+        assertEquals(0, MoveGenerator.generateLegal(board, new int[MoveGenerator.MAX_MOVES], 0));
+    }
+    
+    @Test
+    public void engineAndGameUseTheTables() {
+        Engine engine = new Engine(1, 1);
+        try {
+            engine.setTablebases(tablebases);
+            ChessGame game = new ChessGame("8/8/8/4k3/8/8/8/R3K3 w - - 0 1");
+            SearchResult result = game.findBestMove(engine, SearchLimits.depth(2));
+            assertTrue(result.isTablebase());
+            assertTrue(result.getScore() > Search.MATE - 64);
+            assertTrue(Move.toCoordinate(result.getBestMove()).startsWith("a1")
+                    || Move.toCoordinate(result.getBestMove()).startsWith("e1"));
+            
+            game.setTablebases(tablebases);
+            assertEquals("WHITE mates in 14", game.getGameInfo().get("tablebase"));
+            ChessGame bishop = new ChessGame("8/8/8/4k3/8/8/8/1B2K3 w - - 0 1");
+            bishop.setTablebases(tablebases);
+            assertEquals("DRAW", bishop.getGameInfo().get("gameState"));
+        } finally {
+            engine.shutdown();
+        }
+    }
+    
+    @Test
+    public void resetDropsTheTablebaseVerdict() {
+        ChessGame krk = new ChessGame("8/8/8/4k3/8/8/8/R3K3 w - - 0 1");
+        krk.setTablebases(tablebases);
+        assertEquals("WHITE mates in 14", krk.getGameInfo().get("tablebase"));
+        
+        krk.resetGame();
+        assertNull(krk.getGameInfo().get("tablebase"));
+        assertEquals("ACTIVE", krk.getGameInfo().get("gameState"));
+        
+        ChessGame bishop = new ChessGame("8/8/8/4k3/8/8/8/1B2K3 w - - 0 1");
+        bishop.setTablebases(tablebases);
+        bishop.resetGame();
+        assertNull(bishop.getGameInfo().get("tablebase"));
+        assertEquals("ACTIVE", bishop.getGameInfo().get("gameState"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.chess.engine.Engine;
+import com.chess.engine.Search;
+import com.chess.engine.SearchLimits;
+import com.chess.engine.TranspositionTable;
+import com.chess.model.Bitboard;
+import com.chess.model.Fen;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Packing, replacement and concurrent access of the shared transposition table
+ */
+public class TranspositionTableTest {
+    
+    @Test
+    public void storedEntryRoundTrips() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(0x123456789ABCDEFL, 0x0C1C, -250, 7, TranspositionTable.BOUND_LOWER, 3);
+        
+        long entry = table.probe(0x123456789ABCDEFL);
+        assertEquals(0x0C1C, TranspositionTable.move(entry));
+        assertEquals(-250, TranspositionTable.score(entry, 3));
+        assertEquals(7, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.BOUND_LOWER, TranspositionTable.bound(entry));
+        assertEquals(0L, table.probe(0x123456789ABCDEEL));
+    }
+    
+    @Test
+    public void mateScoresAreStoredRelativeToTheNode() {
+        TranspositionTable table = new TranspositionTable(1);
+        // Mate in 5 plies found at ply 2 is mate in 3 plies from the node
+        table.store(42L, 0, Search.MATE - 5, 4, TranspositionTable.BOUND_EXACT, 2);
+        
+        assertEquals(Search.MATE - 7, TranspositionTable.score(table.probe(42L), 4));
+    }
+    
+    @Test
+    public void deeperEntryOfTheCurrentSearchIsKept() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(99L, 1, 10, 8, TranspositionTable.BOUND_LOWER, 0);
+        table.store(99L, 2, 20, 3, TranspositionTable.BOUND_LOWER, 0);
+        assertEquals(8, TranspositionTable.depth(table.probe(99L)));
+        
+        table.newSearch();
+        table.store(99L, 2, 20, 3, TranspositionTable.BOUND_LOWER, 0);
+        assertEquals(3, TranspositionTable.depth(table.probe(99L)));
+    }
+    
+    @Test
+    public void concurrentWritersNeverProduceMismatchedEntries() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(1);
+        AtomicInteger corrupt = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    // Keys collide on a handful of buckets; the score encodes the key it belongs to
+                    long key = ((long) (i & 15) << 40) | (i & 63);
+                    int check = (int) (key % 1000);
+                    table.store(key, id + 1, check, i & 31, TranspositionTable.BOUND_EXACT, 0);
+                    long entry = table.probe(key);
+                    if (entry != 0 && TranspositionTable.score(entry, 0) != check) {
+                        corrupt.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        assertEquals(0, corrupt.get());
+        assertTrue(table.capacity() > 0);
+    }
+    
+    @Test
+    public void sharedSearchesKeepTheEngineGeneration() {
+        Engine engine = new Engine(1, 1);
+        try {
+            Bitboard board = new Bitboard();
+            Fen.load(board, Fen.START_POSITION);
+            engine.search(board, SearchLimits.depth(5));
+            int current = engine.getTable().hashfull();
+            assertTrue(current > 0);
+            
+            // Searches sharing the table, as the corpus analyzer runs them, leave its entries current
+            Search shared = engine.createSearch();
+            Fen.load(board, "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1");
+            for (int i = 0; i < 3; i++) {
+                shared.search(board, SearchLimits.depth(1));
+            }
+            assertTrue(engine.getTable().hashfull() >= current);
+            
+            engine.search(board, SearchLimits.depth(1));
+            assertTrue(engine.getTable().hashfull() < current);
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
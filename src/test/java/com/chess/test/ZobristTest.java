@@ -0,0 +1,62 @@
+package com.chess.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.chess.model.Bitboard;
+import com.chess.model.ChessBoard;
+import com.chess.model.Fen;
+import com.chess.model.Move;
+import com.chess.model.Zobrist;
+import org.junit.Test;
+
+/**
+ * Incremental Zobrist hashing on ChessBoard
+ */
+public class ZobristTest {
+    
+    private static void play(ChessBoard board, String... squares) {
+        for (int i = 0; i < squares.length; i += 2) {
+            if (!board.makeMove(new Move(squares[i], squares[i + 1]))) {
+                throw new AssertionError("Illegal move " + squares[i] + "-" + squares[i + 1]);
+            }
+        }
+    }
+    
+    @Test
+    public void transpositionsShareAHash() {
+        ChessBoard first = new ChessBoard();
+        play(first, "g1", "f3", "g8", "f6", "b1", "c3");
+        ChessBoard second = new ChessBoard();
+        play(second, "b1", "c3", "g8", "f6", "g1", "f3");
+        
+        assertEquals(first.hash(), second.hash());
+        assertEquals(Zobrist.compute(first.getBitboard()), first.hash());
+    }
+    
+    @Test
+    public void castlingRightsAndEnPassantChangeTheHash() {
+        ChessBoard start = new ChessBoard();
+        ChessBoard shuffled = new ChessBoard();
+        play(shuffled, "g1", "f3", "g8", "f6", "h1", "g1", "f6", "g8", "g1", "h1", "g8", "f6", "f3", "g1", "f6", "g8");
+        assertNotEquals(start.hash(), shuffled.hash());
+        
+        ChessBoard doublePush = new ChessBoard();
+        play(doublePush, "e2", "e4");
+        Bitboard noEnPassant = new Bitboard();
+        Fen.load(noEnPassant, "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1");
+        assertNotEquals(noEnPassant.hash(), doublePush.hash());
+        assertEquals(noEnPassant.hash() ^ Zobrist.enPassant(20), doublePush.hash());
+    }
+    
+    @Test
+    public void undoRestoresTheHash() {
+        ChessBoard board = new ChessBoard();
+        long initial = board.hash();
+        play(board, "e2", "e4", "d7", "d5", "e4", "d5");
+        board.undoMove();
+        board.undoMove();
+        board.undoMove();
+        assertEquals(initial, board.hash());
+    }
+}